@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.AntPathMatcher;
+import org.zalando.logbook.Conditions;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Strategy;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Narrows Logbook's HTTP exchange logging. Only {@code filmorate.http-log.sample-percent} percent of
+ * exchanges are logged at all. This condition takes the place of Logbook's default one, so it applies
+ * {@code logbook.include} and {@code logbook.exclude} itself before sampling. GET requests to
+ * {@code filmorate.http-log.skip-body-paths} (Ant patterns for the list endpoints) are logged without
+ * bodies, so their responses are never buffered.
+ * Other bodies are cut at {@code logbook.write.max-body-size}; the log itself is written by an async
+ * appender (logback-spring.xml).
+ */
+@Configuration
+public class HttpLogConfiguration {
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    @Bean
+    public Predicate<HttpRequest> requestCondition(@Value("${filmorate.http-log.sample-percent:100}") int samplePercent,
+                                                   @Value("${logbook.include:}") List<String> include,
+                                                   @Value("${logbook.exclude:}") List<String> exclude) {
+        if (samplePercent < 0 || samplePercent > 100) {
+            throw new IllegalArgumentException("Illegal HTTP log sample percent");
+        }
+        Predicate<HttpRequest> included = include.isEmpty() ? request -> true
+                : include.stream().map(Conditions::<HttpRequest>requestTo).reduce(Predicate::or).orElseThrow();
+        Predicate<HttpRequest> notExcluded = Conditions.exclude(
+                exclude.stream().map(Conditions::<HttpRequest>requestTo).collect(Collectors.toList()));
+        Predicate<HttpRequest> sampled = request -> samplePercent == 100
+                || ThreadLocalRandom.current().nextInt(100) < samplePercent;
+        return included.and(notExcluded).and(sampled);
+    }
+
+    @Bean
+    public Strategy httpLogStrategy(@Value("${filmorate.http-log.skip-body-paths:}") List<String> skipBodyPaths) {
+        return new Strategy() {
+            @Override
+            public HttpRequest process(HttpRequest request) throws IOException {
+                return skipsBody(request) ? request.withoutBody() : request.withBody();
+            }
+
+            @Override
+            public HttpResponse process(HttpRequest request, HttpResponse response) throws IOException {
+                return skipsBody(request) ? response.withoutBody() : response.withBody();
+            }
+
+            private boolean skipsBody(HttpRequest request) {
+                return "GET".equals(request.getMethod())
+                        && skipBodyPaths.stream().anyMatch(pattern -> PATH_MATCHER.match(pattern, request.getPath()));
+            }
+        };
+    }
+}
@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+import ru.yandex.practicum.filmorate.storage.impl.database.ReadWriteRoutingDataSource;
+import ru.yandex.practicum.filmorate.storage.impl.database.ReplicaSet;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-your-writes for clients while reads go to replicas. Responses to data-changing requests carry a
+ * {@value COOKIE_NAME} cookie with the primary's write position, and reads of requests sending it back skip
+ * replicas that have not applied it; data-changing requests themselves only read the primary. The cookie
+ * expires after the replicas' maximum lag, as any replica still in use has caught up with the write by then.
+ * Responses to data-changing requests are buffered, so that the cookie can be added after the write.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    public static final String COOKIE_NAME = "filmorate-write-position";
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final ReplicaSet replicaSet;
+    private final int cookieMaxAge;
+
+    public ReadYourWritesFilter(ReplicaSet replicaSet, long maxLagMs) {
+        this.replicaSet = replicaSet;
+        this.cookieMaxAge = (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(maxLagMs + 999));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        try {
+            if (READ_METHODS.contains(request.getMethod())) {
+                ReadWriteRoutingDataSource.setRequiredPosition(requiredPosition(request));
+                chain.doFilter(request, response);
+                return;
+            }
+            ReadWriteRoutingDataSource.setRequiredPosition(Long.MAX_VALUE);
+            ContentCachingResponseWrapper bufferedResponse = new ContentCachingResponseWrapper(response);
+            chain.doFilter(request, bufferedResponse);
+            Cookie cookie = new Cookie(COOKIE_NAME, Long.toString(replicaSet.getWritePosition()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge(cookieMaxAge);
+            bufferedResponse.addCookie(cookie);
+            bufferedResponse.copyBodyToResponse();
+        } finally {
+            ReadWriteRoutingDataSource.clearRequiredPosition();
+        }
+    }
+
+    private static long requiredPosition(HttpServletRequest request) {
+        Cookie cookie = WebUtils.getCookie(request, COOKIE_NAME);
+        if (cookie == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(cookie.getValue());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import ru.yandex.practicum.filmorate.storage.impl.database.ReadWriteRoutingDataSource;
+import ru.yandex.practicum.filmorate.storage.impl.database.ReplicaSet;
+import ru.yandex.practicum.filmorate.storage.impl.database.ReplicaSync;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Opt-in read replicas ({@code filmorate.replicas.enabled=true}). The primary pool is configured by
+ * {@code spring.datasource.*} as before; every URL of {@code filmorate.replicas.urls} gets a pool of its own
+ * with the same settings, sized by {@code filmorate.replicas.pool-size}. The application's DataSource routes
+ * read-only transactions to the replicas, see ReadWriteRoutingDataSource, and the replicas are kept in sync by
+ * ReplicaSync, a stand-in for real replication. Every pool publishes Hikari metrics tagged with its pool name.
+ */
+@Configuration
+@ConditionalOnProperty(name = "filmorate.replicas.enabled", havingValue = "true")
+public class ReplicaRoutingConfiguration {
+    @Value("${filmorate.replicas.max-lag-ms:5000}")
+    private long maxLagMs;
+
+    @Bean
+    public ReplicaSet replicaSet(DataSourceProperties properties, Environment environment,
+                                 @Value("${filmorate.replicas.urls}") List<String> replicaUrls,
+                                 @Value("${filmorate.replicas.pool-size:10}") int poolSize) {
+        if (replicaUrls.isEmpty()) {
+            throw new IllegalArgumentException("No replica URLs configured");
+        }
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        if (primary.getPoolName() == null) {
+            primary.setPoolName("filmorate");
+        }
+        List<HikariDataSource> replicas = new ArrayList<>(replicaUrls.size());
+        for (String url : replicaUrls) {
+            HikariDataSource replica = new HikariDataSource();
+            primary.copyStateTo(replica);
+            replica.setJdbcUrl(url);
+            replica.setPoolName(primary.getPoolName() + "-replica-" + (replicas.size() + 1));
+            replica.setMaximumPoolSize(poolSize);
+            replica.setMinimumIdle(Math.min(poolSize, primary.getMinimumIdle()));
+            replicas.add(replica);
+        }
+        return new ReplicaSet(primary, replicas);
+    }
+
+    @Bean
+    public DataSource dataSource(ReplicaSet replicaSet) {
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(replicaSet, maxLagMs));
+    }
+
+    @Bean
+    @DependsOn("flywayInitializer")
+    public ReplicaSync replicaSync(ReplicaSet replicaSet, Flyway flyway,
+                                   @Value("${filmorate.replicas.sync-interval-ms:1000}") long syncIntervalMs) {
+        return new ReplicaSync(replicaSet, flyway, syncIntervalMs);
+    }
+
+    // a binder rather than a registry parameter: the pools must not wait for the registry, which needs a DataSource
+    @Bean
+    public MeterBinder replicaPoolMetrics(ReplicaSet replicaSet) {
+        return replicaSet::bindMetrics;
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(ReplicaSet replicaSet) {
+        return new ReadYourWritesFilter(replicaSet, maxLagMs);
+    }
+}
@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.model.ResourceVersion;
+import ru.yandex.practicum.filmorate.storage.impl.database.ReadWriteRoutingDataSource;
+
+/**
+ * ETag and Last-Modified handling for GET handlers. Handlers read the version before reading anything
+ * and return null when it is not modified; Spring then answers 304 without a body. Handlers of a single
+ * resource check before looking it up as well, so that a revalidation never reaches storage: a film that
+ * is deleted gets a new version, and genres and ratings only change with migrations, so a current ETag
+ * never hides a 404. With read replicas the reads that follow skip replicas older than the version,
+ * or the body could be older than its ETag.
+ */
+final class ConditionalRequests {
+    private ConditionalRequests() {
+    }
+
+    /**
+     * Sets the ETag and Last-Modified headers and returns whether the client's copy is still current.
+     */
+    static boolean isNotModified(WebRequest request, ResourceVersion version) {
+        readAtLeast(version);
+        if (version.getLastModified() > System.currentTimeMillis()) {
+            // another change within the same second would get the same Last-Modified, only the ETag tells them apart
+            return request.checkNotModified(version.getETag());
+        }
+        return request.checkNotModified(version.getETag(), version.getLastModified());
+    }
+
+    /**
+     * Makes the reads of the current request see at least the data of the version, see ReadYourWritesFilter.
+     */
+    static void readAtLeast(ResourceVersion version) {
+        // without replicas positions are 0 and nothing is routed, nor left behind on the thread
+        if (version.getWritePosition() > 0) {
+            ReadWriteRoutingDataSource.requirePosition(version.getWritePosition());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.model.QueryPlanReport;
+import ru.yandex.practicum.filmorate.service.DiagnosticsService;
+
+import java.util.List;
+
+/**
+ * Off unless {@code filmorate.diagnostics.query-plans.enabled=true}: every call runs EXPLAIN ANALYZE, which
+ * executes each query, full reads of films, likes, users and friends included.
+ */
+@RestController
+@ConditionalOnProperty(name = "filmorate.diagnostics.query-plans.enabled", havingValue = "true")
+@RequestMapping("/diagnostics")
+@RequiredArgsConstructor
+public class DiagnosticsController {
+    private final DiagnosticsService diagnosticsService;
+
+    @GetMapping("/query-plans")
+    public List<QueryPlanReport> getQueryPlans() {
+        return diagnosticsService.getQueryPlans();
+    }
+}
@@ -1,12 +1,22 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.index.CatalogVersions;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmBatchResponse;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.model.ResourceVersion;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import javax.validation.Valid;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -14,21 +24,102 @@ import java.util.List;
 @RequiredArgsConstructor
 public class FilmController {
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
+    private final CatalogVersions catalogVersions;
 
     @GetMapping
-    public List<Film> getAllFilms() {
-        return filmService.getAllFilms();
+    public List<Film> getAllFilms(@RequestParam(required = false) Integer after,
+                                  @RequestParam(required = false) Integer limit, WebRequest request) {
+        if (ConditionalRequests.isNotModified(request, catalogVersions.getCatalogVersion())) {
+            return null;
+        }
+        if (after == null && limit == null) {
+            return filmService.getAllFilms();
+        }
+        return filmService.getFilmsAfter(after == null ? 0 : after, limit == null ? FilmService.MAX_PAGE_SIZE : limit);
+    }
+
+    /**
+     * {@code ?view=summary} lists films with their number of likes instead of the likers.
+     */
+    @GetMapping(params = {"view=summary", "!ids"})
+    public List<FilmSummary> getAllFilmSummaries(@RequestParam(required = false) Integer after,
+                                                 @RequestParam(required = false) Integer limit,
+                                                 WebRequest request) {
+        if (ConditionalRequests.isNotModified(request, catalogVersions.getCatalogVersion())) {
+            return null;
+        }
+        if (after == null && limit == null) {
+            return filmService.getAllFilmSummaries();
+        }
+        return filmService.getFilmSummariesAfter(after == null ? 0 : after,
+                limit == null ? FilmService.MAX_PAGE_SIZE : limit);
+    }
+
+    @GetMapping(params = "ids")
+    public FilmBatchResponse getFilms(@RequestParam List<Integer> ids, WebRequest request) {
+        if (ConditionalRequests.isNotModified(request, catalogVersions.getCatalogVersion())) {
+            return null;
+        }
+        return filmService.getFilms(ids);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamAllFilms() {
+        return outputStream -> filmService.streamAllFilms(
+                new NdjsonLineWriter<>(objectMapper.writerFor(Film.class), outputStream));
     }
 
     @GetMapping("/{id}")
-    @ResponseStatus(HttpStatus.OK)
-    public Film getFilm(@PathVariable int id) {
+    public Film getFilm(@PathVariable int id, WebRequest request) {
+        ResourceVersion version = catalogVersions.getFilmVersion(id);
+        if (ConditionalRequests.isNotModified(request, version)) {
+            return null;
+        }
         return filmService.getFilm(id);
     }
 
     @GetMapping("/popular")
-    public List<Film> getPopular(@RequestParam(defaultValue = "10") int count) {
-        return filmService.getPopular(count);
+    public List<Film> getPopular(@RequestParam(defaultValue = "10") int count,
+                                 @RequestParam(required = false) Short genreId,
+                                 @RequestParam(required = false) Short mpaId,
+                                 @RequestParam(required = false) Integer year,
+                                 WebRequest request) {
+        if (ConditionalRequests.isNotModified(request, catalogVersions.getCatalogVersion())) {
+            return null;
+        }
+        return filmService.getPopular(count, genreId, mpaId, year);
+    }
+
+    @GetMapping(value = "/popular", params = "view=summary")
+    public List<FilmSummary> getPopularSummaries(@RequestParam(defaultValue = "10") int count,
+                                                 @RequestParam(required = false) Short genreId,
+                                                 @RequestParam(required = false) Short mpaId,
+                                                 @RequestParam(required = false) Integer year,
+                                                 WebRequest request) {
+        if (ConditionalRequests.isNotModified(request, catalogVersions.getCatalogVersion())) {
+            return null;
+        }
+        return filmService.getPopularSummaries(count, genreId, mpaId, year);
+    }
+
+    @GetMapping("/search")
+    public List<Film> searchFilms(@RequestParam("q") String query, @RequestParam(defaultValue = "10") int count,
+                                  WebRequest request) {
+        if (ConditionalRequests.isNotModified(request, catalogVersions.getCatalogVersion())) {
+            return null;
+        }
+        return filmService.searchFilms(query, count);
+    }
+
+    @GetMapping(value = "/search", params = "view=summary")
+    public List<FilmSummary> searchFilmSummaries(@RequestParam("q") String query,
+                                                 @RequestParam(defaultValue = "10") int count,
+                                                 WebRequest request) {
+        if (ConditionalRequests.isNotModified(request, catalogVersions.getCatalogVersion())) {
+            return null;
+        }
+        return filmService.searchFilmSummaries(query, count);
     }
 
     @PostMapping
@@ -37,6 +128,16 @@ public class FilmController {
         return filmService.addFilm(film);
     }
 
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BulkImportResult importFilms(@RequestBody List<Film> films) {
+        return filmService.importFilms(films.iterator());
+    }
+
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public BulkImportResult importFilms(InputStream body) {
+        return filmService.importFilms(new NdjsonLineReader<>(objectMapper.readerFor(Film.class), body));
+    }
+
     @PutMapping
     @ResponseStatus(HttpStatus.OK)
     public Film updateFilm(@Valid @RequestBody Film film) {
@@ -5,6 +5,8 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.index.CatalogVersions;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.service.GenreService;
 
@@ -15,14 +17,21 @@ import java.util.List;
 @RequiredArgsConstructor
 public class GenreController {
     private final GenreService genreService;
+    private final CatalogVersions catalogVersions;
 
     @GetMapping
-    public List<Genre> getAllGenres() {
+    public List<Genre> getAllGenres(WebRequest request) {
+        if (ConditionalRequests.isNotModified(request, catalogVersions.getReferenceVersion())) {
+            return null;
+        }
         return genreService.getAllGenres();
     }
 
     @GetMapping("/{id}")
-    public Genre getGenre(@PathVariable short id) {
+    public Genre getGenre(@PathVariable short id, WebRequest request) {
+        if (ConditionalRequests.isNotModified(request, catalogVersions.getReferenceVersion())) {
+            return null;
+        }
         return genreService.getGenre(id);
     }
 }
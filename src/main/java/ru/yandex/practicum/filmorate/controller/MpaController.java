@@ -5,6 +5,8 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.index.CatalogVersions;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 import ru.yandex.practicum.filmorate.service.MpaService;
 
@@ -15,14 +17,21 @@ import java.util.List;
 @RequiredArgsConstructor
 public class MpaController {
     private final MpaService mpaService;
+    private final CatalogVersions catalogVersions;
 
     @GetMapping
-    public List<MpaRating> getAllRatings() {
+    public List<MpaRating> getAllRatings(WebRequest request) {
+        if (ConditionalRequests.isNotModified(request, catalogVersions.getReferenceVersion())) {
+            return null;
+        }
         return mpaService.getAllRatings();
     }
 
     @GetMapping("/{id}")
-    public MpaRating getRating(@PathVariable short id) {
+    public MpaRating getRating(@PathVariable short id, WebRequest request) {
+        if (ConditionalRequests.isNotModified(request, catalogVersions.getReferenceVersion())) {
+            return null;
+        }
         return mpaService.getRating(id);
     }
 }
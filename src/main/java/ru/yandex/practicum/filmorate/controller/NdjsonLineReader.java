@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import ru.yandex.practicum.filmorate.exception.EntityValidationException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads one value per non-blank line of newline-delimited JSON. A line that does not parse fails
+ * only its own {@code next()} call with an {@link EntityValidationException}, later lines are still read.
+ */
+class NdjsonLineReader<T> implements Iterator<T> {
+    private final ObjectReader objectReader;
+    private final BufferedReader reader;
+    private String nextLine;
+
+    NdjsonLineReader(ObjectReader objectReader, InputStream inputStream) {
+        this.objectReader = objectReader;
+        this.reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            while (nextLine == null) {
+                String line = reader.readLine();
+                if (line == null) {
+                    return false;
+                }
+                if (!line.isBlank()) {
+                    nextLine = line;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String line = nextLine;
+        nextLine = null;
+        try {
+            return objectReader.readValue(line);
+        } catch (JsonProcessingException e) {
+            throw new EntityValidationException("Malformed JSON: " + e.getOriginalMessage());
+        }
+    }
+}
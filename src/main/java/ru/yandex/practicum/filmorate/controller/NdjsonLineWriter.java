@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes every accepted value to the stream as one line of newline-delimited JSON.
+ */
+class NdjsonLineWriter<T> implements Consumer<T> {
+    private final ObjectWriter objectWriter;
+    private final OutputStream outputStream;
+
+    NdjsonLineWriter(ObjectWriter objectWriter, OutputStream outputStream) {
+        this.objectWriter = objectWriter;
+        this.outputStream = outputStream;
+    }
+
+    @Override
+    public void accept(T value) {
+        try {
+            outputStream.write(objectWriter.writeValueAsBytes(value));
+            outputStream.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
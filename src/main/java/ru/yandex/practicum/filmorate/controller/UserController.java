@@ -1,12 +1,20 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.index.CatalogVersions;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import javax.validation.Valid;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -14,11 +22,24 @@ import java.util.List;
 @RequiredArgsConstructor
 public class UserController {
     private final UserService userService;
+    private final FilmService filmService;
+    private final CatalogVersions catalogVersions;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
     @ResponseStatus(HttpStatus.OK)
-    public List<User> getAllUsers() {
-        return userService.getAllUsers();
+    public List<User> getAllUsers(@RequestParam(required = false) Long after,
+                                  @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return userService.getAllUsers();
+        }
+        return userService.getUsersAfter(after == null ? 0 : after, limit == null ? UserService.MAX_PAGE_SIZE : limit);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamAllUsers() {
+        return outputStream -> userService.streamAllUsers(
+                new NdjsonLineWriter<>(objectMapper.writerFor(User.class), outputStream));
     }
 
     @GetMapping("/{id}")
@@ -36,15 +57,37 @@ public class UserController {
     @GetMapping("/{id}/friends/common/{otherId}")
     @ResponseStatus(HttpStatus.OK)
     public List<User> getCommonFriends(@PathVariable long id, @PathVariable long otherId) {
+        ConditionalRequests.readAtLeast(catalogVersions.getUserVersion());
         return userService.getCommonFriends(id, otherId);
     }
 
+    @GetMapping("/{id}/friends/suggestions")
+    public List<User> getFriendSuggestions(@PathVariable long id, @RequestParam(defaultValue = "10") int count) {
+        ConditionalRequests.readAtLeast(catalogVersions.getUserVersion());
+        return userService.getFriendSuggestions(id, count);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<Film> getRecommendations(@PathVariable long id, @RequestParam(defaultValue = "10") int count) {
+        return filmService.getRecommendations(id, count);
+    }
+
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public User createUser(@Valid @RequestBody User user) {
         return userService.addUser(user);
     }
 
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BulkImportResult importUsers(@RequestBody List<User> users) {
+        return userService.importUsers(users.iterator());
+    }
+
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public BulkImportResult importUsers(InputStream body) {
+        return userService.importUsers(new NdjsonLineReader<>(objectMapper.readerFor(User.class), body));
+    }
+
     @PutMapping
     @ResponseStatus(HttpStatus.OK)
     public User updateUser(@Valid @RequestBody User user) {
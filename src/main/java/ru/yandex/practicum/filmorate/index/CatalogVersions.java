@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.ResourceVersion;
+import ru.yandex.practicum.filmorate.storage.impl.database.ReplicaSet;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process versions of films and of the film catalogue as a whole, for ETags and Last-Modified.
+ * Users are versioned the same way, only for routing their reads.
+ * Every change takes the next number of one sequence, so versions never repeat within a process, and ETags
+ * carry the process start time, so they never repeat across restarts either. Films without a change of
+ * their own share the floor version. Kept current by FilmService, UserService and LikeWriteBuffer, always after
+ * the change is stored: a version read before the data is then never newer than the data.
+ * Changes are serialized, so the catalogue version only moves forward; reads take no lock.
+ * Genres and MPA ratings only change with migrations, so they are versioned by the process start.
+ * Last-Modified times are rounded up to the next full second, as HTTP dates carry no millis: the header then
+ * never predates the change it stands for. With read replicas every version also records the primary's write
+ * position, so that reads answering with it can skip replicas that have not applied the change.
+ */
+@Component
+public class CatalogVersions {
+    private final long startedAt = System.currentTimeMillis();
+    private final ReplicaSet replicaSet;
+    private long sequence;
+    private final Map<Integer, ResourceVersion> films = new ConcurrentHashMap<>();
+    // genres and ratings are migrated into every replica before it is used
+    private final ResourceVersion reference = version(0, startedAt, 0);
+    private volatile ResourceVersion floor = reference;
+    private volatile ResourceVersion catalog = reference;
+    private volatile ResourceVersion users = reference;
+
+    @Autowired
+    public CatalogVersions(ObjectProvider<ReplicaSet> replicaSet) {
+        this.replicaSet = replicaSet.getIfAvailable();
+    }
+
+    CatalogVersions() {
+        this.replicaSet = null;
+    }
+
+    public ResourceVersion getFilmVersion(int filmId) {
+        ResourceVersion filmVersion = films.get(filmId);
+        return filmVersion != null ? filmVersion : floor;
+    }
+
+    /**
+     * Version of every response built from more than one film, such as lists and popular films.
+     */
+    public ResourceVersion getCatalogVersion() {
+        return catalog;
+    }
+
+    public ResourceVersion getReferenceVersion() {
+        return reference;
+    }
+
+    /**
+     * Version of the user rows. Reads of users found through FriendGraphIndex, which is ahead of the replicas,
+     * require its write position, so that no user the index knows of is missing.
+     */
+    public ResourceVersion getUserVersion() {
+        return users;
+    }
+
+    /**
+     * Entries of deleted films are kept, so that the film's old ETag does not match again.
+     */
+    public synchronized void filmChanged(int filmId) {
+        ResourceVersion changed = version(++sequence, System.currentTimeMillis(), writePosition());
+        films.put(filmId, changed);
+        catalog = changed;
+    }
+
+    /**
+     * For changes that reach films without saying which, such as likes removed with a deleted user.
+     */
+    public synchronized void allFilmsChanged() {
+        ResourceVersion changed = version(++sequence, System.currentTimeMillis(), writePosition());
+        floor = changed;
+        films.clear();
+        catalog = changed;
+    }
+
+    public synchronized void usersChanged() {
+        users = version(++sequence, System.currentTimeMillis(), writePosition());
+    }
+
+    // changes are reported after they are stored, so the position read now is at least the change's
+    private long writePosition() {
+        return replicaSet == null ? 0 : replicaSet.getWritePosition();
+    }
+
+    private ResourceVersion version(long number, long modified, long writePosition) {
+        return new ResourceVersion("\"" + Long.toString(startedAt, 36) + "-" + number + "\"",
+                (modified + 999) / 1000 * 1000, writePosition);
+    }
+}
@@ -0,0 +1,308 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+
+/**
+ * In-process ranking of films by rate, highest first, ties broken by the higher id
+ * (the same order as InMemoryFilmStorage.FilmComparator). Every genre, MPA rating and release year
+ * has a ranking of its own, so filtered top-N lookups read only the films of one facet.
+ * Rebuilt from storage on startup and kept current by FilmService, so top-N lookups never touch the database.
+ * A rebuild fills new rankings off to the side and publishes them with one reference swap, so readers keep
+ * the previous ones until then. Rate changes are deltas and would count twice if replayed onto rankings read
+ * after them, so the films changed while a rebuild runs are read again instead, the last of them while
+ * changes wait.
+ * A facet's ranking is dropped once its last film leaves it.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class FilmPopularityIndex {
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt((Entry e) -> e.rate).reversed()
+            .thenComparing(Comparator.comparingInt((Entry e) -> e.filmId).reversed());
+    private static final long[] NO_FACETS = new long[0];
+    private static final long YEAR = 1;
+    private static final long GENRE = 2;
+    private static final long MPA = 3;
+
+    private final FilmStorage filmStorage;
+    private final Object changedLock = new Object();
+    private volatile Rankings rankings = new Rankings();
+    // films changed while a rebuild runs, read again before its rankings are published, null otherwise
+    private Set<Integer> changed;
+
+    @PostConstruct
+    public synchronized void rebuild() {
+        synchronized (changedLock) {
+            changed = new HashSet<>();
+        }
+        Collection<FilmSummary> storedFilms;
+        Rankings built = new Rankings();
+        try {
+            storedFilms = filmStorage.getAllFilmSummaries();
+            for (FilmSummary film : storedFilms) {
+                put(built, film);
+            }
+            // changes keep coming while these are read, the last few are read while they wait
+            reread(built, takeChanged());
+            synchronized (changedLock) {
+                reread(built, changed);
+                changed = null;
+                rankings = built;
+            }
+        } catch (RuntimeException e) {
+            synchronized (changedLock) {
+                changed = null;
+            }
+            throw e;
+        }
+        log.info("Popularity index rebuilt for {} films", storedFilms.size());
+    }
+
+    private Set<Integer> takeChanged() {
+        synchronized (changedLock) {
+            Set<Integer> taken = changed;
+            changed = new HashSet<>();
+            return taken;
+        }
+    }
+
+    private void reread(Rankings built, Set<Integer> filmIds) {
+        if (filmIds.isEmpty()) {
+            return;
+        }
+        Set<Integer> deleted = new HashSet<>(filmIds);
+        for (FilmSummary film : filmStorage.getFilmSummaries(filmIds)) {
+            put(built, film);
+            deleted.remove(film.getId());
+        }
+        deleted.forEach(filmId -> remove(built, filmId));
+    }
+
+    /**
+     * Returns ids of at most {@code count} most popular films, most popular first.
+     */
+    public List<Integer> getTop(int count) {
+        Rankings current = rankings;
+        return getTop(current, current.ranking, count, NO_FACETS);
+    }
+
+    /**
+     * Returns ids of at most {@code count} most popular films having the genre, the MPA rating
+     * and the release year given, most popular first. Null filters are not applied.
+     */
+    public List<Integer> getTop(int count, Short genreId, Short mpaId, Integer year) {
+        // a year holds far fewer films than a genre or a rating, so its ranking is walked first
+        long[] wanted = new long[3];
+        int size = 0;
+        if (year != null) {
+            wanted[size++] = facet(YEAR, year);
+        }
+        if (genreId != null) {
+            wanted[size++] = facet(GENRE, genreId);
+        }
+        if (mpaId != null) {
+            wanted[size++] = facet(MPA, mpaId);
+        }
+        if (size == 0) {
+            return getTop(count);
+        }
+        Rankings current = rankings;
+        ConcurrentSkipListSet<Entry> facetRanking = current.facetRankings.get(wanted[0]);
+        if (facetRanking == null) {
+            return List.of();
+        }
+        return getTop(current, facetRanking, count, Arrays.copyOf(wanted, size));
+    }
+
+    public int getRate(int filmId) {
+        Ranked film = rankings.films.get(filmId);
+        return film == null ? 0 : film.rate;
+    }
+
+    public void put(Film film) {
+        apply(film.getId(), current -> put(current, film.getId(), film.getRate(),
+                facets(film.getGenres(), film.getMpa(), film.getReleaseDate())));
+    }
+
+    public void addToRate(int filmId, int delta) {
+        apply(filmId, current -> current.films.computeIfPresent(filmId,
+                (id, old) -> move(current, id, old, old.rate + delta, old.facets)));
+    }
+
+    public void remove(int filmId) {
+        apply(filmId, current -> remove(current, filmId));
+    }
+
+    // applies a change to the published rankings and, while a rebuild runs, marks the film to be read again
+    private void apply(int filmId, Consumer<Rankings> change) {
+        Rankings current;
+        synchronized (changedLock) {
+            if (changed != null) {
+                changed.add(filmId);
+            }
+            current = rankings;
+        }
+        change.accept(current);
+    }
+
+    private List<Integer> getTop(Rankings current, Set<Entry> source, int count, long[] wanted) {
+        List<Integer> top = new ArrayList<>(Math.min(count, current.films.size()));
+        Set<Integer> seen = new HashSet<>();
+        for (Entry entry : source) {
+            if (top.size() == count) {
+                break;
+            }
+            if (wanted.length > 0 && !hasFacets(current.films.get(entry.filmId), wanted)) {
+                continue;
+            }
+            // an entry being moved is briefly present at both its old and new position
+            if (seen.add(entry.filmId)) {
+                top.add(entry.filmId);
+            }
+        }
+        return top;
+    }
+
+    private static void put(Rankings current, FilmSummary film) {
+        put(current, film.getId(), film.getRate(), facets(film.getGenres(), film.getMpa(), film.getReleaseDate()));
+    }
+
+    private static void put(Rankings current, int filmId, int rate, long[] facets) {
+        current.films.compute(filmId, (id, old) -> move(current, id, old, rate, facets));
+    }
+
+    private static void remove(Rankings current, int filmId) {
+        current.films.computeIfPresent(filmId, (id, old) -> {
+            Entry entry = new Entry(old.rate, id);
+            current.ranking.remove(entry);
+            for (long facet : old.facets) {
+                removeFromFacet(current, facet, entry);
+            }
+            return null;
+        });
+    }
+
+    private static Ranked move(Rankings current, int filmId, Ranked old, int newRate, long[] newFacets) {
+        Entry entry = new Entry(newRate, filmId);
+        current.ranking.add(entry);
+        for (long facet : newFacets) {
+            addToFacet(current, facet, entry);
+        }
+        if (old != null) {
+            Entry oldEntry = new Entry(old.rate, filmId);
+            boolean rateChanged = old.rate != newRate;
+            if (rateChanged) {
+                current.ranking.remove(oldEntry);
+            }
+            for (long facet : old.facets) {
+                if (rateChanged || !contains(newFacets, facet)) {
+                    removeFromFacet(current, facet, oldEntry);
+                }
+            }
+        }
+        return new Ranked(newRate, newFacets);
+    }
+
+    // both run under the map's lock of the facet, so an entry is never added to a ranking that is being dropped
+    private static void addToFacet(Rankings current, long facet, Entry entry) {
+        current.facetRankings.compute(facet, (key, facetRanking) -> {
+            if (facetRanking == null) {
+                facetRanking = new ConcurrentSkipListSet<>(ORDER);
+            }
+            facetRanking.add(entry);
+            return facetRanking;
+        });
+    }
+
+    private static void removeFromFacet(Rankings current, long facet, Entry entry) {
+        current.facetRankings.computeIfPresent(facet, (key, facetRanking) -> {
+            facetRanking.remove(entry);
+            return facetRanking.isEmpty() ? null : facetRanking;
+        });
+    }
+
+    // package-private so that tests can check that emptied rankings are dropped
+    int facetCount() {
+        return rankings.facetRankings.size();
+    }
+
+    private static boolean hasFacets(Ranked film, long[] wanted) {
+        if (film == null) {
+            return false;
+        }
+        for (long facet : wanted) {
+            if (!contains(film.facets, facet)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contains(long[] facets, long facet) {
+        for (long value : facets) {
+            if (value == facet) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long[] facets(Collection<Genre> genres, MpaRating mpa, LocalDate releaseDate) {
+        long[] facets = new long[genres.size() + 2];
+        int size = 0;
+        for (Genre genre : genres) {
+            facets[size++] = facet(GENRE, genre.getId());
+        }
+        if (mpa != null) {
+            facets[size++] = facet(MPA, mpa.getId());
+        }
+        if (releaseDate != null) {
+            facets[size++] = facet(YEAR, releaseDate.getYear());
+        }
+        return Arrays.copyOf(facets, size);
+    }
+
+    private static long facet(long kind, int value) {
+        return kind << 32 | value & 0xFFFFFFFFL;
+    }
+
+    private static final class Rankings {
+        private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>(ORDER);
+        private final Map<Long, ConcurrentSkipListSet<Entry>> facetRankings = new ConcurrentHashMap<>();
+        private final Map<Integer, Ranked> films = new ConcurrentHashMap<>();
+    }
+
+    private static final class Ranked {
+        private final int rate;
+        private final long[] facets;
+
+        private Ranked(int rate, long[] facets) {
+            this.rate = rate;
+            this.facets = facets;
+        }
+    }
+
+    private static final class Entry {
+        private final int rate;
+        private final int filmId;
+
+        private Entry(int rate, int filmId) {
+            this.rate = rate;
+            this.filmId = filmId;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process inverted index over film names and descriptions: for every word, the ascending ids of the films
+ * that contain it. Words are runs of letters and digits in any script, lower-cased, with "ё" folded into "е".
+ * Posting arrays are never modified in place and changes are serialized, so searches need no locking.
+ * Searches merge the sorted postings of the query words and keep only the best {@code count} films on the way,
+ * so a query of common words costs a pass over their postings, not a copy and sort of them.
+ * Rebuilt from storage on startup and kept current by FilmService; rates come from FilmPopularityIndex.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class FilmSearchIndex {
+    public static final int MAX_QUERY_WORDS = 16;
+    private static final int[] NO_FILMS = new int[0];
+    // rates are packed into 26 bits of the ranking key, higher ones rank alike
+    private static final int MAX_RANKED_RATE = (1 << 26) - 1;
+
+    private final FilmStorage filmStorage;
+    private final FilmPopularityIndex popularityIndex;
+    private final Map<String, int[]> postings = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<String>> filmWords = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void rebuild() {
+        List<FilmSummary> films = new ArrayList<>(filmStorage.getAllFilmSummaries());
+        films.sort(Comparator.comparingInt(FilmSummary::getId));
+        // films are added in ascending id order, so every posting list comes out sorted
+        Map<String, PostingBuilder> builders = new HashMap<>();
+        Map<Integer, Set<String>> words = new HashMap<>();
+        for (FilmSummary film : films) {
+            Set<String> filmWordSet = words(film.getName(), film.getDescription());
+            words.put(film.getId(), filmWordSet);
+            for (String word : filmWordSet) {
+                builders.computeIfAbsent(word, key -> new PostingBuilder()).add(film.getId());
+            }
+        }
+        synchronized (this) {
+            postings.clear();
+            builders.forEach((word, builder) -> postings.put(word, builder.toArray()));
+            filmWords.clear();
+            filmWords.putAll(words);
+        }
+        log.info("Search index rebuilt for {} films and {} words", films.size(), builders.size());
+    }
+
+    /**
+     * Returns ids of at most {@code count} films containing any word of the query: films matching more
+     * distinct words first, then films with a higher rate, then films with a higher id.
+     */
+    public List<Integer> search(String query, int count) {
+        Set<String> queryWords = words(query);
+        if (queryWords.isEmpty()) {
+            throw new IllegalArgumentException("Search query has no words");
+        }
+        if (queryWords.size() > MAX_QUERY_WORDS) {
+            throw new IllegalArgumentException("Too many words, at most " + MAX_QUERY_WORDS + " are allowed");
+        }
+        int[][] lists = new int[queryWords.size()][];
+        int total = 0;
+        int i = 0;
+        for (String word : queryWords) {
+            lists[i] = postings.getOrDefault(word, NO_FILMS);
+            total += lists[i++].length;
+        }
+
+        // the posting lists are sorted, so they are merged in place; only the best keys seen so far are kept,
+        // in a min-heap of word matches, rate and id packed into one key, so the largest keys are the best films
+        if (count <= 0 || total == 0) {
+            return List.of();
+        }
+        long[] best = new long[Math.min(count, total)];
+        int bestSize = 0;
+        int[] cursors = new int[lists.length];
+        while (true) {
+            int filmId = -1;
+            for (int j = 0; j < lists.length; j++) {
+                if (cursors[j] < lists[j].length && (filmId < 0 || lists[j][cursors[j]] < filmId)) {
+                    filmId = lists[j][cursors[j]];
+                }
+            }
+            if (filmId < 0) {
+                break;
+            }
+            int matched = 0;
+            for (int j = 0; j < lists.length; j++) {
+                if (cursors[j] < lists[j].length && lists[j][cursors[j]] == filmId) {
+                    cursors[j]++;
+                    matched++;
+                }
+            }
+            // a film that cannot beat the worst kept one even at the highest rate needs no rate lookup
+            if (bestSize == best.length && rankKey(matched, MAX_RANKED_RATE, filmId) <= best[0]) {
+                continue;
+            }
+            long key = rankKey(matched, popularityIndex.getRate(filmId), filmId);
+            if (bestSize < best.length) {
+                best[bestSize] = key;
+                siftUp(best, bestSize++);
+            } else if (key > best[0]) {
+                best[0] = key;
+                siftDown(best, bestSize);
+            }
+        }
+        Arrays.sort(best, 0, bestSize);
+        List<Integer> found = new ArrayList<>(bestSize);
+        for (int j = bestSize - 1; j >= 0; j--) {
+            found.add((int) best[j]);
+        }
+        return found;
+    }
+
+    private static long rankKey(int matched, int rate, int filmId) {
+        return (long) matched << 58 | (long) Math.max(0, Math.min(rate, MAX_RANKED_RATE)) << 32 | filmId;
+    }
+
+    private static void siftUp(long[] heap, int at) {
+        while (at > 0) {
+            int parent = (at - 1) / 2;
+            if (heap[parent] <= heap[at]) {
+                return;
+            }
+            swap(heap, parent, at);
+            at = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        int at = 0;
+        while (true) {
+            int smallest = at;
+            for (int child = 2 * at + 1; child <= 2 * at + 2 && child < size; child++) {
+                if (heap[child] < heap[smallest]) {
+                    smallest = child;
+                }
+            }
+            if (smallest == at) {
+                return;
+            }
+            swap(heap, smallest, at);
+            at = smallest;
+        }
+    }
+
+    private static void swap(long[] heap, int i, int j) {
+        long value = heap[i];
+        heap[i] = heap[j];
+        heap[j] = value;
+    }
+
+    public synchronized void put(int filmId, String name, String description) {
+        Set<String> newWords = words(name, description);
+        Set<String> oldWords = filmWords.getOrDefault(filmId, Set.of());
+        for (String word : oldWords) {
+            if (!newWords.contains(word)) {
+                postings.computeIfPresent(word, (key, ids) -> {
+                    int[] remaining = without(ids, filmId);
+                    return remaining.length == 0 ? null : remaining;
+                });
+            }
+        }
+        for (String word : newWords) {
+            if (!oldWords.contains(word)) {
+                postings.compute(word, (key, ids) -> with(ids == null ? NO_FILMS : ids, filmId));
+            }
+        }
+        filmWords.put(filmId, newWords);
+    }
+
+    public synchronized void remove(int filmId) {
+        put(filmId, null, null);
+        filmWords.remove(filmId);
+    }
+
+    /**
+     * Splits the texts into distinct words, in order of first appearance.
+     */
+    static Set<String> words(String... texts) {
+        Set<String> words = new LinkedHashSet<>();
+        StringBuilder word = new StringBuilder();
+        for (String text : texts) {
+            if (text == null) {
+                continue;
+            }
+            for (int i = 0; i <= text.length(); i++) {
+                char c = i < text.length() ? text.charAt(i) : ' ';
+                if (Character.isLetterOrDigit(c)) {
+                    char lower = Character.toLowerCase(c);
+                    word.append(lower == 'ё' ? 'е' : lower);
+                } else if (word.length() > 0) {
+                    words.add(word.toString());
+                    word.setLength(0);
+                }
+            }
+        }
+        return words;
+    }
+
+    private static int[] with(int[] ids, int value) {
+        int i = Arrays.binarySearch(ids, value);
+        if (i >= 0) {
+            return ids;
+        }
+        int at = -i - 1;
+        int[] copy = new int[ids.length + 1];
+        System.arraycopy(ids, 0, copy, 0, at);
+        copy[at] = value;
+        System.arraycopy(ids, at, copy, at + 1, ids.length - at);
+        return copy;
+    }
+
+    private static int[] without(int[] ids, int value) {
+        int at = Arrays.binarySearch(ids, value);
+        if (at < 0) {
+            return ids;
+        }
+        int[] copy = new int[ids.length - 1];
+        System.arraycopy(ids, 0, copy, 0, at);
+        System.arraycopy(ids, at + 1, copy, at, ids.length - at - 1);
+        return copy;
+    }
+
+    private static final class PostingBuilder {
+        private int[] ids = new int[4];
+        private int size;
+
+        private void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
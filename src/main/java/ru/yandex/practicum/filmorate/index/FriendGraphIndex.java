@@ -0,0 +1,415 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.EntityNotFoundException;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process friend graph mirroring the one-way friendships of user_friends. The graph loaded from storage
+ * is kept in compressed sparse row form: ascending user ids, their ascending friend ids in one shared array,
+ * and an offset per user. Users changed since then are kept as separate arrays in an overlay, which is folded
+ * into a new base once it outgrows a fraction of it. The reverse edges, the users who have a user as a friend,
+ * are kept the same way for the writers, so deleting a user only touches the lists it appears in.
+ * Changes are serialized and readers take no locks: the base arrays and every overlay array are never modified
+ * in place, but the overlay is a live ConcurrentHashMap, so a read may see some of the users a concurrent change
+ * touches before the others. Rebuilt from storage on startup and kept current by UserService.
+ */
+@Component
+@Slf4j
+public class FriendGraphIndex {
+    private static final long[] NO_FRIENDS = new long[0];
+    // marks a user of the base as deleted in the overlay, compared by identity
+    private static final long[] DELETED = new long[0];
+    // above this size ratio probing the larger array by binary search beats a linear merge
+    private static final int GALLOP_RATIO = 16;
+    // the overlay is folded into the base once it has more users than this plus an eighth of the base
+    private static final int MIN_OVERLAY_USERS = 1024;
+    private static final int OVERLAY_FRACTION = 8;
+
+    private final UserStorage userStorage;
+    private final int maxFanout;
+    private volatile Graph graph = Graph.of(Map.of());
+    // reverse edges, only used by the writers
+    private Graph followers = Graph.of(Map.of());
+
+    public FriendGraphIndex(UserStorage userStorage,
+                            @Value("${filmorate.friends.suggestions.max-fanout:200}") int maxFanout) {
+        if (maxFanout <= 0) {
+            throw new IllegalArgumentException("Suggestion fanout must be positive");
+        }
+        this.userStorage = userStorage;
+        this.maxFanout = maxFanout;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        Map<Long, long[]> storedFriends = userStorage.getFriendIds();
+        Graph built = Graph.of(storedFriends);
+        Graph builtFollowers = Graph.of(reverse(storedFriends));
+        synchronized (this) {
+            graph = built;
+            followers = builtFollowers;
+        }
+        log.info("Friend graph index rebuilt for {} users", storedFriends.size());
+    }
+
+    /**
+     * Returns ascending ids of users who are friends of both users.
+     */
+    public long[] getCommonFriends(long user1Id, long user2Id) {
+        Graph current = graph;
+        Adjacency friends1 = current.friendsOf(user1Id);
+        Adjacency friends2 = current.friendsOf(user2Id);
+        if (friends1 == null || friends2 == null) {
+            throw new EntityNotFoundException("User(s) not found");
+        }
+        return intersect(friends1, friends2);
+    }
+
+    /**
+     * Returns ids of at most {@code count} friends of the user's friends who are not the user's friends yet,
+     * most mutual friends first, ties broken by the lower id. Each hop follows at most {@code max-fanout}
+     * friends, spread evenly over the friend list, so users with thousands of friends cost no more than others.
+     */
+    public long[] getSuggestions(long userId, int count) {
+        Graph current = graph;
+        Adjacency friends = current.friendsOf(userId);
+        if (friends == null) {
+            throw new EntityNotFoundException("User not found");
+        }
+        int firstHop = Math.min(friends.size(), maxFanout);
+        Adjacency[] friendsOfFriends = new Adjacency[firstHop];
+        int candidateCount = 0;
+        for (int i = 0; i < firstHop; i++) {
+            friendsOfFriends[i] = current.friendsOf(friends.get(sample(i, friends.size(), firstHop)));
+            if (friendsOfFriends[i] != null) {
+                candidateCount += Math.min(friendsOfFriends[i].size(), maxFanout);
+            }
+        }
+        long[] candidates = new long[candidateCount];
+        int size = 0;
+        for (Adjacency friendFriends : friendsOfFriends) {
+            if (friendFriends == null) {
+                continue;
+            }
+            int secondHop = Math.min(friendFriends.size(), maxFanout);
+            for (int j = 0; j < secondHop; j++) {
+                long candidate = friendFriends.get(sample(j, friendFriends.size(), secondHop));
+                if (candidate != userId && !friends.contains(candidate)) {
+                    candidates[size++] = candidate;
+                }
+            }
+        }
+        Arrays.sort(candidates, 0, size);
+
+        // mutual friend counts are packed in front of the inverted positions of the ascending distinct ids,
+        // so the largest keys are the best suggestions
+        long[] distinct = new long[size];
+        long[] keys = new long[size];
+        int distinctSize = 0;
+        for (int i = 0; i < size; ) {
+            long candidate = candidates[i];
+            int mutual = 0;
+            for (; i < size && candidates[i] == candidate; i++) {
+                mutual++;
+            }
+            keys[distinctSize] = (long) mutual << 32 | (Integer.MAX_VALUE - distinctSize);
+            distinct[distinctSize++] = candidate;
+        }
+        Arrays.sort(keys, 0, distinctSize);
+        long[] suggestions = new long[Math.min(count, distinctSize)];
+        for (int i = 0; i < suggestions.length; i++) {
+            suggestions[i] = distinct[Integer.MAX_VALUE - (int) keys[distinctSize - 1 - i]];
+        }
+        return suggestions;
+    }
+
+    public synchronized void addUser(long userId) {
+        if (graph.friendsOf(userId) == null) {
+            graph.overlay.put(userId, NO_FRIENDS);
+            if (followers.friendsOf(userId) == null) {
+                followers.overlay.put(userId, NO_FRIENDS);
+            }
+            compactIfNeeded();
+        }
+    }
+
+    public synchronized void removeUser(long userId) {
+        Adjacency friends = graph.friendsOf(userId);
+        if (friends == null) {
+            return;
+        }
+        Adjacency userFollowers = followers.friendsOf(userId);
+        for (int i = 0; i < userFollowers.size(); i++) {
+            unlink(graph, userFollowers.get(i), userId);
+        }
+        for (int i = 0; i < friends.size(); i++) {
+            unlink(followers, friends.get(i), userId);
+        }
+        graph.delete(userId);
+        followers.delete(userId);
+        compactIfNeeded();
+    }
+
+    public synchronized void addFriend(long userId, long friendId) {
+        Adjacency friends = graph.friendsOf(userId);
+        if (friends != null && !friends.contains(friendId)) {
+            graph.overlay.put(userId, with(friends, friendId));
+            Adjacency friendFollowers = followers.friendsOf(friendId);
+            followers.overlay.put(friendId, friendFollowers == null
+                    ? new long[]{userId} : with(friendFollowers, userId));
+            compactIfNeeded();
+        }
+    }
+
+    public synchronized void removeFriend(long userId, long friendId) {
+        Adjacency friends = graph.friendsOf(userId);
+        if (friends != null && friends.contains(friendId)) {
+            graph.overlay.put(userId, without(friends, friendId));
+            unlink(followers, friendId, userId);
+            compactIfNeeded();
+        }
+    }
+
+    private static void unlink(Graph from, long userId, long linkedId) {
+        Adjacency links = from.friendsOf(userId);
+        if (links != null && links.contains(linkedId)) {
+            from.overlay.put(userId, without(links, linkedId));
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (graph.needsCompaction()) {
+            graph = graph.compacted();
+        }
+        if (followers.needsCompaction()) {
+            followers = followers.compacted();
+        }
+    }
+
+    private static Map<Long, long[]> reverse(Map<Long, long[]> friends) {
+        Map<Long, Integer> counts = new HashMap<>();
+        friends.forEach((userId, ids) -> {
+            counts.putIfAbsent(userId, 0);
+            for (long id : ids) {
+                counts.merge(id, 1, Integer::sum);
+            }
+        });
+        Map<Long, long[]> reversed = new HashMap<>();
+        counts.forEach((userId, count) -> reversed.put(userId, new long[count]));
+        friends.forEach((userId, ids) -> {
+            for (long id : ids) {
+                long[] linked = reversed.get(id);
+                // filled from the end, the count left over is the next free position
+                int free = counts.merge(id, -1, Integer::sum);
+                linked[free] = userId;
+            }
+        });
+        reversed.values().forEach(Arrays::sort);
+        return reversed;
+    }
+
+    static long[] intersect(long[] a, long[] b) {
+        return intersect(new Adjacency(a), new Adjacency(b));
+    }
+
+    private static long[] intersect(Adjacency a, Adjacency b) {
+        if (a.size() > b.size()) {
+            Adjacency swap = a;
+            a = b;
+            b = swap;
+        }
+        long[] common = new long[a.size()];
+        int size = 0;
+        if (a.size() * GALLOP_RATIO < b.size()) {
+            int from = b.from;
+            for (int k = a.from; k < a.to; k++) {
+                long value = a.ids[k];
+                int i = Arrays.binarySearch(b.ids, from, b.to, value);
+                if (i >= 0) {
+                    common[size++] = value;
+                    from = i + 1;
+                } else {
+                    from = -i - 1;
+                }
+            }
+        } else {
+            int i = a.from;
+            int j = b.from;
+            while (i < a.to && j < b.to) {
+                if (a.ids[i] < b.ids[j]) {
+                    i++;
+                } else if (a.ids[i] > b.ids[j]) {
+                    j++;
+                } else {
+                    common[size++] = a.ids[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return Arrays.copyOf(common, size);
+    }
+
+    private static int sample(int i, int size, int samples) {
+        return (int) ((long) i * size / samples);
+    }
+
+    private static long[] with(Adjacency friends, long value) {
+        int at = -Arrays.binarySearch(friends.ids, friends.from, friends.to, value) - 1 - friends.from;
+        long[] copy = new long[friends.size() + 1];
+        System.arraycopy(friends.ids, friends.from, copy, 0, at);
+        copy[at] = value;
+        System.arraycopy(friends.ids, friends.from + at, copy, at + 1, friends.size() - at);
+        return copy;
+    }
+
+    private static long[] without(Adjacency friends, long value) {
+        int found = Arrays.binarySearch(friends.ids, friends.from, friends.to, value);
+        if (found < 0) {
+            return friends.from == 0 && friends.to == friends.ids.length
+                    ? friends.ids : Arrays.copyOfRange(friends.ids, friends.from, friends.to);
+        }
+        int at = found - friends.from;
+        long[] copy = new long[friends.size() - 1];
+        System.arraycopy(friends.ids, friends.from, copy, 0, at);
+        System.arraycopy(friends.ids, found + 1, copy, at, friends.size() - at - 1);
+        return copy;
+    }
+
+    /**
+     * Ascending friend ids of one user: a range of the base array or a whole overlay array.
+     */
+    private static final class Adjacency {
+        private final long[] ids;
+        private final int from;
+        private final int to;
+
+        private Adjacency(long[] ids) {
+            this(ids, 0, ids.length);
+        }
+
+        private Adjacency(long[] ids, int from, int to) {
+            this.ids = ids;
+            this.from = from;
+            this.to = to;
+        }
+
+        private int size() {
+            return to - from;
+        }
+
+        private long get(int i) {
+            return ids[from + i];
+        }
+
+        private boolean contains(long id) {
+            return Arrays.binarySearch(ids, from, to, id) >= 0;
+        }
+    }
+
+    private static final class Graph {
+        private final long[] userIds;
+        private final int[] offsets;
+        private final long[] friendIds;
+        private final Map<Long, long[]> overlay = new ConcurrentHashMap<>();
+
+        private Graph(long[] userIds, int[] offsets, long[] friendIds) {
+            this.userIds = userIds;
+            this.offsets = offsets;
+            this.friendIds = friendIds;
+        }
+
+        static Graph of(Map<Long, long[]> friends) {
+            long[] userIds = friends.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+            int[] offsets = new int[userIds.length + 1];
+            for (int i = 0; i < userIds.length; i++) {
+                offsets[i + 1] = offsets[i] + friends.get(userIds[i]).length;
+            }
+            long[] friendIds = new long[offsets[userIds.length]];
+            for (int i = 0; i < userIds.length; i++) {
+                long[] ids = friends.get(userIds[i]);
+                System.arraycopy(ids, 0, friendIds, offsets[i], ids.length);
+            }
+            return new Graph(userIds, offsets, friendIds);
+        }
+
+        private Adjacency friendsOf(long userId) {
+            long[] changed = overlay.get(userId);
+            if (changed == DELETED) {
+                return null;
+            }
+            return changed != null ? new Adjacency(changed) : baseFriendsOf(userId);
+        }
+
+        private void delete(long userId) {
+            if (baseFriendsOf(userId) != null) {
+                overlay.put(userId, DELETED);
+            } else {
+                overlay.remove(userId);
+            }
+        }
+
+        private boolean needsCompaction() {
+            return overlay.size() > MIN_OVERLAY_USERS + userIds.length / OVERLAY_FRACTION;
+        }
+
+        private Adjacency baseFriendsOf(long userId) {
+            int i = Arrays.binarySearch(userIds, userId);
+            return i < 0 ? null : new Adjacency(friendIds, offsets[i], offsets[i + 1]);
+        }
+
+        /**
+         * Merges the overlay into a new base with an empty overlay; the caller keeps the graph from changing.
+         */
+        private Graph compacted() {
+            long[] changedIds = overlay.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+            int userCount = userIds.length;
+            long friendCount = friendIds.length;
+            for (long id : changedIds) {
+                Adjacency base = baseFriendsOf(id);
+                long[] changed = overlay.get(id);
+                userCount += (base == null ? 1 : 0) - (changed == DELETED ? 1 : 0);
+                friendCount += changed.length - (base == null ? 0 : base.size());
+            }
+            long[] newUserIds = new long[userCount];
+            int[] newOffsets = new int[userCount + 1];
+            long[] newFriendIds = new long[Math.toIntExact(friendCount)];
+            int user = 0;
+            int i = 0;
+            int j = 0;
+            while (i < userIds.length || j < changedIds.length) {
+                long id;
+                Adjacency friends;
+                if (j == changedIds.length || i < userIds.length && userIds[i] < changedIds[j]) {
+                    id = userIds[i];
+                    friends = new Adjacency(friendIds, offsets[i], offsets[i + 1]);
+                    i++;
+                } else {
+                    id = changedIds[j++];
+                    if (i < userIds.length && userIds[i] == id) {
+                        i++;
+                    }
+                    long[] changed = overlay.get(id);
+                    if (changed == DELETED) {
+                        continue;
+                    }
+                    friends = new Adjacency(changed);
+                }
+                newUserIds[user] = id;
+                System.arraycopy(friends.ids, friends.from, newFriendIds, newOffsets[user], friends.size());
+                newOffsets[user + 1] = newOffsets[user] + friends.size();
+                user++;
+            }
+            return new Graph(newUserIds, newOffsets, newFriendIds);
+        }
+    }
+}
@@ -0,0 +1,477 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Item-to-item recommendations: for every film, the films most often liked by the same users (co-likes),
+ * at most {@code filmorate.recommendations.neighbours} of them. A user is recommended the neighbours of
+ * the films they like, scored by the summed co-like counts, without the films they already like.
+ * Rebuilt from storage on startup and every {@code rebuild-interval-ms}, the co-like counts computed in
+ * parallel on the common fork/join pool, and kept current in between by FilmService and UserService.
+ * Scheduled rebuilds run on a thread of their own, so that a long one never holds up the scheduling pool
+ * shared by the like flushes, the replica sync and the reference cache refresh.
+ * A rebuild fills a new snapshot off to the side and publishes it with one reference swap, so readers
+ * keep the previous snapshot until then; changes that arrive while it runs are replayed onto the new one.
+ * Incremental updates are exact until a film's neighbour list is full; after that, films that would
+ * newly enter it wait for the next rebuild.
+ */
+@Component
+@Slf4j
+public class RecommendationIndex {
+    private static final int[] NO_FILMS = new int[0];
+    // films per fork/join leaf task, each leaf reuses one counter array for all of them
+    private static final int LEAF_FILMS = 256;
+
+    private final FilmStorage filmStorage;
+    private final int maxNeighbours;
+    private final long rebuildIntervalMs;
+    private ScheduledExecutorService rebuildExecutor;
+    private final Object journalLock = new Object();
+    private volatile Snapshot snapshot = new Snapshot();
+    // changes made while a rebuild runs, replayed onto its snapshot before it is published, null otherwise
+    private List<Consumer<Snapshot>> journal;
+
+    public RecommendationIndex(FilmStorage filmStorage,
+                               @Value("${filmorate.recommendations.neighbours:20}") int maxNeighbours,
+                               @Value("${filmorate.recommendations.rebuild-interval-ms:600000}")
+                               long rebuildIntervalMs) {
+        if (maxNeighbours <= 0) {
+            throw new IllegalArgumentException("Neighbours per film must be positive");
+        }
+        if (rebuildIntervalMs <= 0) {
+            throw new IllegalArgumentException("Rebuild interval must be positive");
+        }
+        this.filmStorage = filmStorage;
+        this.maxNeighbours = maxNeighbours;
+        this.rebuildIntervalMs = rebuildIntervalMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        rebuild();
+        rebuildExecutor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "recommendation-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        rebuildExecutor.scheduleWithFixedDelay(this::scheduledRebuild, rebuildIntervalMs, rebuildIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (rebuildExecutor != null) {
+            rebuildExecutor.shutdownNow();
+        }
+    }
+
+    // a task that throws is never run again, so failures are only logged, as Spring's scheduler does
+    private void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.error("Recommendation index rebuild failed, the previous one is kept", e);
+        }
+    }
+
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        synchronized (journalLock) {
+            journal = new ArrayList<>();
+        }
+        Map<Long, int[]> storedLikes;
+        Snapshot built;
+        try {
+            storedLikes = filmStorage.getLikedFilmIds();
+            built = build(storedLikes);
+        } catch (RuntimeException e) {
+            synchronized (journalLock) {
+                journal = null;
+            }
+            throw e;
+        }
+        synchronized (journalLock) {
+            // every change is conditional on the state it finds, so replaying one already in storage is a no-op
+            journal.forEach(change -> change.accept(built));
+            journal = null;
+            snapshot = built;
+        }
+        log.info("Recommendation index rebuilt for {} films and {} users in {} ms", built.neighbours.size(),
+                storedLikes.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private Snapshot build(Map<Long, int[]> storedLikes) {
+        int[] filmIds = storedLikes.values().stream().flatMapToInt(Arrays::stream).distinct().sorted().toArray();
+
+        // users and films are renumbered densely, so the counting below works on plain arrays
+        int[][] userFilms = new int[storedLikes.size()][];
+        int[] likerCounts = new int[filmIds.length];
+        int user = 0;
+        for (int[] ids : storedLikes.values()) {
+            int[] films = new int[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                films[i] = Arrays.binarySearch(filmIds, ids[i]);
+                likerCounts[films[i]]++;
+            }
+            userFilms[user++] = films;
+        }
+        int[][] filmUsers = new int[filmIds.length][];
+        for (int film = 0; film < filmIds.length; film++) {
+            filmUsers[film] = new int[likerCounts[film]];
+            likerCounts[film] = 0;
+        }
+        for (user = 0; user < userFilms.length; user++) {
+            for (int film : userFilms[user]) {
+                filmUsers[film][likerCounts[film]++] = user;
+            }
+        }
+
+        Neighbours[] computed = new Neighbours[filmIds.length];
+        ForkJoinPool.commonPool().invoke(new CoLikeTask(filmIds, filmUsers, userFilms, computed, 0, filmIds.length));
+        Snapshot built = new Snapshot();
+        built.likedFilms.putAll(storedLikes);
+        for (int film = 0; film < filmIds.length; film++) {
+            if (computed[film].size() > 0) {
+                built.neighbours.put(filmIds[film], computed[film]);
+            }
+        }
+        return built;
+    }
+
+    /**
+     * Returns ids of at most {@code count} films recommended to the user, best first, ties broken by the lower id.
+     */
+    public List<Integer> recommend(long userId, int count) {
+        Snapshot current = snapshot;
+        int[] liked = current.likedFilms.getOrDefault(userId, NO_FILMS);
+        // candidates as (film id, co-like count) pairs packed into longs, so sorting groups them by film
+        long[] candidates = new long[liked.length * maxNeighbours];
+        int size = 0;
+        for (int filmId : liked) {
+            Neighbours filmNeighbours = current.neighbours.get(filmId);
+            if (filmNeighbours == null) {
+                continue;
+            }
+            for (int i = 0; i < filmNeighbours.size(); i++) {
+                int candidate = filmNeighbours.filmIds[i];
+                if (Arrays.binarySearch(liked, candidate) < 0) {
+                    candidates[size++] = (long) candidate << 32 | filmNeighbours.counts[i];
+                }
+            }
+        }
+        Arrays.sort(candidates, 0, size);
+
+        // scores are packed in front of the inverted film ids, so the largest keys are the best films
+        long[] scored = new long[size];
+        int scoredSize = 0;
+        for (int i = 0; i < size; ) {
+            int filmId = (int) (candidates[i] >>> 32);
+            long score = 0;
+            for (; i < size && (int) (candidates[i] >>> 32) == filmId; i++) {
+                score += (int) candidates[i];
+            }
+            scored[scoredSize++] = Math.min(score, Integer.MAX_VALUE) << 32 | (Integer.MAX_VALUE - filmId);
+        }
+        Arrays.sort(scored, 0, scoredSize);
+        List<Integer> recommended = new ArrayList<>(Math.min(count, scoredSize));
+        for (int i = scoredSize - 1; i >= 0 && recommended.size() < count; i--) {
+            recommended.add(Integer.MAX_VALUE - (int) scored[i]);
+        }
+        return recommended;
+    }
+
+    public void addLike(int filmId, long userId) {
+        apply(current -> addLike(current, filmId, userId));
+    }
+
+    public void removeLike(int filmId, long userId) {
+        apply(current -> removeLike(current, filmId, userId));
+    }
+
+    public void removeFilm(int filmId) {
+        apply(current -> removeFilm(current, filmId));
+    }
+
+    public void removeUser(long userId) {
+        apply(current -> removeUser(current, userId));
+    }
+
+    // applies a change to the published snapshot and, while a rebuild runs, records it for the new one
+    private void apply(Consumer<Snapshot> change) {
+        Snapshot current;
+        synchronized (journalLock) {
+            if (journal != null) {
+                journal.add(change);
+            }
+            current = snapshot;
+        }
+        change.accept(current);
+    }
+
+    private void addLike(Snapshot current, int filmId, long userId) {
+        int[][] before = new int[1][];
+        current.likedFilms.compute(userId, (id, ids) -> {
+            before[0] = ids == null ? NO_FILMS : ids;
+            return with(before[0], filmId);
+        });
+        if (Arrays.binarySearch(before[0], filmId) < 0) {
+            for (int otherId : before[0]) {
+                bump(current, filmId, otherId, 1);
+                bump(current, otherId, filmId, 1);
+            }
+        }
+    }
+
+    private void removeLike(Snapshot current, int filmId, long userId) {
+        int[][] before = new int[1][];
+        current.likedFilms.computeIfPresent(userId, (id, ids) -> {
+            before[0] = ids;
+            int[] after = without(ids, filmId);
+            return after.length == 0 ? null : after;
+        });
+        if (before[0] != null && Arrays.binarySearch(before[0], filmId) >= 0) {
+            for (int otherId : before[0]) {
+                if (otherId != filmId) {
+                    bump(current, filmId, otherId, -1);
+                    bump(current, otherId, filmId, -1);
+                }
+            }
+        }
+    }
+
+    private void removeFilm(Snapshot current, int filmId) {
+        current.neighbours.remove(filmId);
+        // there is no reverse adjacency, deleting a film is rare enough to scan every list
+        current.neighbours.replaceAll((id, filmNeighbours) -> filmNeighbours.without(filmId));
+        current.likedFilms.replaceAll((id, ids) -> without(ids, filmId));
+    }
+
+    private void removeUser(Snapshot current, long userId) {
+        int[] liked = current.likedFilms.remove(userId);
+        if (liked == null) {
+            return;
+        }
+        for (int filmId : liked) {
+            for (int otherId : liked) {
+                if (otherId != filmId) {
+                    bump(current, filmId, otherId, -1);
+                }
+            }
+        }
+    }
+
+    private void bump(Snapshot current, int filmId, int otherId, int delta) {
+        current.neighbours.compute(filmId, (id, filmNeighbours) -> {
+            Neighbours bumped = (filmNeighbours == null ? Neighbours.NONE : filmNeighbours)
+                    .bumped(otherId, delta, maxNeighbours);
+            return bumped.size() == 0 ? null : bumped;
+        });
+    }
+
+    private static int[] with(int[] ids, int value) {
+        int i = Arrays.binarySearch(ids, value);
+        if (i >= 0) {
+            return ids;
+        }
+        int at = -i - 1;
+        int[] copy = new int[ids.length + 1];
+        System.arraycopy(ids, 0, copy, 0, at);
+        copy[at] = value;
+        System.arraycopy(ids, at, copy, at + 1, ids.length - at);
+        return copy;
+    }
+
+    private static int[] without(int[] ids, int value) {
+        int at = Arrays.binarySearch(ids, value);
+        if (at < 0) {
+            return ids;
+        }
+        int[] copy = new int[ids.length - 1];
+        System.arraycopy(ids, 0, copy, 0, at);
+        System.arraycopy(ids, at + 1, copy, at, ids.length - at - 1);
+        return copy;
+    }
+
+    /**
+     * Counts co-likes of the films in [from, to) by walking each film's likers and their liked films.
+     */
+    private final class CoLikeTask extends RecursiveAction {
+        private final int[] filmIds;
+        private final int[][] filmUsers;
+        private final int[][] userFilms;
+        private final Neighbours[] result;
+        private final int from;
+        private final int to;
+
+        private CoLikeTask(int[] filmIds, int[][] filmUsers, int[][] userFilms, Neighbours[] result,
+                           int from, int to) {
+            this.filmIds = filmIds;
+            this.filmUsers = filmUsers;
+            this.userFilms = userFilms;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_FILMS) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new CoLikeTask(filmIds, filmUsers, userFilms, result, from, middle),
+                        new CoLikeTask(filmIds, filmUsers, userFilms, result, middle, to));
+                return;
+            }
+            int[] counts = new int[filmIds.length];
+            int[] touched = new int[filmIds.length];
+            for (int film = from; film < to; film++) {
+                int size = 0;
+                for (int user : filmUsers[film]) {
+                    for (int other : userFilms[user]) {
+                        if (other != film && counts[other]++ == 0) {
+                            touched[size++] = other;
+                        }
+                    }
+                }
+                result[film] = Neighbours.top(filmIds, counts, touched, size, maxNeighbours);
+                for (int i = 0; i < size; i++) {
+                    counts[touched[i]] = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * The films every user likes and the neighbours of every film. Published whole by a rebuild,
+     * then changed in place by the incremental updates.
+     */
+    private static final class Snapshot {
+        private final Map<Long, int[]> likedFilms = new ConcurrentHashMap<>();
+        private final Map<Integer, Neighbours> neighbours = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Neighbour film ids with their co-like counts, highest count first, ties broken by the lower id.
+     * Never modified in place, a change returns a new copy, so readers need no locking.
+     */
+    static final class Neighbours {
+        static final Neighbours NONE = new Neighbours(NO_FILMS, NO_FILMS);
+
+        private final int[] filmIds;
+        private final int[] counts;
+
+        private Neighbours(int[] filmIds, int[] counts) {
+            this.filmIds = filmIds;
+            this.counts = counts;
+        }
+
+        static Neighbours top(int[] filmIds, int[] counts, int[] candidates, int size, int max) {
+            // counts are packed in front of the inverted dense indices, so the largest keys come first
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = (long) counts[candidates[i]] << 32 | (Integer.MAX_VALUE - candidates[i]);
+            }
+            Arrays.sort(keys);
+            int length = Math.min(size, max);
+            int[] topIds = new int[length];
+            int[] topCounts = new int[length];
+            for (int i = 0; i < length; i++) {
+                long key = keys[size - 1 - i];
+                topIds[i] = filmIds[Integer.MAX_VALUE - (int) key];
+                topCounts[i] = (int) (key >>> 32);
+            }
+            return new Neighbours(topIds, topCounts);
+        }
+
+        int size() {
+            return filmIds.length;
+        }
+
+        Neighbours bumped(int filmId, int delta, int max) {
+            int at = indexOf(filmId);
+            if (at < 0) {
+                if (delta <= 0 || filmIds.length >= max) {
+                    return this;
+                }
+                int[] ids = Arrays.copyOf(filmIds, filmIds.length + 1);
+                int[] newCounts = Arrays.copyOf(counts, counts.length + 1);
+                ids[filmIds.length] = filmId;
+                newCounts[filmIds.length] = delta;
+                return settled(ids, newCounts, filmIds.length);
+            }
+            if (counts[at] + delta <= 0) {
+                return removedAt(at);
+            }
+            int[] ids = filmIds.clone();
+            int[] newCounts = counts.clone();
+            newCounts[at] += delta;
+            return settled(ids, newCounts, at);
+        }
+
+        Neighbours without(int filmId) {
+            int at = indexOf(filmId);
+            return at < 0 ? this : removedAt(at);
+        }
+
+        private Neighbours removedAt(int at) {
+            int[] ids = new int[filmIds.length - 1];
+            int[] newCounts = new int[counts.length - 1];
+            System.arraycopy(filmIds, 0, ids, 0, at);
+            System.arraycopy(filmIds, at + 1, ids, at, ids.length - at);
+            System.arraycopy(counts, 0, newCounts, 0, at);
+            System.arraycopy(counts, at + 1, newCounts, at, newCounts.length - at);
+            return new Neighbours(ids, newCounts);
+        }
+
+        private int indexOf(int filmId) {
+            for (int i = 0; i < filmIds.length; i++) {
+                if (filmIds[i] == filmId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // moves the entry at {@code at} up or down until the order holds again
+        private static Neighbours settled(int[] ids, int[] counts, int at) {
+            while (at > 0 && before(ids, counts, at, at - 1)) {
+                swap(ids, counts, at, at - 1);
+                at--;
+            }
+            while (at < ids.length - 1 && before(ids, counts, at + 1, at)) {
+                swap(ids, counts, at, at + 1);
+                at++;
+            }
+            return new Neighbours(ids, counts);
+        }
+
+        private static boolean before(int[] ids, int[] counts, int i, int j) {
+            return counts[i] > counts[j] || counts[i] == counts[j] && ids[i] < ids[j];
+        }
+
+        private static void swap(int[] ids, int[] counts, int i, int j) {
+            int id = ids[i];
+            ids[i] = ids[j];
+            ids[j] = id;
+            int count = counts[i];
+            counts[i] = counts[j];
+            counts[j] = count;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Value;
+
+@Value
+public class BulkImportError {
+    int index;
+    String error;
+}
@@ -2,12 +2,12 @@ package ru.yandex.practicum.filmorate.model;
 
 import com.fasterxml.jackson.annotation.JsonSetter;
 import lombok.Data;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
 import ru.yandex.practicum.filmorate.validator.ValidReleaseDate;
 
 import javax.validation.constraints.*;
 import java.time.LocalDate;
 import java.util.Comparator;
-import java.util.HashSet;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -33,11 +33,12 @@ public class Film {
     @PositiveOrZero
     private int rate;
 
+    @NotNull
     private MpaRating mpa;
 
     private final Set<Genre> genres;
 
-    private final Set<Long> likers;
+    private final LongHashSet likers;
 
     public Film(String name, String description, LocalDate releaseDate, int duration, int rate, MpaRating mpa) {
         this.name = name;
@@ -47,7 +48,7 @@ public class Film {
         this.rate = rate;
         this.mpa = mpa;
         this.genres = new TreeSet<>(Comparator.comparingInt(Genre::getId));
-        this.likers = new HashSet<>();
+        this.likers = new LongHashSet();
     }
 
     @JsonSetter
@@ -56,13 +57,19 @@ public class Film {
         this.genres.addAll(genres);
     }
 
-    public void addLike(long userId) {
-        likers.add(userId);
+    public boolean addLike(long userId) {
+        if (!likers.add(userId)) {
+            return false;
+        }
         rate++;
+        return true;
     }
 
-    public void deleteLike(long userId) {
-        likers.remove(userId);
+    public boolean deleteLike(long userId) {
+        if (!likers.remove(userId)) {
+            return false;
+        }
         rate--;
+        return true;
     }
 }
@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Film without its likers, for listing pages: only the number of likes is carried.
+ */
+@Data
+public class FilmSummary {
+    private int id;
+    private String name;
+    private String description;
+    private LocalDate releaseDate;
+    private int duration;
+    private int rate;
+    private MpaRating mpa;
+    private final Set<Genre> genres = new TreeSet<>(Comparator.comparingInt(Genre::getId));
+    private int likesCount;
+
+    public static FilmSummary of(Film film) {
+        FilmSummary summary = new FilmSummary();
+        summary.setId(film.getId());
+        summary.setName(film.getName());
+        summary.setDescription(film.getDescription());
+        summary.setReleaseDate(film.getReleaseDate());
+        summary.setDuration(film.getDuration());
+        summary.setRate(film.getRate());
+        summary.setMpa(film.getMpa());
+        summary.getGenres().addAll(film.getGenres());
+        summary.setLikesCount(film.getLikers().size());
+        return summary;
+    }
+}
@@ -0,0 +1,11 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Value;
+
+@Value
+public class QueryPlanReport {
+    String statement;
+    String sql;
+    String plan;
+    boolean tableScan;
+}
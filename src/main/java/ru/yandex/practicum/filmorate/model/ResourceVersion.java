@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Value;
+
+/**
+ * Version of a resource for conditional requests: a strong ETag and a Last-Modified time in epoch millis,
+ * rounded up to a full second. The write position is the primary's when the version was taken, 0 without
+ * read replicas; a replica that has applied it holds the data the version stands for.
+ */
+@Value
+public class ResourceVersion {
+    String eTag;
+    long lastModified;
+    long writePosition;
+}
@@ -0,0 +1,131 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.EntityValidationException;
+import ru.yandex.practicum.filmorate.model.BulkImportError;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Imports a sequence of entities in batches of {@code filmorate.bulk.batch-size}.
+ * Every item is checked with the bean validators first. A batch goes to storage in one call and,
+ * if the database rejects it, is retried item by item so that only the offending items fail.
+ * Items are reported by their zero-based position in the input; at most {@value MAX_REPORTED_ERRORS}
+ * errors are listed, the rest are only counted.
+ */
+@Component
+@Slf4j
+public class BulkImporter {
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final Validator validator;
+    private final int batchSize;
+
+    public BulkImporter(Validator validator, @Value("${filmorate.bulk.batch-size:1000}") int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Illegal bulk batch size");
+        }
+        this.validator = validator;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Reads items until the iterator is exhausted. An {@link EntityValidationException} thrown by
+     * {@code next()} is reported as an error of that item and reading goes on.
+     */
+    public <T> BulkImportResult importAll(Iterator<T> items, Consumer<List<T>> batchInsert, Consumer<T> singleInsert) {
+        Progress progress = new Progress();
+        List<T> batch = new ArrayList<>(batchSize);
+        List<Integer> batchIndexes = new ArrayList<>(batchSize);
+        for (int index = 0; items.hasNext(); index++) {
+            T item;
+            try {
+                item = items.next();
+            } catch (EntityValidationException e) {
+                progress.fail(index, e.getMessage());
+                continue;
+            }
+            if (item == null) {
+                progress.fail(index, "Missing item");
+                continue;
+            }
+            Set<ConstraintViolation<T>> violations = validator.validate(item);
+            if (!violations.isEmpty()) {
+                progress.fail(index, describe(violations));
+                continue;
+            }
+            batch.add(item);
+            batchIndexes.add(index);
+            if (batch.size() == batchSize) {
+                insert(batch, batchIndexes, batchInsert, singleInsert, progress);
+                batch.clear();
+                batchIndexes.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            insert(batch, batchIndexes, batchInsert, singleInsert, progress);
+        }
+        log.info("Bulk import finished: {} imported, {} failed", progress.imported, progress.failed);
+        return new BulkImportResult(progress.imported, progress.failed, progress.errors);
+    }
+
+    private <T> void insert(List<T> batch, List<Integer> indexes,
+                            Consumer<List<T>> batchInsert, Consumer<T> singleInsert, Progress progress) {
+        try {
+            batchInsert.accept(batch);
+            progress.imported += batch.size();
+            return;
+        } catch (RuntimeException e) {
+            log.warn("Batch of {} items rejected, retrying one by one: {}", batch.size(), describe(e));
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                singleInsert.accept(batch.get(i));
+                progress.imported++;
+            } catch (RuntimeException e) {
+                progress.fail(indexes.get(i), describe(e));
+            }
+        }
+    }
+
+    private static <T> String describe(Set<ConstraintViolation<T>> violations) {
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private static String describe(RuntimeException e) {
+        if (e instanceof DataAccessException) {
+            String message = ((DataAccessException) e).getMostSpecificCause().getMessage();
+            // H2 appends the whole statement, which only repeats the input
+            int statementStart = message.indexOf("; SQL statement:");
+            return statementStart < 0 ? message : message.substring(0, statementStart);
+        }
+        return e.getMessage();
+    }
+
+    private static class Progress {
+        private int imported;
+        private int failed;
+        private final List<BulkImportError> errors = new ArrayList<>();
+
+        private void fail(int index, String error) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new BulkImportError(index, error));
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.QueryPlanReport;
+import ru.yandex.practicum.filmorate.storage.impl.database.QueryPlanInspector;
+
+import java.util.List;
+
+@Service
+@ConditionalOnProperty(name = "filmorate.diagnostics.query-plans.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class DiagnosticsService {
+    private final QueryPlanInspector queryPlanInspector;
+
+    public List<QueryPlanReport> getQueryPlans() {
+        log.info("Query plans requested");
+        return queryPlanInspector.inspect();
+    }
+}
@@ -4,22 +4,71 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.EntityNotFoundException;
+import ru.yandex.practicum.filmorate.exception.EntityValidationException;
+import ru.yandex.practicum.filmorate.index.CatalogVersions;
+import ru.yandex.practicum.filmorate.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.RecommendationIndex;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmBatchResponse;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class FilmService {
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_BATCH_SIZE = 1000;
+    // release dates start at the birth of cinema, and the year filter needs the next year to be a valid date
+    private static final int MIN_RELEASE_YEAR = 1895;
+    private static final int MAX_RELEASE_YEAR = 9999;
+
     private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final FilmPopularityIndex popularityIndex;
+    private final RecommendationIndex recommendationIndex;
+    private final FilmSearchIndex searchIndex;
+    private final BulkImporter bulkImporter;
+    private final CatalogVersions catalogVersions;
 
     public List<Film> getAllFilms() {
         log.info("Films list requested");
         return filmStorage.getAllFilms();
     }
 
+    public List<Film> getFilmsAfter(int afterId, int limit) {
+        validatePage(afterId, limit);
+        log.info("Films page requested");
+        return filmStorage.getFilmsAfter(afterId, limit);
+    }
+
+    public List<FilmSummary> getAllFilmSummaries() {
+        log.info("Film summaries list requested");
+        return filmStorage.getAllFilmSummaries();
+    }
+
+    public List<FilmSummary> getFilmSummariesAfter(int afterId, int limit) {
+        validatePage(afterId, limit);
+        log.info("Film summaries page requested");
+        return filmStorage.getFilmSummariesAfter(afterId, limit);
+    }
+
+    public void streamAllFilms(Consumer<Film> action) {
+        log.info("Films stream requested");
+        filmStorage.streamFilms(action);
+    }
+
     public Film getFilm(int id) {
         log.info("Film requested");
         if (id <= 0) {
@@ -28,12 +77,50 @@ public class FilmService {
         return filmStorage.getFilm(id);
     }
 
+    public FilmBatchResponse getFilms(List<Integer> ids) {
+        if (ids.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Too many ids, at most " + MAX_BATCH_SIZE + " are allowed");
+        }
+        log.info("Films batch of {} requested", ids.size());
+        List<Film> films = filmStorage.getFilms(ids);
+        Set<Integer> foundIds = new HashSet<>();
+        for (Film film : films) {
+            foundIds.add(film.getId());
+        }
+        Set<Integer> missingIds = new LinkedHashSet<>();
+        for (Integer id : ids) {
+            if (!foundIds.contains(id)) {
+                missingIds.add(id);
+            }
+        }
+        return new FilmBatchResponse(films, new ArrayList<>(missingIds));
+    }
+
     public Film addFilm(Film film) {
-        return filmStorage.addFilm(film);
+        Film addedFilm = filmStorage.addFilm(film);
+        popularityIndex.put(addedFilm);
+        searchIndex.put(addedFilm.getId(), addedFilm.getName(), addedFilm.getDescription());
+        catalogVersions.filmChanged(addedFilm.getId());
+        return addedFilm;
+    }
+
+    public BulkImportResult importFilms(Iterator<Film> films) {
+        log.info("Films bulk import requested");
+        return bulkImporter.importAll(films, batch -> {
+            for (Film addedFilm : filmStorage.addFilms(batch)) {
+                popularityIndex.put(addedFilm);
+                searchIndex.put(addedFilm.getId(), addedFilm.getName(), addedFilm.getDescription());
+                catalogVersions.filmChanged(addedFilm.getId());
+            }
+        }, this::addFilm);
     }
 
     public Film updateFilm(Film film) {
-        return filmStorage.updateFilm(film);
+        Film updatedFilm = filmStorage.updateFilm(film);
+        popularityIndex.put(updatedFilm);
+        searchIndex.put(updatedFilm.getId(), updatedFilm.getName(), updatedFilm.getDescription());
+        catalogVersions.filmChanged(updatedFilm.getId());
+        return updatedFilm;
     }
 
     public void deleteFilm(int id) {
@@ -41,6 +128,10 @@ public class FilmService {
             throw new EntityNotFoundException("Invalid Film ID");
         }
         filmStorage.deleteFilm(id);
+        popularityIndex.remove(id);
+        recommendationIndex.removeFilm(id);
+        searchIndex.remove(id);
+        catalogVersions.filmChanged(id);
     }
 
     public void addLike(int filmId, long userId) {
@@ -51,6 +142,9 @@ public class FilmService {
             throw new EntityNotFoundException("Invalid User ID");
         }
         filmStorage.addLike(filmId, userId);
+        popularityIndex.addToRate(filmId, 1);
+        recommendationIndex.addLike(filmId, userId);
+        catalogVersions.filmChanged(filmId);
     }
 
     public void deleteLike(int filmId, long userId) {
@@ -61,9 +155,79 @@ public class FilmService {
             throw new EntityNotFoundException("Invalid User ID");
         }
         filmStorage.deleteLike(filmId, userId);
+        popularityIndex.addToRate(filmId, -1);
+        recommendationIndex.removeLike(filmId, userId);
+        catalogVersions.filmChanged(filmId);
+    }
+
+    /**
+     * Most popular films, optionally only those of a genre, an MPA rating or a release year; null filters are
+     * not applied, unknown genres and ratings give no films. Read from FilmPopularityIndex.
+     */
+    public List<Film> getPopular(int count, Short genreId, Short mpaId, Integer year) {
+        validatePopularCount(count);
+        validatePopularYear(year);
+        return filmStorage.getFilms(popularityIndex.getTop(count, genreId, mpaId, year));
+    }
+
+    public List<FilmSummary> getPopularSummaries(int count, Short genreId, Short mpaId, Integer year) {
+        validatePopularCount(count);
+        validatePopularYear(year);
+        return filmStorage.getFilmSummaries(popularityIndex.getTop(count, genreId, mpaId, year));
+    }
+
+    /**
+     * Films whose name or description contain words of the query, see FilmSearchIndex.search.
+     */
+    public List<Film> searchFilms(String query, int count) {
+        validateSearchCount(count);
+        return filmStorage.getFilms(searchIndex.search(query, count));
+    }
+
+    public List<FilmSummary> searchFilmSummaries(String query, int count) {
+        validateSearchCount(count);
+        return filmStorage.getFilmSummaries(searchIndex.search(query, count));
+    }
+
+    /**
+     * Films liked by users who like the same films as this user, see RecommendationIndex.
+     */
+    public List<Film> getRecommendations(long userId, int count) {
+        if (userId <= 0) {
+            throw new EntityNotFoundException("Invalid User ID");
+        }
+        if (count <= 0 || count > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Illegal count value");
+        }
+        userStorage.getUser(userId);
+        log.info("Recommendations requested");
+        return filmStorage.getFilms(recommendationIndex.recommend(userId, count));
+    }
+
+    private static void validatePage(int afterId, int limit) {
+        if (afterId < 0) {
+            throw new IllegalArgumentException("Illegal cursor value");
+        }
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Illegal limit value");
+        }
+    }
+
+    private static void validateSearchCount(int count) {
+        if (count <= 0 || count > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Illegal count value");
+        }
+        log.info("Film search requested");
+    }
+
+    private static void validatePopularYear(Integer year) {
+        if (year != null && (year < MIN_RELEASE_YEAR || year > MAX_RELEASE_YEAR)) {
+            throw new EntityValidationException("Release year must be between " + MIN_RELEASE_YEAR
+                    + " and " + MAX_RELEASE_YEAR);
+        }
     }
 
-    public List<Film> getPopular(int count) {
+    private static void validatePopularCount(int count) {
         if (count <= 0) {
             throw new IllegalArgumentException("Illegal count value");
         } else if (count == 1) {
@@ -71,6 +235,5 @@ public class FilmService {
         } else {
             log.info(count + " most popular films requested");
         }
-        return filmStorage.getPopular(count);
     }
 }
@@ -4,22 +4,56 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.EntityNotFoundException;
+import ru.yandex.practicum.filmorate.index.CatalogVersions;
+import ru.yandex.practicum.filmorate.index.FriendGraphIndex;
+import ru.yandex.practicum.filmorate.index.RecommendationIndex;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.util.StripedLocks;
 
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class UserService {
+    public static final int MAX_PAGE_SIZE = 1000;
+    private static final int LOCK_STRIPES = 64;
+
     private final UserStorage userStorage;
+    private final FriendGraphIndex friendGraph;
+    private final RecommendationIndex recommendationIndex;
+    private final BulkImporter bulkImporter;
+    private final CatalogVersions catalogVersions;
+    // a friendship's row and its friend graph edge change together under the stripes of both users
+    private final StripedLocks friendshipLocks = new StripedLocks(LOCK_STRIPES);
 
     public List<User> getAllUsers() {
         log.info("Users list requested");
         return userStorage.getAllUsers();
     }
 
+    public List<User> getUsersAfter(long afterId, int limit) {
+        if (afterId < 0) {
+            throw new IllegalArgumentException("Illegal cursor value");
+        }
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Illegal limit value");
+        }
+        log.info("Users page requested");
+        return userStorage.getUsersAfter(afterId, limit);
+    }
+
+    public void streamAllUsers(Consumer<User> action) {
+        log.info("Users stream requested");
+        userStorage.streamUsers(action);
+    }
+
     public User getUser(long id) {
         if (id <= 0) {
             throw new EntityNotFoundException("Invalid User ID");
@@ -38,19 +72,41 @@ public class UserService {
 
     public User addUser(User user) {
         setEmptyNameAsLogin(user);
-        return userStorage.addUser(user);
+        User addedUser = userStorage.addUser(user);
+        friendGraph.addUser(addedUser.getId());
+        catalogVersions.usersChanged();
+        return addedUser;
+    }
+
+    public BulkImportResult importUsers(Iterator<User> users) {
+        log.info("Users bulk import requested");
+        return bulkImporter.importAll(users, batch -> {
+            batch.forEach(this::setEmptyNameAsLogin);
+            for (User addedUser : userStorage.addUsers(batch)) {
+                friendGraph.addUser(addedUser.getId());
+            }
+            catalogVersions.usersChanged();
+        }, this::addUser);
     }
 
     public User updateUser(User user) {
         setEmptyNameAsLogin(user);
-        return userStorage.updateUser(user);
+        User updatedUser = userStorage.updateUser(user);
+        catalogVersions.usersChanged();
+        return updatedUser;
     }
 
     public void deleteUser(long id) {
         if (id <= 0) {
             throw new EntityNotFoundException("Invalid User ID");
         }
-        userStorage.deleteUser(id);
+        friendshipLocks.withLock(id, () -> {
+            userStorage.deleteUser(id);
+            friendGraph.removeUser(id);
+        });
+        recommendationIndex.removeUser(id);
+        // the user's likes are gone from the films they liked
+        catalogVersions.allFilmsChanged();
     }
 
     public void addFriend(long userId, long friendId) {
@@ -60,7 +116,10 @@ public class UserService {
         if (userId == friendId) {
             throw new IllegalArgumentException("Users cannot add themselves to friends");
         }
-        userStorage.addFriend(userId, friendId);
+        friendshipLocks.withLocks(userId, friendId, () -> {
+            userStorage.addFriend(userId, friendId);
+            friendGraph.addFriend(userId, friendId);
+        });
     }
 
     public void deleteFriend(long userId, long friendId) {
@@ -70,7 +129,10 @@ public class UserService {
         if (userId == friendId) {
             throw new IllegalArgumentException("Users cannot add themselves to friends");
         }
-        userStorage.deleteFriend(userId, friendId);
+        friendshipLocks.withLocks(userId, friendId, () -> {
+            userStorage.deleteFriend(userId, friendId);
+            friendGraph.removeFriend(userId, friendId);
+        });
     }
 
     public List<User> getCommonFriends(long user1Id, long user2Id) {
@@ -82,7 +144,23 @@ public class UserService {
                     " (Might want to call getFriends(long id) method instead)");
         }
         log.info("Common friends list requested");
-        return userStorage.getCommonFriends(user1Id, user2Id);
+        long[] commonIds = friendGraph.getCommonFriends(user1Id, user2Id);
+        return userStorage.getUsers(Arrays.stream(commonIds).boxed().collect(Collectors.toList()));
+    }
+
+    /**
+     * Friends of the user's friends, most mutual friends first, see FriendGraphIndex.getSuggestions.
+     */
+    public List<User> getFriendSuggestions(long id, int count) {
+        if (id <= 0) {
+            throw new EntityNotFoundException("Invalid User ID");
+        }
+        if (count <= 0 || count > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Illegal count value");
+        }
+        log.info("Friend suggestions requested");
+        long[] suggestedIds = friendGraph.getSuggestions(id, count);
+        return userStorage.getUsers(Arrays.stream(suggestedIds).boxed().collect(Collectors.toList()));
     }
 
     private void setEmptyNameAsLogin(User user) {
@@ -1,23 +1,65 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
 
     List<Film> getAllFilms();
 
+    List<Film> getFilmsAfter(int afterId, int limit);
+
+    void streamFilms(Consumer<Film> action);
+
     Film getFilm(int id);
 
+    /**
+     * Returns the films with the given ids in the order of {@code ids}, skipping unknown ids.
+     */
+    List<Film> getFilms(Collection<Integer> ids);
+
+    /**
+     * Summaries are read without touching the likers, see FilmSummary.
+     */
+    List<FilmSummary> getAllFilmSummaries();
+
+    List<FilmSummary> getFilmSummariesAfter(int afterId, int limit);
+
+    /**
+     * Returns the summaries of the films with the given ids in the order of {@code ids}, skipping unknown ids.
+     */
+    List<FilmSummary> getFilmSummaries(Collection<Integer> ids);
+
     Film addFilm(Film film);
 
+    /**
+     * Adds all films or none of them, setting their generated ids.
+     */
+    List<Film> addFilms(List<Film> films);
+
     Film updateFilm(Film film);
 
     void deleteFilm(int filmId);
 
     List<Film> getPopular(int count);
 
+    /**
+     * Most popular films of the genre, the MPA rating and the release year given; null filters are not applied.
+     */
+    List<Film> getPopular(int count, Short genreId, Short mpaId, Integer year);
+
+    List<FilmSummary> getPopularSummaries(int count, Short genreId, Short mpaId, Integer year);
+
+    /**
+     * Returns ascending ids of the films each user likes, users without likes left out.
+     */
+    Map<Long, int[]> getLikedFilmIds();
+
     void addLike(int filmId, long userId);
 
     void deleteLike(int filmId, long userId);
@@ -2,18 +2,32 @@ package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface UserStorage {
 
     List<User> getAllUsers();
 
+    List<User> getUsersAfter(long afterId, int limit);
+
+    void streamUsers(Consumer<User> action);
+
     User getUser(long id);
 
+    List<User> getUsers(Collection<Long> ids);
+
     List<User> getFriends(long id);
 
     User addUser(User user);
 
+    /**
+     * Adds all users or none of them, setting their generated ids.
+     */
+    List<User> addUsers(List<User> users);
+
     User updateUser(User user);
 
     void deleteUser(long userId);
@@ -22,5 +36,8 @@ public interface UserStorage {
 
     void deleteFriend(long userId, long friendId);
 
-    List<User> getCommonFriends(long user1Id, long user2Id);
+    /**
+     * Returns ascending friend ids of every user, users without friends mapped to an empty array.
+     */
+    Map<Long, long[]> getFriendIds();
 }
@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.storage.impl;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.EntityNotFoundException;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every call of a FilmStorage, UserStorage, GenreStorage or MpaStorage implementation as
+ * {@value CALL_METRIC}, tagged with the implementation, method and outcome, and records the number of rows
+ * a call returned as {@value ROWS_METRIC}. Calls that stream rows into a consumer are timed as a whole,
+ * consumer included, and report no row count. The reference data caches are left out: film rows look up
+ * their MPA rating and genres there one by one, so a timer per lookup would cost more than the lookup;
+ * their misses still show up as calls of the database storages behind them, and their hit rate is published
+ * by the caches themselves as {@code filmorate.cache.lookups}.
+ * Duplicate likes and friendships reach the aspect already translated to IllegalArgumentException, and other
+ * rejected writes wrap the DataIntegrityViolationException; both count as {@code constraint_violation}.
+ * Meters are looked up once per storage, method and outcome and then reused.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class StorageMetricsAspect {
+    static final String CALL_METRIC = "filmorate.storage.call";
+    static final String ROWS_METRIC = "filmorate.storage.rows";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<CallKey, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<CallKey, DistributionSummary> rowSummaries = new ConcurrentHashMap<>();
+
+    @Around("(execution(* ru.yandex.practicum.filmorate.storage.FilmStorage.*(..))" +
+            " || execution(* ru.yandex.practicum.filmorate.storage.UserStorage.*(..))" +
+            " || execution(* ru.yandex.practicum.filmorate.storage.GenreStorage.*(..))" +
+            " || execution(* ru.yandex.practicum.filmorate.storage.MpaStorage.*(..)))" +
+            " && !within(ru.yandex.practicum.filmorate.storage.impl.cache..*)")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        Class<?> storage = AopUtils.getTargetClass(joinPoint.getTarget());
+        String method = joinPoint.getSignature().getName();
+        String outcome = "success";
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            recordRows(storage, method, result);
+            return result;
+        } catch (Throwable e) {
+            outcome = outcome(e);
+            throw e;
+        } finally {
+            timers.computeIfAbsent(new CallKey(storage, method, outcome), key -> Timer.builder(CALL_METRIC)
+                            .tag("storage", storage.getSimpleName())
+                            .tag("method", method)
+                            .tag("outcome", key.getOutcome())
+                            .register(meterRegistry))
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static String outcome(Throwable e) {
+        if (e instanceof EntityNotFoundException) {
+            return "not_found";
+        }
+        if (e instanceof DataIntegrityViolationException || e instanceof IllegalArgumentException
+                || e.getCause() instanceof DataIntegrityViolationException) {
+            return "constraint_violation";
+        }
+        return "error";
+    }
+
+    private void recordRows(Class<?> storage, String method, Object result) {
+        int rows;
+        if (result instanceof Collection) {
+            rows = ((Collection<?>) result).size();
+        } else if (result instanceof Map) {
+            rows = ((Map<?, ?>) result).size();
+        } else if (result != null) {
+            rows = 1;
+        } else {
+            return;
+        }
+        rowSummaries.computeIfAbsent(new CallKey(storage, method, null), key -> DistributionSummary.builder(ROWS_METRIC)
+                        .tag("storage", storage.getSimpleName())
+                        .tag("method", method)
+                        .register(meterRegistry))
+                .record(rows);
+    }
+
+    @Value
+    private static class CallKey {
+        Class<?> storage;
+        String method;
+        String outcome;
+    }
+}
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.storage.impl.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.impl.database.GenreDbStorage;
+
+import java.util.List;
+
+/**
+ * Read-through cache over GenreDbStorage. Returned Genre instances are shared,
+ * callers must not modify them.
+ */
+@Repository
+@Primary
+public class CachedGenreStorage extends CachedReferenceStorage<Genre> implements GenreStorage {
+    public CachedGenreStorage(GenreDbStorage genreDbStorage, MeterRegistry meterRegistry) {
+        super(genreDbStorage::getAllGenres, id -> genreDbStorage.getGenre((short) id), Genre::getId, Genre[]::new,
+                meterRegistry, "genres", "Genres");
+    }
+
+    @Override
+    public List<Genre> getAllGenres() {
+        return getAll();
+    }
+
+    @Override
+    public Genre getGenre(short id) {
+        return get(id);
+    }
+}
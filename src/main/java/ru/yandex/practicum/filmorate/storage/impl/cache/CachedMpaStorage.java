@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.storage.impl.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.MpaStorage;
+import ru.yandex.practicum.filmorate.storage.impl.database.MpaDbStorage;
+
+import java.util.List;
+
+/**
+ * Read-through cache over MpaDbStorage. Returned MpaRating instances are shared,
+ * callers must not modify them.
+ */
+@Repository
+@Primary
+public class CachedMpaStorage extends CachedReferenceStorage<MpaRating> implements MpaStorage {
+    public CachedMpaStorage(MpaDbStorage mpaDbStorage, MeterRegistry meterRegistry) {
+        super(mpaDbStorage::getAllRatings, id -> mpaDbStorage.getRating((short) id), MpaRating::getId,
+                MpaRating[]::new, meterRegistry, "mpa_ratings", "MPA Ratings");
+    }
+
+    @Override
+    public List<MpaRating> getAllRatings() {
+        return getAll();
+    }
+
+    @Override
+    public MpaRating getRating(short id) {
+        return get(id);
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.storage.impl.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Read-through cache over the database storage of one reference table, see ReferenceDataCache. Loaded on
+ * startup and reread every {@code filmorate.reference-cache.refresh-interval-ms}. Returned instances are
+ * shared, callers must not modify them.
+ */
+@Slf4j
+abstract class CachedReferenceStorage<T> {
+    private final ReferenceDataCache<T> cache;
+    private final String description;
+
+    CachedReferenceStorage(Supplier<List<T>> allRowsLoader, IntFunction<T> rowLoader, ToIntFunction<T> idGetter,
+                           IntFunction<T[]> arrayFactory, MeterRegistry meterRegistry, String cacheName,
+                           String description) {
+        this.cache = new ReferenceDataCache<>(allRowsLoader, rowLoader, idGetter, arrayFactory);
+        this.description = description;
+        cache.registerMeters(meterRegistry, cacheName);
+    }
+
+    @PostConstruct
+    public void preload() {
+        cache.reload();
+        log.info("{} cache loaded", description);
+    }
+
+    /**
+     * Rereads the table, picking up changed rows and forgetting ids remembered as missing.
+     */
+    @Scheduled(fixedDelayString = "${filmorate.reference-cache.refresh-interval-ms:600000}",
+            initialDelayString = "${filmorate.reference-cache.refresh-interval-ms:600000}")
+    public void refresh() {
+        cache.reload();
+        log.debug("{} cache reloaded", description);
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    protected final List<T> getAll() {
+        return cache.getAll();
+    }
+
+    protected final T get(int id) {
+        return cache.get(id);
+    }
+}
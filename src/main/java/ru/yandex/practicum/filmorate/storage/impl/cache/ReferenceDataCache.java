@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.storage.impl.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import ru.yandex.practicum.filmorate.exception.EntityNotFoundException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Immutable snapshot of a small reference table held in an array indexed by the row id.
+ * Lookups that miss the snapshot fall through to the loader and trigger a reload,
+ * so rows added behind the cache's back show up on first access. Ids the loader does not find are
+ * remembered as missing until the next reload, so repeated lookups of an unknown id stay off the database.
+ */
+class ReferenceDataCache<T> {
+    static final String LOOKUPS_METRIC = "filmorate.cache.lookups";
+
+    private final Supplier<List<T>> allRowsLoader;
+    private final IntFunction<T> rowLoader;
+    private final ToIntFunction<T> idGetter;
+    private final IntFunction<T[]> arrayFactory;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    // id -> message of the EntityNotFoundException the loader threw for it
+    private final Map<Integer, String> missingIds = new ConcurrentHashMap<>();
+
+    private volatile T[] rowsById;
+    private volatile List<T> allRows;
+
+    ReferenceDataCache(Supplier<List<T>> allRowsLoader, IntFunction<T> rowLoader,
+                       ToIntFunction<T> idGetter, IntFunction<T[]> arrayFactory) {
+        this.allRowsLoader = allRowsLoader;
+        this.rowLoader = rowLoader;
+        this.idGetter = idGetter;
+        this.arrayFactory = arrayFactory;
+    }
+
+    synchronized void reload() {
+        List<T> rows = allRowsLoader.get();
+        int maxId = 0;
+        for (T row : rows) {
+            maxId = Math.max(maxId, idGetter.applyAsInt(row));
+        }
+        T[] byId = arrayFactory.apply(maxId + 1);
+        for (T row : rows) {
+            byId[idGetter.applyAsInt(row)] = row;
+        }
+        rowsById = byId;
+        allRows = Collections.unmodifiableList(new ArrayList<>(rows));
+        missingIds.clear();
+    }
+
+    /**
+     * Publishes the hit and miss counts as {@value LOOKUPS_METRIC}, tagged with the cache name and the result.
+     */
+    void registerMeters(MeterRegistry registry, String cacheName) {
+        FunctionCounter.builder(LOOKUPS_METRIC, hits, AtomicLong::get)
+                .tag("cache", cacheName)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder(LOOKUPS_METRIC, misses, AtomicLong::get)
+                .tag("cache", cacheName)
+                .tag("result", "miss")
+                .register(registry);
+    }
+
+    List<T> getAll() {
+        hits.incrementAndGet();
+        return allRows;
+    }
+
+    T get(int id) {
+        T[] byId = rowsById;
+        if (id > 0 && id < byId.length && byId[id] != null) {
+            hits.incrementAndGet();
+            return byId[id];
+        }
+        String missingMessage = missingIds.get(id);
+        if (missingMessage != null) {
+            hits.incrementAndGet();
+            throw new EntityNotFoundException(missingMessage);
+        }
+        misses.incrementAndGet();
+        T row;
+        try {
+            row = rowLoader.apply(id);
+        } catch (EntityNotFoundException e) {
+            missingIds.put(id, e.getMessage());
+            throw e;
+        }
+        reload();
+        byId = rowsById;
+        return id < byId.length && byId[id] != null ? byId[id] : row;
+    }
+
+    long getHitCount() {
+        return hits.get();
+    }
+
+    long getMissCount() {
+        return misses.get();
+    }
+}
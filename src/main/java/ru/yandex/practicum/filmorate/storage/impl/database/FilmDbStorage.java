@@ -1,6 +1,5 @@
 package ru.yandex.practicum.filmorate.storage.impl.database;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Primary;
 import org.springframework.dao.DataIntegrityViolationException;
@@ -8,80 +7,224 @@ import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.*;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import ru.yandex.practicum.filmorate.exception.EntityNotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.MpaStorage;
 
+import java.sql.*;
 import java.sql.Date;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
 
 @Repository
 @Primary
 @Slf4j
-@RequiredArgsConstructor
 public class FilmDbStorage implements FilmStorage {
+    private static final int STREAM_PAGE_SIZE = 500;
+    private static final int IN_LIST_CHUNK_SIZE = 500;
+
+    // statements are package-private so that QueryPlanInspector can explain them
+    static final String SELECT_FILMS = "SELECT f.id, f.name, f.description, f.release_date, f.duration," +
+            " f.rate, f.mpa_rating_id" +
+            " FROM films AS f";
+    static final String SQL_SELECT_ALL_FILMS = SELECT_FILMS + " ORDER BY f.id";
+    static final String SQL_SELECT_FILMS_AFTER = SELECT_FILMS + " WHERE f.id > ? ORDER BY f.id LIMIT ?";
+    static final String SQL_SELECT_FILM = SELECT_FILMS + " WHERE f.id = ?";
+    static final String SQL_SELECT_POPULAR = SELECT_FILMS + " ORDER BY f.rate DESC, f.id DESC LIMIT ?";
+    static final String SELECT_FILM_SUMMARIES = "SELECT f.id, f.name, f.description, f.release_date, f.duration," +
+            " f.rate, f.mpa_rating_id, f.likes_count" +
+            " FROM films AS f";
+    static final String SQL_SELECT_ALL_FILM_SUMMARIES = SELECT_FILM_SUMMARIES + " ORDER BY f.id";
+    static final String SQL_SELECT_FILM_SUMMARIES_AFTER = SELECT_FILM_SUMMARIES +
+            " WHERE f.id > ? ORDER BY f.id LIMIT ?";
+    static final String SQL_SELECT_GENRE_ROWS = "SELECT film_id, genre_id FROM film_genres";
+    static final String SQL_SELECT_LIKER_ROWS = "SELECT film_id, user_id FROM film_likes";
+    static final String SQL_SELECT_LIKED_FILM_IDS = "SELECT user_id, film_id FROM film_likes ORDER BY user_id, film_id";
+    static final String SQL_INSERT_FILM = "INSERT INTO films" +
+            " (name, description, release_date, duration, rate, mpa_rating_id) VALUES (?, ?, ?, ?, ?, ?)";
+    static final String SQL_INSERT_FILM_GENRE = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+    static final String SQL_UPDATE_FILM = "UPDATE films SET " +
+            "name = ?, description = ?, release_date = ?, duration = ?, rate = ?, mpa_rating_id = ? " +
+            "WHERE id = ?";
+    static final String SQL_DELETE_FILM_GENRES = "DELETE FROM film_genres WHERE film_id = ?";
+    static final String SQL_DELETE_FILM = "DELETE FROM films WHERE id = ?";
+    static final String SQL_INSERT_LIKE = "INSERT INTO film_likes VALUES (?, ?)";
+    static final String SQL_DELETE_LIKE = "DELETE FROM film_likes WHERE film_id = ? AND user_id = ?";
+    static final String SQL_INCREMENT_RATE = "UPDATE films SET rate = rate + 1, likes_count = likes_count + 1" +
+            " WHERE id = ?";
+    static final String SQL_DECREMENT_RATE = "UPDATE films SET rate = rate - 1, likes_count = likes_count - 1" +
+            " WHERE id = ?";
+
     private final JdbcTemplate jdbcTemplate;
+    private final GenreStorage genreStorage;
+    private final MpaStorage mpaStorage;
+    private final LikeWriteBuffer likeWriteBuffer;
+    private final SimpleJdbcInsert filmInsert;
+
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, GenreStorage genreStorage, MpaStorage mpaStorage,
+                         LikeWriteBuffer likeWriteBuffer) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.genreStorage = genreStorage;
+        this.mpaStorage = mpaStorage;
+        this.likeWriteBuffer = likeWriteBuffer;
+        // compiled once on first use instead of reading the table metadata on every insert
+        this.filmInsert = new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName("films")
+                // likes_count is left to its default, the insert would otherwise send null for it
+                .usingColumns("name", "description", "release_date", "duration", "rate", "mpa_rating_id")
+                .usingGeneratedKeyColumns("id");
+    }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Film> getAllFilms() {
-        String sqlQuery = "SELECT f.id, f.name, f.description, f.release_date, f.duration, f.rate, f.mpa_rating_id," +
-                " mpa.name AS mpa, GROUP_CONCAT(fg.genre_id) AS genres_id, GROUP_CONCAT(g.name) AS genres," +
-                " GROUP_CONCAT(fl.user_id) AS likers_id" +
-                " FROM films AS f" +
-                " JOIN mpa_ratings AS mpa ON f.mpa_rating_id = mpa.id" +
-                " LEFT JOIN film_genres AS fg ON f.id = fg.film_id" +
-                " LEFT JOIN genres AS g ON fg.genre_id = g.id" +
-                " LEFT JOIN film_likes AS fl ON fl.film_id = f.id" +
-                " GROUP BY f.id";
-        return jdbcTemplate.query(sqlQuery, filmRowMapper());
+        return loadGenresAndLikers(jdbcTemplate.query(SQL_SELECT_ALL_FILMS, filmRowMapper()), true);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public List<Film> getFilmsAfter(int afterId, int limit) {
+        return loadGenresAndLikers(jdbcTemplate.query(SQL_SELECT_FILMS_AFTER, filmRowMapper(), afterId, limit), false);
+    }
+
+    /**
+     * Films need their genre and liker rows as well, so they are streamed in keyset pages
+     * of {@value STREAM_PAGE_SIZE} films rather than row by row. The pages call getFilmsAfter on this
+     * instance, past its proxy, so the stream has a read-only transaction of its own: all pages are read on one
+     * connection, and StorageMetricsAspect times the stream as a whole.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamFilms(Consumer<Film> action) {
+        int afterId = 0;
+        List<Film> page;
+        do {
+            page = getFilmsAfter(afterId, STREAM_PAGE_SIZE);
+            page.forEach(action);
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == STREAM_PAGE_SIZE);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Film getFilm(int id) {
-        String sqlQuery = "SELECT f.id, f.name, f.description, f.release_date, f.duration, f.rate, f.mpa_rating_id," +
-                " mpa.name AS mpa, GROUP_CONCAT(fg.genre_id) AS genres_id, GROUP_CONCAT(g.name) AS genres," +
-                " GROUP_CONCAT(fl.user_id) AS likers_id" +
-                " FROM films AS f" +
-                " JOIN mpa_ratings AS mpa ON f.mpa_rating_id = mpa.id" +
-                " LEFT JOIN film_genres AS fg ON f.id = fg.film_id" +
-                " LEFT JOIN genres AS g ON fg.genre_id = g.id" +
-                " LEFT JOIN film_likes AS fl ON fl.film_id = f.id" +
-                " WHERE f.id = ?" +
-                " GROUP BY f.id";
         try {
-            return jdbcTemplate.queryForObject(sqlQuery, filmRowMapper(), id);
+            Film film = jdbcTemplate.queryForObject(SQL_SELECT_FILM, filmRowMapper(), id);
+            loadGenresAndLikers(List.of(film), false);
+            return film;
         } catch (EmptyResultDataAccessException e) {
             throw new EntityNotFoundException("Film not found");
         }
     }
 
+    /**
+     * Distinct ids are read in chunks of at most {@value IN_LIST_CHUNK_SIZE}, keeping every IN list,
+     * including the ones for genres and likers, to a bounded size.
+     */
     @Override
-    public Film addFilm(Film film) {
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
-                .withTableName("films")
-                .usingGeneratedKeyColumns("id");
-        film.setId(simpleJdbcInsert.executeAndReturnKey(filmToMap(film)).intValue());
+    @Transactional(readOnly = true)
+    public List<Film> getFilms(Collection<Integer> ids) {
+        return getByIds(ids, FilmDbStorage::selectFilmsByIds, filmRowMapper(),
+                chunk -> loadGenresAndLikers(chunk, false), Film::getId);
+    }
+
+    // not read-only: the indexes are rebuilt from it and must not miss writes a replica has not applied yet
+    @Override
+    public List<FilmSummary> getAllFilmSummaries() {
+        return loadGenres(jdbcTemplate.query(SQL_SELECT_ALL_FILM_SUMMARIES, filmSummaryRowMapper()), true);
+    }
 
-        String sqlQueryForGenres = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+    @Override
+    @Transactional(readOnly = true)
+    public List<FilmSummary> getFilmSummariesAfter(int afterId, int limit) {
+        return loadGenres(jdbcTemplate.query(SQL_SELECT_FILM_SUMMARIES_AFTER, filmSummaryRowMapper(), afterId, limit),
+                false);
+    }
 
-        jdbcTemplate.batchUpdate(sqlQueryForGenres, new FilmBatchPreparedStatementSetter(film));
+    /**
+     * Read in chunks like {@link #getFilms(Collection)}.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<FilmSummary> getFilmSummaries(Collection<Integer> ids) {
+        return getByIds(ids, FilmDbStorage::selectFilmSummariesByIds, filmSummaryRowMapper(),
+                chunk -> loadGenres(chunk, false), FilmSummary::getId);
+    }
+
+    @Override
+    @Transactional
+    public Film addFilm(Film film) {
+        film.setId(filmInsert.executeAndReturnKey(filmToMap(film)).intValue());
+
+        jdbcTemplate.batchUpdate(SQL_INSERT_FILM_GENRE, new FilmBatchPreparedStatementSetter(film));
         log.info("Film added");
         return film;
     }
 
+    /**
+     * Inserts the films with one JDBC batch reading back the generated ids, then their genres with another.
+     */
     @Override
-    public Film updateFilm(Film film) {
-        String sqlQuery = "UPDATE films SET " +
-                "name = ?, description = ?, release_date = ?, duration = ?, rate = ?, mpa_rating_id = ? " +
-                "WHERE id = ?";
+    @Transactional
+    public List<Film> addFilms(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(SQL_INSERT_FILM, new String[]{"id"})) {
+                for (Film film : films) {
+                    ps.setString(1, film.getName());
+                    ps.setString(2, film.getDescription());
+                    ps.setDate(3, Date.valueOf(film.getReleaseDate()));
+                    ps.setInt(4, film.getDuration());
+                    ps.setInt(5, film.getRate());
+                    ps.setObject(6, film.getMpa() == null ? null : film.getMpa().getId(), Types.TINYINT);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (Film film : films) {
+                        if (!keys.next()) {
+                            throw new SQLException("Generated film id missing");
+                        }
+                        film.setId(keys.getInt(1));
+                    }
+                }
+            }
+            return null;
+        });
 
+        List<Object[]> genreRows = new ArrayList<>();
+        for (Film film : films) {
+            for (Genre genre : film.getGenres()) {
+                genreRows.add(new Object[]{film.getId(), genre.getId()});
+            }
+        }
+        if (!genreRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(SQL_INSERT_FILM_GENRE, genreRows);
+        }
+        log.info("{} films added", films.size());
+        return films;
+    }
+
+    @Override
+    @Transactional
+    public Film updateFilm(Film film) {
         if (jdbcTemplate.update(
-                sqlQuery,
+                SQL_UPDATE_FILM,
                 film.getName(),
                 film.getDescription(),
                 Date.valueOf(film.getReleaseDate()),
@@ -93,49 +236,80 @@ public class FilmDbStorage implements FilmStorage {
             throw new EntityNotFoundException("Film not found");
         }
 
-        String sqlDeleteGenresQuery = "DELETE FROM film_genres WHERE film_id = ?";
-        jdbcTemplate.update(sqlDeleteGenresQuery, film.getId());
-
-        String sqlUpdateGenresQuery = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
-
-        jdbcTemplate.batchUpdate(sqlUpdateGenresQuery, new FilmBatchPreparedStatementSetter(film));
+        jdbcTemplate.update(SQL_DELETE_FILM_GENRES, film.getId());
+        jdbcTemplate.batchUpdate(SQL_INSERT_FILM_GENRE, new FilmBatchPreparedStatementSetter(film));
         log.info("Film updated");
         return film;
     }
 
     @Override
     public void deleteFilm(int filmId) {
-        String sqlQuery = "DELETE FROM films WHERE id = ?";
-        if (jdbcTemplate.update(sqlQuery, filmId) == 0) {
+        if (jdbcTemplate.update(SQL_DELETE_FILM, filmId) == 0) {
             throw new EntityNotFoundException("Film not found");
         }
         log.info("Film deleted");
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Film> getPopular(int count) {
-        String sqlQuery = "SELECT f.id, f.name, f.description, f.release_date, f.duration, f.rate, f.mpa_rating_id," +
-                " mpa.name AS mpa, GROUP_CONCAT(fg.genre_id) AS genres_id, GROUP_CONCAT(g.name) AS genres," +
-                " GROUP_CONCAT(fl.user_id) AS likers_id" +
-                " FROM films AS f" +
-                " JOIN mpa_ratings AS mpa ON f.mpa_rating_id = mpa.id" +
-                " LEFT JOIN film_genres AS fg ON f.id = fg.film_id" +
-                " LEFT JOIN genres AS g ON fg.genre_id = g.id" +
-                " LEFT JOIN film_likes AS fl ON fl.film_id = f.id" +
-                " GROUP BY f.id" +
-                " ORDER BY f.rate DESC" +
-                " LIMIT ?";
+        return loadGenresAndLikers(jdbcTemplate.query(SQL_SELECT_POPULAR, filmRowMapper(), count), false);
+    }
 
-        return jdbcTemplate.query(sqlQuery, filmRowMapper(), count);
+    @Override
+    @Transactional(readOnly = true)
+    public List<Film> getPopular(int count, Short genreId, Short mpaId, Integer year) {
+        String sql = selectPopular(SELECT_FILMS, genreId != null, mpaId != null, year != null);
+        return loadGenresAndLikers(jdbcTemplate.query(sql, filmRowMapper(), popularArgs(count, genreId, mpaId, year)),
+                false);
     }
 
     @Override
-    public void addLike(int filmId, long userId) {
-        String sqlQuery = "INSERT INTO film_likes VALUES (?, ?);" +
-                " UPDATE films SET rate = rate + 1 WHERE id = ?";
+    @Transactional(readOnly = true)
+    public List<FilmSummary> getPopularSummaries(int count, Short genreId, Short mpaId, Integer year) {
+        String sql = selectPopular(SELECT_FILM_SUMMARIES, genreId != null, mpaId != null, year != null);
+        return loadGenres(jdbcTemplate.query(sql, filmSummaryRowMapper(), popularArgs(count, genreId, mpaId, year)),
+                false);
+    }
+
+    @Override
+    public Map<Long, int[]> getLikedFilmIds() {
+        // rows come grouped by user, each group is copied out once the next user starts
+        return jdbcTemplate.query(SQL_SELECT_LIKED_FILM_IDS, (ResultSetExtractor<Map<Long, int[]>>) rs -> {
+            Map<Long, int[]> likedFilmIds = new HashMap<>();
+            int[] buffer = new int[16];
+            int size = 0;
+            long userId = -1;
+            while (rs.next()) {
+                long id = rs.getLong(1);
+                if (id != userId) {
+                    if (userId != -1) {
+                        likedFilmIds.put(userId, Arrays.copyOf(buffer, size));
+                    }
+                    userId = id;
+                    size = 0;
+                }
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, size * 2);
+                }
+                buffer[size++] = rs.getInt(2);
+            }
+            if (userId != -1) {
+                likedFilmIds.put(userId, Arrays.copyOf(buffer, size));
+            }
+            return likedFilmIds;
+        });
+    }
 
+    @Override
+    public void addLike(int filmId, long userId) {
+        if (likeWriteBuffer.isEnabled()) {
+            likeWriteBuffer.addLike(filmId, userId);
+            log.info("Like buffered");
+            return;
+        }
         try {
-            jdbcTemplate.update(sqlQuery, filmId, userId, filmId);
+            jdbcTemplate.update(SQL_INSERT_LIKE + "; " + SQL_INCREMENT_RATE, filmId, userId, filmId);
         } catch (DataIntegrityViolationException e) {
             if (e.getMessage().contains("CONSTRAINT_7A:")) {
                 throw new EntityNotFoundException("Film not found");
@@ -144,7 +318,7 @@ public class FilmDbStorage implements FilmStorage {
             } else if (e.getMessage().contains("Unique index or primary key violation")) {
                 throw new IllegalArgumentException("User already likes this Film");
             } else {
-                throw new RuntimeException(e.getMessage());
+                throw new RuntimeException(e.getMessage(), e);
             }
         }
         log.info("Like added");
@@ -152,58 +326,252 @@ public class FilmDbStorage implements FilmStorage {
 
     @Override
     public void deleteLike(int filmId, long userId) {
-        String sqlQuery = "DELETE FROM film_likes WHERE film_id = ? AND user_id = ?;" +
-                "UPDATE films SET rate = rate - 1 WHERE id = ?";
-
-        if (jdbcTemplate.update(sqlQuery, filmId, userId, filmId) == 0) {
+        if (likeWriteBuffer.isEnabled()) {
+            likeWriteBuffer.deleteLike(filmId, userId);
+            log.info("Like deletion buffered");
+            return;
+        }
+        if (jdbcTemplate.update(SQL_DELETE_LIKE + "; " + SQL_DECREMENT_RATE, filmId, userId, filmId) == 0) {
             throw new EntityNotFoundException("Film or User not found");
         }
         log.info("Like deleted");
     }
 
-    private RowMapper<Film> filmRowMapper() {
+    /**
+     * Returns the rows of the given ids in the order of {@code ids}, skipping unknown ids.
+     */
+    private <T> List<T> getByIds(Collection<Integer> ids, IntFunction<String> selectByIds, RowMapper<T> rowMapper,
+                                 UnaryOperator<List<T>> loadLinks, ToIntFunction<T> idOf) {
+        List<Integer> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<Integer, T> rowsById = new HashMap<>();
+        for (int from = 0; from < distinctIds.size(); from += IN_LIST_CHUNK_SIZE) {
+            List<Integer> chunk = distinctIds.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, distinctIds.size()));
+            List<T> chunkRows = jdbcTemplate.query(selectByIds.apply(chunk.size()), rowMapper, chunk.toArray());
+            for (T row : loadLinks.apply(chunkRows)) {
+                rowsById.put(idOf.applyAsInt(row), row);
+            }
+        }
+        List<T> rows = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            T row = rowsById.get(id);
+            if (row != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Fills genres and likers of already loaded films with two set-based queries keyed by film id,
+     * so the number of rows read grows with genres + likes instead of genres * likes.
+     * When {@code wholeTable} is set the link tables are read without a film id filter.
+     * Link rows are matched against the films sorted by id by FilmLinkRowHandler, so reading them takes
+     * no lookup map and boxes nothing per row; user ids are read as longs. The rows are deliberately not
+     * ordered: sorting them, or walking an index for the order, costs more than the handler's searches.
+     * Genres are resolved through GenreStorage, so films share its canonical Genre instances.
+     */
+    private List<Film> loadGenresAndLikers(List<Film> films, boolean wholeTable) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        FilmLinkRowHandler<Film> links = new FilmLinkRowHandler<>(films, Film::getId);
+        Object[] filmIds = wholeTable ? new Object[0] : links.filmIds();
+        String filmIdFilter = wholeTable ? "" : filmIdFilter(filmIds.length);
+
+        jdbcTemplate.query(SQL_SELECT_GENRE_ROWS + filmIdFilter, links.reading((film, rs) ->
+                film.getGenres().add(genreStorage.getGenre(rs.getShort(2)))), filmIds);
+
+        jdbcTemplate.query(SQL_SELECT_LIKER_ROWS + filmIdFilter, links.reading((film, rs) ->
+                film.getLikers().add(rs.getLong(2))), filmIds);
+        return films;
+    }
+
+    /**
+     * Fills genres of film summaries the way {@link #loadGenresAndLikers} does, film_likes is never read.
+     */
+    private List<FilmSummary> loadGenres(List<FilmSummary> summaries, boolean wholeTable) {
+        if (summaries.isEmpty()) {
+            return summaries;
+        }
+        FilmLinkRowHandler<FilmSummary> links = new FilmLinkRowHandler<>(summaries, FilmSummary::getId);
+        Object[] filmIds = wholeTable ? new Object[0] : links.filmIds();
+
+        jdbcTemplate.query(SQL_SELECT_GENRE_ROWS + (wholeTable ? "" : filmIdFilter(filmIds.length)),
+                links.reading((summary, rs) -> summary.getGenres().add(genreStorage.getGenre(rs.getShort(2)))),
+                filmIds);
+        return summaries;
+    }
+
+    /**
+     * The genre filter joins film_genres, the year filter is a release_date range so that it can use an index.
+     * Without a year, films of a rating are read from films_mpa_rate_id_idx in rate order and the scan stops
+     * after the limit; H2 would pick the foreign key index on mpa_rating_id and sort every film of the rating.
+     */
+    static String selectPopular(boolean byGenre, boolean byMpa, boolean byYear) {
+        return selectPopular(SELECT_FILMS, byGenre, byMpa, byYear);
+    }
+
+    private static String selectPopular(String select, boolean byGenre, boolean byMpa, boolean byYear) {
+        boolean mpaOrdered = byMpa && !byYear;
+        StringBuilder sql = new StringBuilder(select);
+        if (mpaOrdered) {
+            sql.append(" USE INDEX (films_mpa_rate_id_idx)");
+        }
+        if (byGenre) {
+            sql.append(" JOIN film_genres AS fg ON fg.film_id = f.id AND fg.genre_id = ?");
+        }
+        String clause = " WHERE ";
+        if (byMpa) {
+            sql.append(clause).append("f.mpa_rating_id = ?");
+            clause = " AND ";
+        }
+        if (byYear) {
+            sql.append(clause).append("f.release_date >= ? AND f.release_date < ?");
+        }
+        // the rating is fixed by the filter; H2 only reads an index in order when the sort starts with its first column
+        sql.append(mpaOrdered ? " ORDER BY f.mpa_rating_id," : " ORDER BY");
+        return sql.append(" f.rate DESC, f.id DESC LIMIT ?").toString();
+    }
+
+    private static Object[] popularArgs(int count, Short genreId, Short mpaId, Integer year) {
+        List<Object> args = new ArrayList<>(5);
+        if (genreId != null) {
+            args.add(genreId);
+        }
+        if (mpaId != null) {
+            args.add(mpaId);
+        }
+        if (year != null) {
+            args.add(Date.valueOf(LocalDate.of(year, 1, 1)));
+            args.add(Date.valueOf(LocalDate.of(year + 1, 1, 1)));
+        }
+        args.add(count);
+        return args.toArray();
+    }
+
+    static String selectFilmsByIds(int count) {
+        return SELECT_FILMS + " WHERE f.id IN (" + placeholders(count) + ")";
+    }
+
+    static String selectFilmSummariesByIds(int count) {
+        return SELECT_FILM_SUMMARIES + " WHERE f.id IN (" + placeholders(count) + ")";
+    }
+
+    static String filmIdFilter(int count) {
+        return " WHERE film_id IN (" + placeholders(count) + ")";
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    // package-private so that FilmDbStorageBenchmark can measure the mapping alone
+    RowMapper<Film> filmRowMapper() {
         return (rs, rowNum) -> {
+            short mpaId = rs.getShort("mpa_rating_id");
+            MpaRating mpa = rs.wasNull() ? null : mpaStorage.getRating(mpaId);
             Film film = new Film(
                     rs.getString("name"),
                     rs.getString("description"),
                     rs.getDate("release_date").toLocalDate(),
                     rs.getInt("duration"),
                     rs.getInt("rate"),
-                    new MpaRating(rs.getShort("mpa_rating_id"), rs.getString("mpa"))
+                    mpa
             );
             film.setId(rs.getInt("id"));
-            if (rs.getString("genres_id") != null) {
-                String[] genreIdsArray = rs.getString("genres_id").split(",");
-                String[] genreNamesArray = rs.getString("genres").split(",");
-                for (int i = 0; i < genreIdsArray.length; i++) {
-                    short genreId = (short) Integer.parseInt(genreIdsArray[i]);
-                    String genreName = genreNamesArray[i];
-                    film.getGenres().add(new Genre(genreId, genreName));
-                }
+            return film;
+        };
+    }
+
+    // package-private so that FilmDbStorageBenchmark can compare it with the full film mapping
+    RowMapper<FilmSummary> filmSummaryRowMapper() {
+        return (rs, rowNum) -> {
+            FilmSummary summary = new FilmSummary();
+            summary.setId(rs.getInt("id"));
+            summary.setName(rs.getString("name"));
+            summary.setDescription(rs.getString("description"));
+            summary.setReleaseDate(rs.getDate("release_date").toLocalDate());
+            summary.setDuration(rs.getInt("duration"));
+            summary.setRate(rs.getInt("rate"));
+            short mpaId = rs.getShort("mpa_rating_id");
+            summary.setMpa(rs.wasNull() ? null : mpaStorage.getRating(mpaId));
+            summary.setLikesCount(rs.getInt("likes_count"));
+            return summary;
+        };
+    }
+
+    /**
+     * Hands each link row, selected as (film_id, ...), to the film it belongs to out of films sorted by id.
+     * Consecutive rows of one film reuse the last match and the next film is probed first, so rows in
+     * film id order, as H2 returns IN-list lookups, cost no search; any other film is found by binary search.
+     * Rows of unknown films are skipped. One handler serves the queries of a film list one after another.
+     */
+    static class FilmLinkRowHandler<T> implements RowCallbackHandler {
+        private final List<T> films;
+        private final int[] ids;
+        private LinkRowConsumer<T> consumer;
+        private int position;
+
+        FilmLinkRowHandler(List<T> films, ToIntFunction<T> idOf) {
+            this.films = new ArrayList<>(films);
+            this.films.sort(Comparator.comparingInt(idOf));
+            this.ids = new int[films.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = idOf.applyAsInt(this.films.get(i));
+            }
+        }
+
+        Object[] filmIds() {
+            Object[] filmIds = new Object[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                filmIds[i] = ids[i];
             }
-            if (rs.getString("likers_id") != null) {
-                String[] likersIdsArray = rs.getString("likers_id").split(",");
-                for (String id : likersIdsArray) {
-                    long likerId = Integer.parseInt(id);
-                    film.getLikers().add(likerId);
+            return filmIds;
+        }
+
+        FilmLinkRowHandler<T> reading(LinkRowConsumer<T> consumer) {
+            this.consumer = consumer;
+            this.position = 0;
+            return this;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            int filmId = rs.getInt(1);
+            if (ids[position] != filmId) {
+                if (position + 1 < ids.length && ids[position + 1] == filmId) {
+                    position++;
+                } else {
+                    int found = Arrays.binarySearch(ids, filmId);
+                    if (found < 0) {
+                        return;
+                    }
+                    position = found;
                 }
             }
-            return film;
-        };
+            consumer.accept(films.get(position), rs);
+        }
+    }
+
+    @FunctionalInterface
+    interface LinkRowConsumer<T> {
+        void accept(T film, ResultSet rs) throws SQLException;
     }
 
+    // rows are set in order, so the genres are walked once instead of being copied for every row
     static class FilmBatchPreparedStatementSetter implements BatchPreparedStatementSetter {
         private final Film film;
+        private final Iterator<Genre> genres;
 
         FilmBatchPreparedStatementSetter(Film film) {
             this.film = film;
+            this.genres = film.getGenres().iterator();
         }
 
         @Override
         public void setValues(PreparedStatement ps, int i) throws SQLException {
-            List<Genre> genres = new ArrayList<>(film.getGenres());
             ps.setInt(1, film.getId());
-            ps.setShort(2, genres.get(i).getId());
+            ps.setShort(2, genres.next().getId());
         }
 
         @Override
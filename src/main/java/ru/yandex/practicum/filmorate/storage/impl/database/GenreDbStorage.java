@@ -1,11 +1,11 @@
 package ru.yandex.practicum.filmorate.storage.impl.database;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.context.annotation.Primary;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.EntityNotFoundException;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.storage.GenreStorage;
@@ -13,17 +13,18 @@ import ru.yandex.practicum.filmorate.storage.GenreStorage;
 import java.util.List;
 
 @Repository
-@Primary
 @RequiredArgsConstructor
 public class GenreDbStorage implements GenreStorage {
     private final JdbcTemplate jdbcTemplate;
 
+    @Transactional(readOnly = true)
     public List<Genre> getAllGenres() {
         String sqlQuery = "SELECT * FROM genres ORDER BY id";
 
         return jdbcTemplate.query(sqlQuery, genreRowMapper());
     }
 
+    @Transactional(readOnly = true)
     public Genre getGenre(short id) {
         if (id <= 0) {
             throw new EntityNotFoundException("Invalid genre ID");
@@ -0,0 +1,205 @@
+package ru.yandex.practicum.filmorate.storage.impl.database;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Times every executed query and data-changing statement as {@value METRIC_NAME}, tagged with its normalized
+ * SQL and outcome ({@code filmorate.jdbc.statement-metrics.enabled}). Literals become {@code ?} and parameter
+ * lists are collapsed to {@code (?)}, so IN-lists of any length share one series. At most
+ * {@code max-labels} statements get a series of their own, any further ones share the {@value OTHER_LABEL} one.
+ * Timers are registered once per statement and outcome and reused. Schema statements such as CREATE or ALTER are not timed.
+ */
+@Component
+public class JdbcStatementMetrics implements BeanPostProcessor {
+    static final String METRIC_NAME = "filmorate.jdbc.statement";
+    static final String OTHER_LABEL = "other";
+    // raw SQL strings whose labels are remembered, the ones beyond are normalized on every execution
+    private static final int MAX_CACHED_SQL = 1024;
+    private static final Pattern LITERAL = Pattern.compile("'(?:[^']|'')*'|\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TIMED_STATEMENT = Pattern.compile("^(SELECT|INSERT|UPDATE|DELETE|MERGE)\\b.*",
+            Pattern.CASE_INSENSITIVE);
+    private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+    private static final String UNTIMED = "";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final boolean enabled;
+    private final int maxLabels;
+    private final Map<String, String> labels = new ConcurrentHashMap<>();
+    private final Set<String> series = ConcurrentHashMap.newKeySet();
+    private final Map<String, Timers> timers = new ConcurrentHashMap<>();
+
+    public JdbcStatementMetrics(ObjectProvider<MeterRegistry> meterRegistry,
+                                @Value("${filmorate.jdbc.statement-metrics.enabled:true}") boolean enabled,
+                                @Value("${filmorate.jdbc.statement-metrics.max-labels:200}") int maxLabels) {
+        if (maxLabels <= 0) {
+            throw new IllegalArgumentException("Statement label limit must be positive");
+        }
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.maxLabels = maxLabels;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!enabled || !(bean instanceof DataSource) || bean instanceof TimedDataSource) {
+            return bean;
+        }
+        return new TimedDataSource((DataSource) bean);
+    }
+
+    /**
+     * The series label of a statement: whitespace, literals and parameter lists collapsed, {@value OTHER_LABEL}
+     * once {@code max-labels} series exist, or an empty string for statements that are not timed.
+     */
+    String label(String sql) {
+        String label = labels.get(sql);
+        if (label != null) {
+            return label;
+        }
+        label = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        label = PARAMETER_LIST.matcher(LITERAL.matcher(label).replaceAll("?")).replaceAll("(?)");
+        if (!TIMED_STATEMENT.matcher(label).matches()) {
+            label = UNTIMED;
+        } else if (!admit(label)) {
+            label = OTHER_LABEL;
+        }
+        if (labels.size() < MAX_CACHED_SQL) {
+            labels.putIfAbsent(sql, label);
+        }
+        return label;
+    }
+
+    private synchronized boolean admit(String label) {
+        return series.contains(label) || series.size() < maxLabels && series.add(label);
+    }
+
+    private Object execute(Object target, Method method, Object[] args, String sql) throws Throwable {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        String label = sql == null ? UNTIMED : label(sql);
+        if (registry == null || label.isEmpty()) {
+            return invoke(target, method, args);
+        }
+        Timers labelTimers = timers.computeIfAbsent(label, key -> new Timers(registry, key));
+        Timer timer = labelTimers.success;
+        long start = System.nanoTime();
+        try {
+            return invoke(target, method, args);
+        } catch (Throwable e) {
+            timer = labelTimers.error();
+            throw e;
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private static String sqlArgument(Object[] args) {
+        return args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+    }
+
+    // the error timer is only registered once a statement fails, so that healthy statements add no empty series
+    private static final class Timers {
+        private final MeterRegistry registry;
+        private final String label;
+        private final Timer success;
+        private volatile Timer error;
+
+        private Timers(MeterRegistry registry, String label) {
+            this.registry = registry;
+            this.label = label;
+            this.success = timer(registry, label, "success");
+        }
+
+        private Timer error() {
+            if (error == null) {
+                // registering is idempotent, racing threads get the same timer
+                error = timer(registry, label, "error");
+            }
+            return error;
+        }
+
+        private static Timer timer(MeterRegistry registry, String label, String outcome) {
+            return Timer.builder(METRIC_NAME)
+                    .tag("sql", label)
+                    .tag("outcome", outcome)
+                    .register(registry);
+        }
+    }
+
+    private final class TimedDataSource extends DelegatingDataSource {
+        private TimedDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return wrap(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return wrap(super.getConnection(username, password));
+        }
+
+        private Connection wrap(Connection connection) {
+            InvocationHandler handler = (proxy, method, args) -> {
+                if (method.getName().equals("equals")) {
+                    return proxy == args[0];
+                }
+                Object result = invoke(connection, method, args);
+                if (result instanceof Statement) {
+                    // prepared statements carry their SQL, plain ones receive it on execute
+                    return wrap((Statement) result, sqlArgument(args));
+                }
+                return result;
+            };
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, handler);
+        }
+
+        private Statement wrap(Statement statement, String preparedSql) {
+            Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                    : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+            InvocationHandler handler = (proxy, method, args) -> {
+                if (!EXECUTE_METHODS.contains(method.getName())) {
+                    return invoke(statement, method, args);
+                }
+                String sql = sqlArgument(args);
+                return execute(statement, method, args, sql != null ? sql : preparedSql);
+            };
+            return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{type}, handler);
+        }
+    }
+}
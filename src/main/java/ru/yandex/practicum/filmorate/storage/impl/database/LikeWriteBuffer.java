@@ -0,0 +1,337 @@
+package ru.yandex.practicum.filmorate.storage.impl.database;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.EntityNotFoundException;
+import ru.yandex.practicum.filmorate.index.CatalogVersions;
+import ru.yandex.practicum.filmorate.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.index.RecommendationIndex;
+import ru.yandex.practicum.filmorate.util.StripedLocks;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opt-in write-behind mode for likes ({@code filmorate.likes.write-behind.enabled=true}).
+ * Likes and unlikes are kept as per-(film, user) pending states that differ from the stored ones
+ * and are flushed on a schedule, on the scheduler thread as soon as {@code max-pending} is reached,
+ * and on shutdown: link rows go in one JDBC batch and every film gets a single aggregated rate update.
+ * Which of the batch's likes are already stored is read up front, one query per {@value IN_LIST_CHUNK_SIZE}
+ * likes, so that only rows that change are written. The flushes share the scheduling pool
+ * ({@code spring.task.scheduling.pool.size}) with short tasks only, which keeps {@code flush-interval-ms}
+ * the bound on how long a like stays unstored.
+ * A batch that fails to commit is merged back into the pending states and retried by the next flush.
+ * The stored state is read before taking the film's lock stripe, so likes of different films never wait
+ * for each other or for the database; a flush committed meanwhile makes the like read it again.
+ * Rows the flush skips because the film or user is gone are undone in the popularity and recommendation
+ * indexes, which FilmService updated when the like was buffered.
+ * Until a flush, reads of films do not show the buffered likes, so the flush changes the films' versions again.
+ */
+@Component
+@Slf4j
+public class LikeWriteBuffer {
+    private static final int LOCK_STRIPES = 64;
+    private static final int IN_LIST_CHUNK_SIZE = 500;
+    // statements are package-private so that QueryPlanInspector can explain them
+    static final String SQL_LIKE_STATE_QUERY = "SELECT" +
+            " (SELECT COUNT(*) FROM films WHERE id = ?)," +
+            " (SELECT COUNT(*) FROM users WHERE id = ?)," +
+            " (SELECT COUNT(*) FROM film_likes WHERE film_id = ? AND user_id = ?)";
+    static final String SQL_SELECT_STORED_LIKES = "SELECT film_id, user_id FROM film_likes";
+    // rows of a film or user deleted since the like was buffered select nothing and are skipped
+    static final String SQL_INSERT_LIKE = "INSERT INTO film_likes (film_id, user_id)" +
+            " SELECT f.id, u.id FROM films AS f, users AS u" +
+            " WHERE f.id = ? AND u.id = ?";
+    static final String SQL_DELETE_LIKE = "DELETE FROM film_likes WHERE film_id = ? AND user_id = ?";
+    static final String SQL_UPDATE_RATE = "UPDATE films SET rate = rate + ?, likes_count = likes_count + ?" +
+            " WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CatalogVersions catalogVersions;
+    // the indexes are built from FilmStorage, which depends on this buffer
+    private final ObjectProvider<FilmPopularityIndex> popularityIndex;
+    private final ObjectProvider<RecommendationIndex> recommendationIndex;
+    private final TaskScheduler taskScheduler;
+    private final boolean enabled;
+    private final int maxPending;
+
+    private final StripedLocks locks = new StripedLocks(LOCK_STRIPES);
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    // bumped when a batch commits, before it leaves flushing, so a stored state read earlier is known stale
+    private final AtomicLong commits = new AtomicLong();
+    // a film's entries in both maps are only touched under the film's stripe, except for the flush reading
+    // its own detached batch; a film leaves flushing only after the batch is committed or merged back
+    private final Map<Integer, Map<Long, Boolean>> pending = new ConcurrentHashMap<>();
+    private final Map<Integer, Map<Long, Boolean>> flushing = new ConcurrentHashMap<>();
+
+    public LikeWriteBuffer(JdbcTemplate jdbcTemplate,
+                           TransactionTemplate transactionTemplate,
+                           CatalogVersions catalogVersions,
+                           ObjectProvider<FilmPopularityIndex> popularityIndex,
+                           ObjectProvider<RecommendationIndex> recommendationIndex,
+                           TaskScheduler taskScheduler,
+                           @Value("${filmorate.likes.write-behind.enabled:false}") boolean enabled,
+                           @Value("${filmorate.likes.write-behind.max-pending:10000}") int maxPending) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.catalogVersions = catalogVersions;
+        this.popularityIndex = popularityIndex;
+        this.recommendationIndex = recommendationIndex;
+        this.taskScheduler = taskScheduler;
+        this.enabled = enabled;
+        this.maxPending = maxPending;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void addLike(int filmId, long userId) {
+        setPendingState(filmId, userId, "Film not found", "User not found", true);
+    }
+
+    public void deleteLike(int filmId, long userId) {
+        String notFoundMessage = "Film or User not found";
+        setPendingState(filmId, userId, notFoundMessage, notFoundMessage, false);
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.likes.write-behind.flush-interval-ms:1000}")
+    @PreDestroy
+    public synchronized void flush() {
+        flushRequested.set(false);
+        if (!enabled || pendingCount.get() == 0) {
+            return;
+        }
+        Map<Integer, Map<Long, Boolean>> batch = new HashMap<>();
+        for (Integer filmId : pending.keySet()) {
+            locks.withLock(filmId, () -> {
+                Map<Long, Boolean> users = pending.remove(filmId);
+                if (users != null) {
+                    flushing.put(filmId, users);
+                    batch.put(filmId, users);
+                    pendingCount.addAndGet(-users.size());
+                }
+            });
+        }
+
+        List<Object[]> rows = new ArrayList<>();
+        List<Object[]> likes = new ArrayList<>();
+        List<Object[]> unlikes = new ArrayList<>();
+        batch.forEach((filmId, users) -> users.forEach((userId, like) -> {
+            Object[] row = new Object[]{filmId, userId};
+            rows.add(row);
+            (like ? likes : unlikes).add(row);
+        }));
+
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        List<Object[]> skippedInserts = new ArrayList<>();
+        List<Object[]> skippedDeletes = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // a like already stored, or an unlike of one that is not, no longer applies and is skipped
+                Map<Integer, Set<Long>> stored = readStoredLikes(rows);
+                for (Object[] row : likes) {
+                    (isStored(stored, row) ? skippedInserts : inserts).add(row);
+                }
+                for (Object[] row : unlikes) {
+                    (isStored(stored, row) ? deletes : skippedDeletes).add(row);
+                }
+                Map<Integer, Integer> rateDeltas = new HashMap<>();
+                applyBatch(SQL_INSERT_LIKE, inserts, 1, rateDeltas, skippedInserts);
+                applyBatch(SQL_DELETE_LIKE, deletes, -1, rateDeltas, skippedDeletes);
+                List<Object[]> rateUpdates = new ArrayList<>();
+                rateDeltas.forEach((filmId, delta) -> {
+                    if (delta != 0) {
+                        rateUpdates.add(new Object[]{delta, delta, filmId});
+                    }
+                });
+                if (!rateUpdates.isEmpty()) {
+                    jdbcTemplate.batchUpdate(SQL_UPDATE_RATE, rateUpdates);
+                }
+            });
+        } catch (RuntimeException e) {
+            mergeBack(batch);
+            log.error("Failed to flush {} likes and {} unlikes, kept for the next flush",
+                    inserts.size(), deletes.size(), e);
+            return;
+        }
+        commits.incrementAndGet();
+        batch.keySet().forEach(filmId -> locks.withLock(filmId, () -> flushing.remove(filmId)));
+        undoSkipped(skippedInserts, skippedDeletes);
+        batch.keySet().forEach(catalogVersions::filmChanged);
+        log.info("Flushed {} likes and {} unlikes", inserts.size(), deletes.size());
+    }
+
+    /**
+     * Reads which of the (film, user) rows are stored, with one query per chunk of rows. A chunk selects the
+     * cross product of its films and users, and rows outside the batch are simply never looked up.
+     */
+    private Map<Integer, Set<Long>> readStoredLikes(List<Object[]> rows) {
+        Map<Integer, Set<Long>> stored = new HashMap<>();
+        for (int from = 0; from < rows.size(); from += IN_LIST_CHUNK_SIZE) {
+            Set<Integer> filmIds = new LinkedHashSet<>();
+            Set<Long> userIds = new LinkedHashSet<>();
+            for (Object[] row : rows.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, rows.size()))) {
+                filmIds.add((Integer) row[0]);
+                userIds.add((Long) row[1]);
+            }
+            List<Object> args = new ArrayList<>(filmIds);
+            args.addAll(userIds);
+            jdbcTemplate.query(selectStoredLikes(filmIds.size(), userIds.size()), rs -> {
+                stored.computeIfAbsent(rs.getInt("film_id"), id -> new HashSet<>()).add(rs.getLong("user_id"));
+            }, args.toArray());
+        }
+        return stored;
+    }
+
+    private static boolean isStored(Map<Integer, Set<Long>> stored, Object[] row) {
+        return stored.getOrDefault((Integer) row[0], Set.of()).contains((Long) row[1]);
+    }
+
+    static String selectStoredLikes(int filmCount, int userCount) {
+        return SQL_SELECT_STORED_LIKES + " WHERE film_id IN (" + placeholders(filmCount) + ")" +
+                " AND user_id IN (" + placeholders(userCount) + ")";
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * Puts a batch that failed to commit back in front of the states buffered since it was taken. A state
+     * buffered meanwhile for the same like was based on the batch's state, so it reverts the batch's change
+     * and both are dropped.
+     */
+    private void mergeBack(Map<Integer, Map<Long, Boolean>> batch) {
+        batch.forEach((filmId, users) -> locks.withLock(filmId, () -> {
+            Map<Long, Boolean> filmPending = pending.computeIfAbsent(filmId, id -> new HashMap<>());
+            users.forEach((userId, like) -> {
+                if (filmPending.remove(userId) != null) {
+                    pendingCount.decrementAndGet();
+                } else {
+                    filmPending.put(userId, like);
+                    pendingCount.incrementAndGet();
+                }
+            });
+            if (filmPending.isEmpty()) {
+                pending.remove(filmId);
+            }
+            flushing.remove(filmId);
+        }));
+    }
+
+    /**
+     * The skipped likes are not stored, so the indexes drop them again: a skipped like no longer counts
+     * towards the film's rate, and a skipped unlike gives the rate point back, the like row was already gone.
+     */
+    private void undoSkipped(List<Object[]> skippedInserts, List<Object[]> skippedDeletes) {
+        if (skippedInserts.isEmpty() && skippedDeletes.isEmpty()) {
+            return;
+        }
+        FilmPopularityIndex popularity = popularityIndex.getObject();
+        RecommendationIndex recommendations = recommendationIndex.getObject();
+        for (Object[] row : skippedInserts) {
+            popularity.addToRate((Integer) row[0], -1);
+            recommendations.removeLike((Integer) row[0], (Long) row[1]);
+        }
+        for (Object[] row : skippedDeletes) {
+            popularity.addToRate((Integer) row[0], 1);
+        }
+        log.info("Skipped {} likes and {} unlikes of deleted films or users",
+                skippedInserts.size(), skippedDeletes.size());
+    }
+
+    private void applyBatch(String sqlQuery, List<Object[]> rows, int sign, Map<Integer, Integer> rateDeltas,
+                            List<Object[]> skipped) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        int[] updateCounts = jdbcTemplate.batchUpdate(sqlQuery, rows);
+        for (int i = 0; i < updateCounts.length; i++) {
+            // rows that no longer apply (deleted film or user) are skipped by the SQL
+            if (updateCounts[i] > 0) {
+                rateDeltas.merge((Integer) rows.get(i)[0], sign, Integer::sum);
+            } else {
+                skipped.add(rows.get(i));
+            }
+        }
+    }
+
+    /**
+     * Returns whether the stored like exists, checking that both film and user exist in the same round trip.
+     */
+    private boolean readLikeState(int filmId, long userId, String filmNotFound, String userNotFound) {
+        return jdbcTemplate.queryForObject(SQL_LIKE_STATE_QUERY, (rs, rowNum) -> {
+            if (rs.getInt(1) == 0) {
+                throw new EntityNotFoundException(filmNotFound);
+            }
+            if (rs.getInt(2) == 0) {
+                throw new EntityNotFoundException(userNotFound);
+            }
+            return rs.getInt(3) > 0;
+        }, filmId, userId, filmId, userId);
+    }
+
+    private void setPendingState(int filmId, long userId, String filmNotFound, String userNotFound, boolean like) {
+        int delta;
+        while (true) {
+            long commitsBefore = commits.get();
+            boolean storedLike = readLikeState(filmId, userId, filmNotFound, userNotFound);
+            Integer applied = locks.withLock(filmId, () -> {
+                // a batch committed since the read may have changed the stored like and already left flushing
+                if (commits.get() != commitsBefore) {
+                    return null;
+                }
+                Boolean inFlight = flushing.getOrDefault(filmId, Map.of()).get(userId);
+                boolean baseLike = inFlight != null ? inFlight : storedLike;
+                Map<Long, Boolean> filmPending = pending.get(filmId);
+                Boolean current = filmPending != null ? filmPending.get(userId) : null;
+                boolean currentLike = current != null ? current : baseLike;
+                if (currentLike == like) {
+                    if (like) {
+                        throw new IllegalArgumentException("User already likes this Film");
+                    }
+                    throw new EntityNotFoundException("Film or User not found");
+                }
+                if (current != null) {
+                    // the pending state differs from the base and is flipped back to it
+                    filmPending.remove(userId);
+                    if (filmPending.isEmpty()) {
+                        pending.remove(filmId);
+                    }
+                    return -1;
+                }
+                pending.computeIfAbsent(filmId, id -> new HashMap<>()).put(userId, like);
+                return 1;
+            });
+            if (applied != null) {
+                delta = applied;
+                break;
+            }
+        }
+        if (pendingCount.addAndGet(delta) >= maxPending && delta > 0 && flushRequested.compareAndSet(false, true)) {
+            taskScheduler.schedule(this::flush, Instant.now());
+        }
+    }
+}
@@ -1,11 +1,11 @@
 package ru.yandex.practicum.filmorate.storage.impl.database;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.context.annotation.Primary;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.EntityNotFoundException;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 import ru.yandex.practicum.filmorate.storage.MpaStorage;
@@ -13,17 +13,18 @@ import ru.yandex.practicum.filmorate.storage.MpaStorage;
 import java.util.List;
 
 @Repository
-@Primary
 @RequiredArgsConstructor
 public class MpaDbStorage implements MpaStorage {
     private final JdbcTemplate jdbcTemplate;
 
+    @Transactional(readOnly = true)
     public List<MpaRating> getAllRatings() {
         String sqlQuery = "SELECT * FROM mpa_ratings ORDER BY id";
 
         return jdbcTemplate.query(sqlQuery, mpaRowMapper());
     }
 
+    @Transactional(readOnly = true)
     public MpaRating getRating(short id) {
         if (id <= 0) {
             throw new EntityNotFoundException("Invalid MPA Rating ID");
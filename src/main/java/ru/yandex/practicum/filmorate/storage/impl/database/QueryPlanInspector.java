@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.storage.impl.database;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.QueryPlanReport;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Asks H2 for the plan of every statement FilmDbStorage, UserDbStorage and LikeWriteBuffer issue, with sample
+ * arguments.
+ * Queries are run with EXPLAIN ANALYZE, so their plans carry actual scan counts; data-changing statements
+ * are only explained and never executed. Cascading deletes triggered by the foreign keys do not show up in plans.
+ */
+@Component
+@RequiredArgsConstructor
+public class QueryPlanInspector {
+    private static final Date SAMPLE_DATE = Date.valueOf("2000-01-01");
+    private static final Date SAMPLE_NEXT_YEAR = Date.valueOf("2001-01-01");
+    private static final List<Statement> STATEMENTS = List.of(
+            new Statement("FilmDbStorage.getAllFilms", FilmDbStorage.SQL_SELECT_ALL_FILMS),
+            new Statement("FilmDbStorage.getFilmsAfter", FilmDbStorage.SQL_SELECT_FILMS_AFTER, 0, 100),
+            new Statement("FilmDbStorage.getFilm", FilmDbStorage.SQL_SELECT_FILM, 1),
+            new Statement("FilmDbStorage.getFilms", FilmDbStorage.selectFilmsByIds(3), 1, 2, 3),
+            new Statement("FilmDbStorage.getPopular", FilmDbStorage.SQL_SELECT_POPULAR, 10),
+            new Statement("FilmDbStorage.getPopular (genre)",
+                    FilmDbStorage.selectPopular(true, false, false), 1, 10),
+            new Statement("FilmDbStorage.getPopular (MPA rating)",
+                    FilmDbStorage.selectPopular(false, true, false), 1, 10),
+            new Statement("FilmDbStorage.getPopular (year)",
+                    FilmDbStorage.selectPopular(false, false, true), SAMPLE_DATE, SAMPLE_NEXT_YEAR, 10),
+            new Statement("FilmDbStorage.getPopular (genre, MPA rating and year)",
+                    FilmDbStorage.selectPopular(true, true, true), 1, 1, SAMPLE_DATE, SAMPLE_NEXT_YEAR, 10),
+            new Statement("FilmDbStorage.getAllFilmSummaries", FilmDbStorage.SQL_SELECT_ALL_FILM_SUMMARIES),
+            new Statement("FilmDbStorage.getFilmSummariesAfter", FilmDbStorage.SQL_SELECT_FILM_SUMMARIES_AFTER, 0, 100),
+            new Statement("FilmDbStorage.getFilmSummaries", FilmDbStorage.selectFilmSummariesByIds(3), 1, 2, 3),
+            new Statement("FilmDbStorage.getLikedFilmIds", FilmDbStorage.SQL_SELECT_LIKED_FILM_IDS),
+            new Statement("FilmDbStorage.loadGenres (all films)", FilmDbStorage.SQL_SELECT_GENRE_ROWS),
+            new Statement("FilmDbStorage.loadGenres (by film ids)",
+                    FilmDbStorage.SQL_SELECT_GENRE_ROWS + FilmDbStorage.filmIdFilter(3), 1, 2, 3),
+            new Statement("FilmDbStorage.loadLikers (all films)", FilmDbStorage.SQL_SELECT_LIKER_ROWS),
+            new Statement("FilmDbStorage.loadLikers (by film ids)",
+                    FilmDbStorage.SQL_SELECT_LIKER_ROWS + FilmDbStorage.filmIdFilter(3), 1, 2, 3),
+            new Statement("FilmDbStorage.addFilm", FilmDbStorage.SQL_INSERT_FILM,
+                    "name", "description", SAMPLE_DATE, 100, 0, 1),
+            new Statement("FilmDbStorage.addFilm (genres)", FilmDbStorage.SQL_INSERT_FILM_GENRE, 1, 1),
+            new Statement("FilmDbStorage.updateFilm", FilmDbStorage.SQL_UPDATE_FILM,
+                    "name", "description", SAMPLE_DATE, 100, 0, 1, 1),
+            new Statement("FilmDbStorage.updateFilm (genres)", FilmDbStorage.SQL_DELETE_FILM_GENRES, 1),
+            new Statement("FilmDbStorage.deleteFilm", FilmDbStorage.SQL_DELETE_FILM, 1),
+            new Statement("FilmDbStorage.addLike", FilmDbStorage.SQL_INSERT_LIKE, 1, 1),
+            new Statement("FilmDbStorage.addLike (rate)", FilmDbStorage.SQL_INCREMENT_RATE, 1),
+            new Statement("FilmDbStorage.deleteLike", FilmDbStorage.SQL_DELETE_LIKE, 1, 1),
+            new Statement("FilmDbStorage.deleteLike (rate)", FilmDbStorage.SQL_DECREMENT_RATE, 1),
+            new Statement("LikeWriteBuffer.addLike (like state)", LikeWriteBuffer.SQL_LIKE_STATE_QUERY, 1, 1, 1, 1),
+            new Statement("LikeWriteBuffer.flush (stored likes)", LikeWriteBuffer.selectStoredLikes(2, 2), 1, 2, 1, 2),
+            new Statement("LikeWriteBuffer.flush (likes)", LikeWriteBuffer.SQL_INSERT_LIKE, 1, 1),
+            new Statement("LikeWriteBuffer.flush (unlikes)", LikeWriteBuffer.SQL_DELETE_LIKE, 1, 1),
+            new Statement("LikeWriteBuffer.flush (rates)", LikeWriteBuffer.SQL_UPDATE_RATE, 1, 1, 1),
+            new Statement("UserDbStorage.getAllUsers", UserDbStorage.SQL_SELECT_ALL_USERS),
+            new Statement("UserDbStorage.getUsersAfter", UserDbStorage.SQL_SELECT_USERS_AFTER, 0, 100),
+            new Statement("UserDbStorage.streamUsers", UserDbStorage.SQL_STREAM_USERS),
+            new Statement("UserDbStorage.getUser", UserDbStorage.SQL_SELECT_USER, 1),
+            new Statement("UserDbStorage.getUsers", UserDbStorage.selectUsersByIds(3), 1, 2, 3),
+            new Statement("UserDbStorage.getFriends", UserDbStorage.SQL_SELECT_FRIENDS, 1),
+            new Statement("UserDbStorage.getFriendIds", UserDbStorage.SQL_SELECT_FRIEND_IDS),
+            new Statement("UserDbStorage.addUser", UserDbStorage.SQL_INSERT_USER,
+                    "email@mail.ru", "login", "name", SAMPLE_DATE),
+            new Statement("UserDbStorage.updateUser", UserDbStorage.SQL_UPDATE_USER,
+                    "email@mail.ru", "login", "name", SAMPLE_DATE, 1),
+            new Statement("UserDbStorage.deleteUser (like counts)", UserDbStorage.SQL_UNCOUNT_USER_LIKES, 1),
+            new Statement("UserDbStorage.deleteUser", UserDbStorage.SQL_DELETE_USER, 1),
+            new Statement("UserDbStorage.addFriend", UserDbStorage.SQL_INSERT_FRIEND, 1, 2),
+            new Statement("UserDbStorage.deleteFriend", UserDbStorage.SQL_DELETE_FRIEND, 1, 2)
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<QueryPlanReport> inspect() {
+        List<QueryPlanReport> reports = new ArrayList<>(STATEMENTS.size());
+        for (Statement statement : STATEMENTS) {
+            String explain = (statement.sql.startsWith("SELECT") ? "EXPLAIN ANALYZE " : "EXPLAIN ") + statement.sql;
+            String plan = jdbcTemplate.queryForObject(explain, String.class, statement.args);
+            reports.add(new QueryPlanReport(statement.name, statement.sql, plan, plan.contains(".tableScan")));
+        }
+        return reports;
+    }
+
+    private static final class Statement {
+        private final String name;
+        private final String sql;
+        private final Object[] args;
+
+        private Statement(String name, String sql, Object... args) {
+            this.name = name;
+            this.sql = sql;
+            this.args = args;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.storage.impl.database;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends the statements of read-only transactions ({@code @Transactional(readOnly = true)}) to a read replica,
+ * picked round-robin, and everything else to the primary. A replica is only picked when it has applied the
+ * write position the current thread requires (see ReadYourWritesFilter) and its snapshot is at most
+ * {@code maxLagMs} old; reads fall back to the primary otherwise. Has to sit behind a
+ * LazyConnectionDataSourceProxy, so that the connection is taken after the transaction is marked read-only.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    private static final String PRIMARY = "primary";
+    private static final ThreadLocal<Long> REQUIRED_POSITION = ThreadLocal.withInitial(() -> 0L);
+
+    private final List<ReplicaSet.Replica> replicas;
+    private final long maxLagNanos;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    public ReadWriteRoutingDataSource(ReplicaSet replicaSet, long maxLagMs) {
+        this.replicas = replicaSet.getReplicas();
+        this.maxLagNanos = TimeUnit.MILLISECONDS.toNanos(maxLagMs);
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, replicaSet.getWriteTrackingPrimary());
+        replicas.forEach(replica -> targets.put(replica.getName(), replica.getDataSource()));
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(replicaSet.getWriteTrackingPrimary());
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Makes reads of the current thread skip replicas that have not applied the write position given.
+     */
+    public static void setRequiredPosition(long position) {
+        REQUIRED_POSITION.set(position);
+    }
+
+    /**
+     * Like {@link #setRequiredPosition(long)}, but never lowers the position the current thread already requires.
+     */
+    public static void requirePosition(long position) {
+        if (position > REQUIRED_POSITION.get()) {
+            REQUIRED_POSITION.set(position);
+        }
+    }
+
+    public static void clearRequiredPosition() {
+        REQUIRED_POSITION.remove();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicas.isEmpty() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        long requiredPosition = REQUIRED_POSITION.get();
+        int first = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            ReplicaSet.Replica replica = replicas.get((first + i) % replicas.size());
+            if (replica.isUsable(requiredPosition, maxLagNanos)) {
+                return replica.getName();
+            }
+        }
+        return PRIMARY;
+    }
+}
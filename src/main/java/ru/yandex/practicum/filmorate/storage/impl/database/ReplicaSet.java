@@ -0,0 +1,151 @@
+package ru.yandex.practicum.filmorate.storage.impl.database;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Connection pools of the primary database and its read replicas, with the state that routing needs:
+ * the write position of the primary, bumped whenever one of its connections is closed and so after every commit,
+ * and the position each replica has applied, see ReplicaSync. Positions only count within one application run.
+ */
+public class ReplicaSet implements AutoCloseable {
+    private final HikariDataSource primary;
+    private final DataSource writeTrackingPrimary;
+    private final List<Replica> replicas;
+    private final AtomicLong writePosition = new AtomicLong();
+
+    public ReplicaSet(HikariDataSource primary, List<HikariDataSource> replicaPools) {
+        this.primary = primary;
+        this.writeTrackingPrimary = new WriteTrackingDataSource(primary);
+        this.replicas = replicaPools.stream().map(Replica::new).collect(Collectors.toUnmodifiableList());
+    }
+
+    /**
+     * The primary pool itself, for reads that must not move the write position.
+     */
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    /**
+     * The primary pool handing out connections that bump the write position when closed.
+     */
+    public DataSource getWriteTrackingPrimary() {
+        return writeTrackingPrimary;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    public long getWritePosition() {
+        return writePosition.get();
+    }
+
+    /**
+     * Publishes the Hikari metrics of every pool. The pools are not beans, so Boot's DataSource metrics miss
+     * the replicas, and only reach the primary by unwrapping the application's DataSource.
+     */
+    public void bindMetrics(MeterRegistry registry) {
+        bindMetrics(primary, registry);
+        replicas.forEach(replica -> bindMetrics(replica.pool, registry));
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.pool.close());
+        primary.close();
+    }
+
+    public static final class Replica {
+        private final HikariDataSource pool;
+        private volatile boolean synced;
+        private volatile long appliedPosition;
+        private volatile long snapshotNanos;
+
+        private Replica(HikariDataSource pool) {
+            this.pool = pool;
+        }
+
+        public String getName() {
+            return pool.getPoolName();
+        }
+
+        public DataSource getDataSource() {
+            return pool;
+        }
+
+        /**
+         * Whether the replica holds every write up to {@code requiredPosition} and its snapshot of the primary
+         * was taken at most {@code maxLagNanos} ago.
+         */
+        public boolean isUsable(long requiredPosition, long maxLagNanos) {
+            return synced && appliedPosition >= requiredPosition && System.nanoTime() - snapshotNanos <= maxLagNanos;
+        }
+
+        void markSynced(long position, long snapshotNanos) {
+            this.appliedPosition = position;
+            this.snapshotNanos = snapshotNanos;
+            this.synced = true;
+        }
+    }
+
+    private final class WriteTrackingDataSource extends DelegatingDataSource {
+        private WriteTrackingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return track(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return track(super.getConnection(username, password));
+        }
+
+        private Connection track(Connection connection) {
+            InvocationHandler handler = (proxy, method, args) -> {
+                if (method.getName().equals("equals")) {
+                    return proxy == args[0];
+                }
+                Object result = invoke(connection, method, args);
+                if (method.getName().equals("close")) {
+                    // reads count as well: a position ahead of the actual writes only sends reads to the primary
+                    writePosition.incrementAndGet();
+                }
+                return result;
+            };
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, handler);
+        }
+    }
+
+    private static void bindMetrics(HikariDataSource pool, MeterRegistry registry) {
+        // a pool takes a registry only once, Boot may have bound the primary already
+        if (pool.getMetricRegistry() == null && pool.getMetricsTrackerFactory() == null) {
+            pool.setMetricRegistry(registry);
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
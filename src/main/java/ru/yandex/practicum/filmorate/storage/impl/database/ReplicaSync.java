@@ -0,0 +1,114 @@
+package ru.yandex.practicum.filmorate.storage.impl.database;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stand-in for database replication, so that read replicas can be run locally: replicas get the schema from
+ * the primary's migrations, and every {@code filmorate.replicas.sync-interval-ms} each one is overwritten with
+ * a snapshot of the primary. The snapshot is read in one serializable transaction (H2's repeatable read shows
+ * rows other transactions add to tables not read yet) and written in one replica transaction, so readers of
+ * a replica see either the old or the new copy. The write position read before the snapshot becomes the
+ * replica's applied position.
+ * <p>
+ * Every row is copied on every run, and the snapshot transaction holds the primary's tables for as long as the
+ * copy takes, so a run costs time proportional to the whole database, not to the changes since the last one.
+ * That only suits small local databases: once a run takes longer than {@code filmorate.replicas.max-lag-ms},
+ * no replica is ever recent enough and every read goes to the primary. Runs taking longer than the sync
+ * interval are logged, and the replica pools' metrics show how much of the read load the replicas still take.
+ */
+@Slf4j
+public class ReplicaSync {
+    // parents first, so that rows are inserted after the rows they reference and deleted before them
+    static final List<String> TABLES = List.of("mpa_ratings", "genres", "films", "users",
+            "film_genres", "film_likes", "user_friends");
+    private static final RowMapper<Object[]> ROW_MAPPER = (rs, rowNum) -> {
+        Object[] row = new Object[rs.getMetaData().getColumnCount()];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = rs.getObject(i + 1);
+        }
+        return row;
+    };
+
+    private final ReplicaSet replicaSet;
+    private final Flyway flyway;
+    private final JdbcTemplate primaryJdbcTemplate;
+    private final TransactionTemplate snapshotTransaction;
+    private final long syncIntervalMs;
+
+    public ReplicaSync(ReplicaSet replicaSet, Flyway flyway, long syncIntervalMs) {
+        this.replicaSet = replicaSet;
+        this.flyway = flyway;
+        this.syncIntervalMs = syncIntervalMs;
+        this.primaryJdbcTemplate = new JdbcTemplate(replicaSet.getPrimary());
+        this.snapshotTransaction = new TransactionTemplate(new DataSourceTransactionManager(replicaSet.getPrimary()));
+        snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_SERIALIZABLE);
+        snapshotTransaction.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void migrateReplicas() {
+        for (ReplicaSet.Replica replica : replicaSet.getReplicas()) {
+            Flyway.configure()
+                    .configuration(flyway.getConfiguration())
+                    .dataSource(replica.getDataSource())
+                    .load()
+                    .migrate();
+        }
+        sync();
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.replicas.sync-interval-ms:1000}",
+            fixedDelayString = "${filmorate.replicas.sync-interval-ms:1000}")
+    public synchronized void sync() {
+        for (ReplicaSet.Replica replica : replicaSet.getReplicas()) {
+            try {
+                sync(replica);
+            } catch (DataAccessException | TransactionException e) {
+                // the replica keeps its old copy and is skipped by reads once that is too old
+                log.warn("Replica {} not synchronized: {}", replica.getName(), e.getMessage());
+            }
+        }
+    }
+
+    private void sync(ReplicaSet.Replica replica) {
+        long position = replicaSet.getWritePosition();
+        long snapshotNanos = System.nanoTime();
+        DataSource dataSource = replica.getDataSource();
+        JdbcTemplate replicaJdbcTemplate = new JdbcTemplate(dataSource);
+        TransactionTemplate replicaTransaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        snapshotTransaction.executeWithoutResult(snapshot -> replicaTransaction.executeWithoutResult(status -> {
+            for (int i = TABLES.size() - 1; i >= 0; i--) {
+                replicaJdbcTemplate.update("DELETE FROM " + TABLES.get(i));
+            }
+            for (String table : TABLES) {
+                List<Object[]> rows = primaryJdbcTemplate.query("SELECT * FROM " + table, ROW_MAPPER);
+                if (!rows.isEmpty()) {
+                    String placeholders = String.join(", ", Collections.nCopies(rows.get(0).length, "?"));
+                    replicaJdbcTemplate.batchUpdate("INSERT INTO " + table + " VALUES (" + placeholders + ")", rows);
+                }
+            }
+        }));
+        replica.markSynced(position, snapshotNanos);
+        long tookMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - snapshotNanos);
+        if (tookMs > syncIntervalMs) {
+            log.warn("Replica {} took {} ms to synchronize, longer than the sync interval of {} ms: full copies "
+                    + "do not suit a database of this size", replica.getName(), tookMs, syncIntervalMs);
+        }
+        log.debug("Replica {} synchronized up to write position {}", replica.getName(), position);
+    }
+}
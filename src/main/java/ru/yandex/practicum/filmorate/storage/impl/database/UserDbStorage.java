@@ -1,56 +1,126 @@
 package ru.yandex.practicum.filmorate.storage.impl.database;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Primary;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import ru.yandex.practicum.filmorate.exception.EntityNotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.sql.Date;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.function.Consumer;
 
 @Repository
 @Primary
-@RequiredArgsConstructor
 @Slf4j
 public class UserDbStorage implements UserStorage {
+    private static final int IN_LIST_CHUNK_SIZE = 500;
+
+    // statements are package-private so that QueryPlanInspector can explain them
+    static final String SQL_SELECT_ALL_USERS = "SELECT * FROM users GROUP BY id";
+    static final String SQL_SELECT_USERS_AFTER = "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?";
+    static final String SQL_STREAM_USERS = "SELECT * FROM users ORDER BY id";
+    static final String SQL_SELECT_USER = "SELECT * FROM users WHERE id = ?";
+    static final String SQL_SELECT_FRIENDS = "SELECT u.id, u.email, u.login, u.name, u.birthday" +
+            " FROM user_friends AS uf" +
+            " JOIN users AS u ON u.id = uf.friend_id" +
+            " WHERE user_id = ?";
+    static final String SQL_SELECT_FRIEND_IDS = "SELECT u.id, uf.friend_id FROM users AS u" +
+            " LEFT JOIN user_friends AS uf ON uf.user_id = u.id" +
+            " ORDER BY u.id, uf.friend_id";
+    static final String SQL_INSERT_USER = "INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)";
+    static final String SQL_UPDATE_USER = "UPDATE users SET " +
+            "email = ?, login = ?, name = ?, birthday = ? " +
+            "WHERE id = ?";
+    static final String SQL_UNCOUNT_USER_LIKES = "UPDATE films SET likes_count = likes_count - 1" +
+            " WHERE id IN (SELECT film_id FROM film_likes WHERE user_id = ?)";
+    static final String SQL_DELETE_USER = "DELETE FROM users WHERE id = ?";
+    static final String SQL_INSERT_FRIEND = "INSERT INTO user_friends VALUES (?, ?)";
+    static final String SQL_DELETE_FRIEND = "DELETE FROM user_friends WHERE user_id = ? AND friend_id = ?";
+
     private final JdbcTemplate jdbcTemplate;
+    private final SimpleJdbcInsert userInsert;
+
+    public UserDbStorage(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        // compiled once on first use instead of reading the table metadata on every insert
+        this.userInsert = new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName("users")
+                .usingGeneratedKeyColumns("id");
+    }
 
     @Override
+    @Transactional(readOnly = true)
     public List<User> getAllUsers() {
-        String sqlQuery = "SELECT * FROM users GROUP BY id";
-        return jdbcTemplate.query(sqlQuery, userRowMapper());
+        return jdbcTemplate.query(SQL_SELECT_ALL_USERS, userRowMapper());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<User> getUsersAfter(long afterId, int limit) {
+        return jdbcTemplate.query(SQL_SELECT_USERS_AFTER, userRowMapper(), afterId, limit);
     }
 
     @Override
+    public void streamUsers(Consumer<User> action) {
+        RowMapper<User> rowMapper = userRowMapper();
+        jdbcTemplate.query(SQL_STREAM_USERS, (RowCallbackHandler) rs -> action.accept(rowMapper.mapRow(rs, rs.getRow())));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public User getUser(long id) {
-        String sqlQuery = "SELECT * FROM users WHERE id = ?";
         try {
-            return jdbcTemplate.queryForObject(sqlQuery, userRowMapper(), id);
+            return jdbcTemplate.queryForObject(SQL_SELECT_USER, userRowMapper(), id);
         } catch (EmptyResultDataAccessException e) {
             throw new EntityNotFoundException("User not found");
         }
     }
 
+    /**
+     * Returns the users in the order of {@code ids}, skipping unknown ids. Distinct ids are read in chunks of
+     * at most {@value IN_LIST_CHUNK_SIZE}, as in FilmDbStorage.
+     */
     @Override
-    public List<User> getFriends(long id) {
-        String sqlQuery = "SELECT u.id, u.email, u.login, u.name, u.birthday" +
-                " FROM user_friends AS uf" +
-                " JOIN users AS u ON u.id = uf.friend_id" +
-                " WHERE user_id = ?";
+    @Transactional(readOnly = true)
+    public List<User> getUsers(Collection<Long> ids) {
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<Long, User> usersById = new HashMap<>();
+        for (int from = 0; from < distinctIds.size(); from += IN_LIST_CHUNK_SIZE) {
+            List<Long> chunk = distinctIds.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, distinctIds.size()));
+            for (User user : jdbcTemplate.query(selectUsersByIds(chunk.size()), userRowMapper(), chunk.toArray())) {
+                usersById.put(user.getId(), user);
+            }
+        }
+        List<User> users = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            User user = usersById.get(id);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<User> getFriends(long id) {
         try {
-            return jdbcTemplate.query(sqlQuery, userRowMapper(), id);
+            return jdbcTemplate.query(SQL_SELECT_FRIENDS, userRowMapper(), id);
         } catch (EmptyResultDataAccessException e) {
             throw new EntityNotFoundException("User not found");
         }
@@ -58,22 +128,49 @@ public class UserDbStorage implements UserStorage {
 
     @Override
     public User addUser(User user) {
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
-                .withTableName("users")
-                .usingGeneratedKeyColumns("id");
-        user.setId(simpleJdbcInsert.executeAndReturnKey(userToMap(user)).longValue());
+        user.setId(userInsert.executeAndReturnKey(userToMap(user)).longValue());
         log.info("User created");
         return user;
     }
 
+    /**
+     * Inserts the users with one JDBC batch reading back the generated ids.
+     */
     @Override
-    public User updateUser(User user) {
-        String sqlQuery = "UPDATE users SET " +
-                "email = ?, login = ?, name = ?, birthday = ? " +
-                "WHERE id = ?";
+    @Transactional
+    public List<User> addUsers(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(SQL_INSERT_USER, new String[]{"id"})) {
+                for (User user : users) {
+                    ps.setString(1, user.getEmail());
+                    ps.setString(2, user.getLogin());
+                    ps.setString(3, user.getName());
+                    ps.setDate(4, Date.valueOf(user.getBirthday()));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (User user : users) {
+                        if (!keys.next()) {
+                            throw new SQLException("Generated user id missing");
+                        }
+                        user.setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+        log.info("{} users created", users.size());
+        return users;
+    }
 
+    @Override
+    public User updateUser(User user) {
         if (jdbcTemplate.update(
-                sqlQuery,
+                SQL_UPDATE_USER,
                 user.getEmail(),
                 user.getLogin(),
                 user.getName(),
@@ -87,10 +184,11 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
+    @Transactional
     public void deleteUser(long userId) {
-        String sqlQuery = "DELETE FROM users WHERE id = ?";
-
-        if (jdbcTemplate.update(sqlQuery, userId) == 0) {
+        // the user's likes go with the cascade, the like counts of their films are taken down first
+        jdbcTemplate.update(SQL_UNCOUNT_USER_LIKES, userId);
+        if (jdbcTemplate.update(SQL_DELETE_USER, userId) == 0) {
             throw new EntityNotFoundException("User not found");
         }
         log.info("User deleted");
@@ -98,10 +196,8 @@ public class UserDbStorage implements UserStorage {
 
     @Override
     public void addFriend(long userId, long friendId) {
-        String sqlQuery = "INSERT INTO user_friends VALUES (?, ?)";
-
         try {
-            jdbcTemplate.update(sqlQuery, userId, friendId);
+            jdbcTemplate.update(SQL_INSERT_FRIEND, userId, friendId);
         } catch (DataIntegrityViolationException e) {
             if (e.getMessage().contains("CONSTRAINT_BD:")) {
                 throw new EntityNotFoundException("User not found");
@@ -110,7 +206,7 @@ public class UserDbStorage implements UserStorage {
             } else if (e.getMessage().contains("Unique index or primary key violation")) {
                 throw new IllegalArgumentException("Users are already friends");
             } else {
-                throw new RuntimeException(e.getMessage());
+                throw new RuntimeException(e.getMessage(), e);
             }
         }
         log.info("Friend added");
@@ -118,34 +214,50 @@ public class UserDbStorage implements UserStorage {
 
     @Override
     public void deleteFriend(long userId, long friendId) {
-        String sqlQuery = "DELETE FROM user_friends WHERE user_id = ? AND friend_id = ?";
-
-        if (jdbcTemplate.update(sqlQuery, userId, friendId) == 0) {
+        if (jdbcTemplate.update(SQL_DELETE_FRIEND, userId, friendId) == 0) {
             throw new EntityNotFoundException("User(s) not found");
         }
         log.info("Friend deleted");
     }
 
     @Override
-    public List<User> getCommonFriends(long user1Id, long user2Id) {
-        String sqlQuery = "SELECT u.* FROM users u" +
-                " JOIN user_friends uf1 ON u.id = uf1.friend_id JOIN user_friends uf2 ON uf1.friend_id = uf2.friend_id" +
-                " WHERE uf1.user_id = ? AND uf2.user_id = ?";
-        List<User> commonFriends = jdbcTemplate.query(sqlQuery, userRowMapper(), user1Id, user2Id);
-
-        if (commonFriends.isEmpty()) {
-            List<User> users = jdbcTemplate.query("SELECT * FROM users WHERE id IN (?, ?)",
-                    userRowMapper(), user1Id, user2Id);
-            if (users.size() < 2) {
-                throw new EntityNotFoundException("User(s) not found");
-            } else {
-                return commonFriends;
+    public Map<Long, long[]> getFriendIds() {
+        // rows come grouped by user, each group is copied out once the next user starts
+        return jdbcTemplate.query(SQL_SELECT_FRIEND_IDS, (ResultSetExtractor<Map<Long, long[]>>) rs -> {
+            Map<Long, long[]> friendIds = new HashMap<>();
+            long[] buffer = new long[16];
+            int size = 0;
+            long userId = -1;
+            while (rs.next()) {
+                long id = rs.getLong("id");
+                if (id != userId) {
+                    if (userId != -1) {
+                        friendIds.put(userId, Arrays.copyOf(buffer, size));
+                    }
+                    userId = id;
+                    size = 0;
+                }
+                long friendId = rs.getLong("friend_id");
+                if (!rs.wasNull()) {
+                    if (size == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, size * 2);
+                    }
+                    buffer[size++] = friendId;
+                }
             }
-        }
-        return commonFriends;
+            if (userId != -1) {
+                friendIds.put(userId, Arrays.copyOf(buffer, size));
+            }
+            return friendIds;
+        });
+    }
+
+    static String selectUsersByIds(int count) {
+        return "SELECT * FROM users WHERE id IN (" + String.join(", ", Collections.nCopies(count, "?")) + ")";
     }
 
-    private RowMapper<User> userRowMapper() {
+    // package-private so that UserDbStorageBenchmark can measure the mapping alone
+    RowMapper<User> userRowMapper() {
         return (rs, rowNum) -> {
             User user = new User(
                     rs.getString("email"),
@@ -5,89 +5,236 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.EntityNotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.util.StripedLocks;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+/**
+ * Films are mutated only under their stripe lock, and every read returns a copy taken under that lock,
+ * so callers never observe (or serialize) a film while another request changes it.
+ */
 @Component
 @Slf4j
 @RequiredArgsConstructor
 public class InMemoryFilmStorage implements FilmStorage {
+    private static final int LOCK_STRIPES = 64;
 
-    private int id = 0;
-    private final Map<Integer, Film> films = new HashMap<>();
+    private final AtomicInteger id = new AtomicInteger();
+    private final Map<Integer, Film> films = new ConcurrentHashMap<>();
+    private final StripedLocks locks = new StripedLocks(LOCK_STRIPES);
     private final UserStorage userStorage;
 
     @Override
     public List<Film> getAllFilms() {
         log.info("Films list requested");
-        return new ArrayList<>(films.values());
+        return films.values().stream().map(this::copyOf).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Film> getFilmsAfter(int afterId, int limit) {
+        return films.values().stream()
+                .filter(film -> film.getId() > afterId)
+                .sorted(Comparator.comparingInt(Film::getId))
+                .limit(limit)
+                .map(this::copyOf)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void streamFilms(Consumer<Film> action) {
+        films.values().stream().map(this::copyOf).forEach(action);
     }
 
     @Override
     public Film getFilm(int id) {
-        validateFilmId(id);
+        Film film = copyOf(findFilm(id));
         log.info("Film requested");
-        return films.get(id);
+        return film;
+    }
+
+    @Override
+    public List<Film> getFilms(Collection<Integer> ids) {
+        return ids.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .map(this::copyOf)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<FilmSummary> getAllFilmSummaries() {
+        return films.values().stream().map(this::summaryOf).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<FilmSummary> getFilmSummariesAfter(int afterId, int limit) {
+        return films.values().stream()
+                .filter(film -> film.getId() > afterId)
+                .sorted(Comparator.comparingInt(Film::getId))
+                .limit(limit)
+                .map(this::summaryOf)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<FilmSummary> getFilmSummaries(Collection<Integer> ids) {
+        return ids.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .map(this::summaryOf)
+                .collect(Collectors.toList());
     }
 
     @Override
     public Film addFilm(Film film) {
-        film.setId(++id);
-        films.put(id, film);
+        int filmId = id.incrementAndGet();
+        film.setId(filmId);
+        films.put(filmId, copyOf(film));
         log.info("Film added");
         return film;
     }
 
+    @Override
+    public List<Film> addFilms(List<Film> films) {
+        films.forEach(this::addFilm);
+        return films;
+    }
+
     @Override
     public Film updateFilm(Film film) {
-        validateFilmId(film.getId());
-        films.replace(film.getId(), film);
+        findFilm(film.getId());
+        Film stored = copyOf(film);
+        boolean replaced = locks.withLock(film.getId(), () -> films.replace(film.getId(), stored) != null);
+        if (!replaced) {
+            throw new EntityNotFoundException("Film not found");
+        }
         log.info("Film info updated");
         return film;
     }
 
     @Override
     public void deleteFilm(int id) {
-        validateFilmId(id);
-        films.remove(id);
+        findFilm(id);
+        if (locks.withLock(id, () -> films.remove(id)) == null) {
+            throw new EntityNotFoundException("Film not found");
+        }
         log.info("Film deleted");
     }
 
     @Override
     public List<Film> getPopular(int count) {
+        return getPopular(count, null, null, null);
+    }
+
+    @Override
+    public List<Film> getPopular(int count, Short genreId, Short mpaId, Integer year) {
         if (count == 1) {
             log.info("The most popular film requested");
         } else {
             log.info(count + " most popular films requested");
         }
-        return films.values().stream().sorted(new FilmComparator()).limit(count).collect(Collectors.toList());
+        // copies first: sorting live films whose rates change mid-sort breaks the comparator contract
+        return films.values().stream()
+                .map(this::copyOf)
+                .filter(film -> genreId == null
+                        || film.getGenres().stream().anyMatch(genre -> genre.getId() == genreId))
+                .filter(film -> mpaId == null || film.getMpa() != null && film.getMpa().getId() == mpaId)
+                .filter(film -> year == null
+                        || film.getReleaseDate() != null && film.getReleaseDate().getYear() == year)
+                .sorted(new FilmComparator())
+                .limit(count)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<FilmSummary> getPopularSummaries(int count, Short genreId, Short mpaId, Integer year) {
+        return getPopular(count, genreId, mpaId, year).stream()
+                .map(FilmSummary::of)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Map<Long, int[]> getLikedFilmIds() {
+        Map<Long, List<Integer>> likedFilms = new HashMap<>();
+        films.forEach((filmId, film) -> locks.withLock(filmId, () -> {
+            for (long userId : film.getLikers().toLongArray()) {
+                likedFilms.computeIfAbsent(userId, key -> new ArrayList<>()).add(filmId);
+            }
+        }));
+        Map<Long, int[]> likedFilmIds = new HashMap<>();
+        likedFilms.forEach((userId, filmIds) ->
+                likedFilmIds.put(userId, filmIds.stream().mapToInt(Integer::intValue).sorted().toArray()));
+        return likedFilmIds;
     }
 
     @Override
     public void addLike(int filmId, long userId) {
+        validateFilmId(filmId);
         User user = userStorage.getUser(userId);
-        films.get(filmId).addLike(user.getId());
+        locks.withLock(filmId, () -> {
+            Film film = films.get(filmId);
+            if (film == null) {
+                throw new EntityNotFoundException("Film not found");
+            }
+            if (!film.addLike(user.getId())) {
+                throw new IllegalArgumentException("User already likes this Film");
+            }
+        });
         log.info("Like added");
     }
 
     @Override
     public void deleteLike(int filmId, long userId) {
+        validateFilmId(filmId);
         User user = userStorage.getUser(userId);
-        films.get(filmId).deleteLike(user.getId());
+        locks.withLock(filmId, () -> {
+            Film film = films.get(filmId);
+            if (film == null || !film.deleteLike(user.getId())) {
+                throw new EntityNotFoundException("Film or User not found");
+            }
+        });
         log.info("Like deleted");
     }
 
+    private Film findFilm(int filmId) {
+        validateFilmId(filmId);
+        Film film = films.get(filmId);
+        if (film == null) {
+            throw new EntityNotFoundException("Film not found");
+        }
+        return film;
+    }
+
     private void validateFilmId(int filmId) {
         if (filmId <= 0) {
             throw new EntityNotFoundException("Invalid film ID");
         }
-        if (!films.containsKey(filmId)) {
-            throw new EntityNotFoundException("Film not found");
-        }
+    }
+
+    /**
+     * Returns a detached copy of the film taken under its lock.
+     */
+    private Film copyOf(Film film) {
+        return locks.withLock(film.getId(), () -> {
+            Film copy = new Film(film.getName(), film.getDescription(), film.getReleaseDate(),
+                    film.getDuration(), film.getRate(), film.getMpa());
+            copy.setId(film.getId());
+            copy.getGenres().addAll(film.getGenres());
+            film.getLikers().forEachLong(copy.getLikers()::add);
+            return copy;
+        });
+    }
+
+    private FilmSummary summaryOf(Film film) {
+        return locks.withLock(film.getId(), () -> FilmSummary.of(film));
     }
 
     static class FilmComparator implements Comparator<Film> {
@@ -6,94 +6,173 @@ import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.EntityNotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.util.StripedLocks;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+/**
+ * Friendships are kept symmetric: both users' friend sets change together under both users' stripe locks.
+ * Reads return copies taken under the user's lock.
+ */
 @Component
 @Slf4j
 @RequiredArgsConstructor
 public class InMemoryUserStorage implements UserStorage {
+    private static final int LOCK_STRIPES = 64;
 
-    private long id = 0;
-    private final Map<Long, User> users = new HashMap<>();
+    private final AtomicLong id = new AtomicLong();
+    private final Map<Long, User> users = new ConcurrentHashMap<>();
+    private final StripedLocks locks = new StripedLocks(LOCK_STRIPES);
 
     @Override
     public List<User> getAllUsers() {
         log.info("Users list requested");
-        return new ArrayList<>(users.values());
+        return users.values().stream().map(this::copyOf).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<User> getUsersAfter(long afterId, int limit) {
+        return users.values().stream()
+                .filter(user -> user.getId() > afterId)
+                .sorted(Comparator.comparingLong(User::getId))
+                .limit(limit)
+                .map(this::copyOf)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void streamUsers(Consumer<User> action) {
+        users.values().stream().map(this::copyOf).forEach(action);
     }
 
     @Override
     public User getUser(long id) {
-        validateUserId(id);
+        User user = copyOf(findUser(id));
         log.info("User requested");
-        return users.get(id);
+        return user;
     }
 
     @Override
-    public List<User> getFriends(long id) {
-        validateUserId(id);
-        log.info("User friends list requested");
-        return users.get(id).getFriends().stream()
+    public List<User> getUsers(Collection<Long> ids) {
+        return ids.stream()
                 .map(users::get)
+                .filter(Objects::nonNull)
+                .map(this::copyOf)
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public List<User> getFriends(long id) {
+        User user = findUser(id);
+        log.info("User friends list requested");
+        return toUsers(locks.withLock(id, () -> user.getFriends().toLongArray()));
+    }
+
     @Override
     public User addUser(User user) {
         setEmptyNameAsLogin(user);
-        user.setId(++id);
-        users.put(id, user);
+        long userId = id.incrementAndGet();
+        user.setId(userId);
+        users.put(userId, copyOf(user));
         log.info("User created");
         return user;
     }
 
+    @Override
+    public List<User> addUsers(List<User> users) {
+        users.forEach(this::addUser);
+        return users;
+    }
+
     @Override
     public User updateUser(User user) {
-        validateUserId(user.getId());
+        User stored = findUser(user.getId());
         setEmptyNameAsLogin(user);
-        users.replace(user.getId(), user);
+        locks.withLock(user.getId(), () -> {
+            // friendships are owned by the storage, an update only changes profile fields
+            stored.setEmail(user.getEmail());
+            stored.setLogin(user.getLogin());
+            stored.setName(user.getName());
+            stored.setBirthday(user.getBirthday());
+        });
         log.info("User updated");
         return user;
     }
 
     @Override
     public void deleteUser(long userId) {
-        validateUserId(userId);
-        users.remove(userId);
+        findUser(userId);
+        long[] friends = locks.withLock(userId, () -> {
+            User removed = users.remove(userId);
+            if (removed == null) {
+                throw new EntityNotFoundException("User not found");
+            }
+            return removed.getFriends().toLongArray();
+        });
+        for (long friendId : friends) {
+            locks.withLocks(userId, friendId, () -> {
+                User friend = users.get(friendId);
+                if (friend != null) {
+                    friend.getFriends().remove(userId);
+                }
+            });
+        }
         log.info("User deleted");
     }
 
     @Override
     public void addFriend(long userId, long friendId) {
-        validateUserId(userId);
-        validateUserId(friendId);
-        users.get(userId).getFriends().add(friendId);
-        users.get(friendId).getFriends().add(userId);
+        findUser(userId);
+        findUser(friendId);
+        locks.withLocks(userId, friendId, () -> {
+            User user = users.get(userId);
+            User friend = users.get(friendId);
+            if (user == null || friend == null) {
+                throw new EntityNotFoundException("User not found");
+            }
+            user.getFriends().add(friendId);
+            friend.getFriends().add(userId);
+        });
         log.info("Friend added");
     }
 
     @Override
     public void deleteFriend(long userId, long friendId) {
-        validateUserId(userId);
-        validateUserId(friendId);
-        users.get(userId).getFriends().remove(friendId);
-        users.get(friendId).getFriends().remove(userId);
+        findUser(userId);
+        findUser(friendId);
+        locks.withLocks(userId, friendId, () -> {
+            User user = users.get(userId);
+            User friend = users.get(friendId);
+            if (user != null) {
+                user.getFriends().remove(friendId);
+            }
+            if (friend != null) {
+                friend.getFriends().remove(userId);
+            }
+        });
         log.info("Friend deleted");
     }
 
     @Override
-    public List<User> getCommonFriends(long user1Id, long user2Id) {
-        validateUserId(user1Id);
-        validateUserId(user2Id);
-        log.info("Common friends list requested");
-        return users.get(user1Id).getFriends().stream()
-                .filter((user) -> users.get(user2Id).getFriends().contains(user))
-                .map(users::get)
+    public Map<Long, long[]> getFriendIds() {
+        Map<Long, long[]> friendIds = new HashMap<>();
+        users.forEach((userId, user) -> locks.withLock(userId, () -> {
+            long[] ids = user.getFriends().toLongArray();
+            Arrays.sort(ids);
+            friendIds.put(userId, ids);
+        }));
+        return friendIds;
+    }
+
+    private List<User> toUsers(long[] ids) {
+        return Arrays.stream(ids)
+                .mapToObj(users::get)
+                .filter(Objects::nonNull)
+                .map(this::copyOf)
                 .collect(Collectors.toList());
     }
 
@@ -103,12 +182,23 @@ public class InMemoryUserStorage implements UserStorage {
         }
     }
 
-    private void validateUserId(long userId) {
+    private User findUser(long userId) {
         if (userId <= 0) {
             throw new EntityNotFoundException("Invalid user ID");
         }
-        if (!users.containsKey(userId)) {
+        User user = users.get(userId);
+        if (user == null) {
             throw new EntityNotFoundException("User not found");
         }
+        return user;
+    }
+
+    private User copyOf(User user) {
+        return locks.withLock(user.getId(), () -> {
+            User copy = new User(user.getEmail(), user.getLogin(), user.getName(), user.getBirthday());
+            copy.setId(user.getId());
+            user.getFriends().forEachLong(copy.getFriends()::add);
+            return copy;
+        });
     }
 }
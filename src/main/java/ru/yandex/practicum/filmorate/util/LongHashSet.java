@@ -0,0 +1,277 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.LongConsumer;
+
+/**
+ * Set of longs stored unboxed in an open-addressing table with linear probing,
+ * about 8-12 bytes per element instead of ~50 for a HashSet entry with a boxed Long.
+ * Implements {@code Set<Long>} so it serializes and compares like any other set;
+ * the {@code long} overloads avoid boxing. Not thread-safe.
+ */
+public class LongHashSet extends AbstractSet<Long> {
+    private static final int MIN_CAPACITY = 4;
+    private static final float MAX_LOAD = 0.7f;
+    // 0 marks a free slot, the value 0 itself is tracked separately
+    private static final long FREE = 0L;
+
+    private long[] slots;
+    private int size;
+    private boolean containsFree;
+
+    public LongHashSet() {
+        slots = new long[MIN_CAPACITY];
+    }
+
+    public LongHashSet(int expectedSize) {
+        slots = new long[capacityFor(expectedSize)];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long && contains((long) (Long) o);
+    }
+
+    public boolean contains(long value) {
+        if (value == FREE) {
+            return containsFree;
+        }
+        int mask = slots.length - 1;
+        for (int i = mix(value) & mask; ; i = (i + 1) & mask) {
+            long slot = slots[i];
+            if (slot == FREE) {
+                return false;
+            }
+            if (slot == value) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public boolean add(Long value) {
+        return add((long) value);
+    }
+
+    public boolean add(long value) {
+        if (value == FREE) {
+            if (containsFree) {
+                return false;
+            }
+            containsFree = true;
+            size++;
+            return true;
+        }
+        int mask = slots.length - 1;
+        int i = mix(value) & mask;
+        for (long slot = slots[i]; slot != FREE; slot = slots[i]) {
+            if (slot == value) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        slots[i] = value;
+        if (++size > slots.length * MAX_LOAD) {
+            rehash(slots.length << 1);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof Long && remove((long) (Long) o);
+    }
+
+    public boolean remove(long value) {
+        if (value == FREE) {
+            if (!containsFree) {
+                return false;
+            }
+            containsFree = false;
+            size--;
+            return true;
+        }
+        int mask = slots.length - 1;
+        int i = mix(value) & mask;
+        for (long slot = slots[i]; slot != value; slot = slots[i]) {
+            if (slot == FREE) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        shiftBack(i);
+        size--;
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(slots, FREE);
+        containsFree = false;
+        size = 0;
+    }
+
+    public void forEachLong(LongConsumer action) {
+        if (containsFree) {
+            action.accept(FREE);
+        }
+        for (long slot : slots) {
+            if (slot != FREE) {
+                action.accept(slot);
+            }
+        }
+    }
+
+    public long[] toLongArray() {
+        long[] values = new long[size];
+        int[] index = {0};
+        forEachLong(value -> values[index[0]++] = value);
+        return values;
+    }
+
+    /**
+     * Walks the table from the last slot down. Removing through the iterator shifts later members of the probe
+     * run back; members of a run that wrapped around to the start of the table may land in slots already
+     * walked, so those are kept aside and returned once the walk is done.
+     */
+    @Override
+    public Iterator<Long> iterator() {
+        return new Iterator<>() {
+            private static final int NONE = -1;
+            private static final int FREE_VALUE = -2;
+            private static final int WRAPPED_VALUE = -3;
+
+            private boolean freeReturned = !containsFree;
+            private int slot = slots.length;
+            private int remaining = size;
+            private long[] wrapped;
+            private int wrappedCount;
+            private int last = NONE;
+            private long lastValue;
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            @Override
+            public Long next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                remaining--;
+                if (!freeReturned) {
+                    freeReturned = true;
+                    last = FREE_VALUE;
+                    return FREE;
+                }
+                while (--slot >= 0) {
+                    if (slots[slot] != FREE) {
+                        last = slot;
+                        return slots[slot];
+                    }
+                }
+                last = WRAPPED_VALUE;
+                lastValue = wrapped[--wrappedCount];
+                return lastValue;
+            }
+
+            @Override
+            public void remove() {
+                if (last == NONE) {
+                    throw new IllegalStateException();
+                }
+                if (last == FREE_VALUE) {
+                    containsFree = false;
+                    size--;
+                } else if (last == WRAPPED_VALUE) {
+                    // the walk is over, shifting the table no longer matters
+                    LongHashSet.this.remove(lastValue);
+                } else {
+                    shiftBack(last, last, this::keepWrapped);
+                    size--;
+                }
+                last = NONE;
+            }
+
+            private void keepWrapped(long value) {
+                if (wrapped == null) {
+                    wrapped = new long[MIN_CAPACITY];
+                } else if (wrappedCount == wrapped.length) {
+                    wrapped = Arrays.copyOf(wrapped, wrappedCount * 2);
+                }
+                wrapped[wrappedCount++] = value;
+            }
+        };
+    }
+
+    /**
+     * Backward-shift deletion: moves later members of the probe run into the freed slot,
+     * so lookups never need tombstones.
+     */
+    private void shiftBack(int freed) {
+        shiftBack(freed, slots.length, null);
+    }
+
+    /**
+     * Backward-shift deletion that passes members moving from below {@code boundary} to {@code boundary} or above
+     * to {@code crossed}.
+     */
+    private void shiftBack(int freed, int boundary, LongConsumer crossed) {
+        int mask = slots.length - 1;
+        int i = freed;
+        while (true) {
+            i = (i + 1) & mask;
+            long slot = slots[i];
+            if (slot == FREE) {
+                break;
+            }
+            int home = mix(slot) & mask;
+            // the element may move to the freed slot only if its home is not cyclically in (freed, i]
+            if (((i - home) & mask) >= ((i - freed) & mask)) {
+                if (i < boundary && freed >= boundary) {
+                    crossed.accept(slot);
+                }
+                slots[freed] = slot;
+                freed = i;
+            }
+        }
+        slots[freed] = FREE;
+    }
+
+    private void rehash(int capacity) {
+        long[] old = slots;
+        slots = new long[capacity];
+        int mask = capacity - 1;
+        for (long value : old) {
+            if (value != FREE) {
+                int i = mix(value) & mask;
+                while (slots[i] != FREE) {
+                    i = (i + 1) & mask;
+                }
+                slots[i] = value;
+            }
+        }
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * MAX_LOAD < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int mix(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
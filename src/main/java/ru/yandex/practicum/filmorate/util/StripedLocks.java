@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.function.Supplier;
+
+/**
+ * Fixed set of monitors shared by entity ids. Pairs of ids are always locked
+ * in stripe order so that two threads locking the same pair cannot deadlock.
+ */
+public final class StripedLocks {
+    private final Object[] locks;
+
+    public StripedLocks(int stripes) {
+        locks = new Object[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    public <T> T withLock(long id, Supplier<T> action) {
+        synchronized (locks[stripe(id)]) {
+            return action.get();
+        }
+    }
+
+    public void withLock(long id, Runnable action) {
+        synchronized (locks[stripe(id)]) {
+            action.run();
+        }
+    }
+
+    public void withLocks(long id1, long id2, Runnable action) {
+        int stripe1 = stripe(id1);
+        int stripe2 = stripe(id2);
+        if (stripe1 == stripe2) {
+            synchronized (locks[stripe1]) {
+                action.run();
+            }
+            return;
+        }
+        synchronized (locks[Math.min(stripe1, stripe2)]) {
+            synchronized (locks[Math.max(stripe1, stripe2)]) {
+                action.run();
+            }
+        }
+    }
+
+    private int stripe(long id) {
+        return (int) Math.floorMod(id, (long) locks.length);
+    }
+}
@@ -1,5 +0,0 @@
-INSERT INTO mpa_ratings (name)
-VALUES ('G'), ('PG'), ('PG-13'), ('R'), ('NC-17');
-
-INSERT INTO genres (name)
-VALUES ('Комедия'), ('Драма'), ('Мультфильм'), ('Триллер'), ('Документальный'), ('Боевик');
\ No newline at end of file
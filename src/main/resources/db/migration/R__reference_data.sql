@@ -0,0 +1,6 @@
+-- keyed by name so that existing rows are kept and new ones take their id from the identity sequence
+MERGE INTO mpa_ratings (name) KEY (name)
+VALUES ('G'), ('PG'), ('PG-13'), ('R'), ('NC-17');
+
+MERGE INTO genres (name) KEY (name)
+VALUES ('Комедия'), ('Драма'), ('Мультфильм'), ('Триллер'), ('Документальный'), ('Боевик');
@@ -1,5 +1,3 @@
-DROP TABLE IF EXISTS mpa_ratings, genres, film_genres, film_likes, user_friends, films, users;
-
 CREATE TABLE mpa_ratings (
 	id TINYINT GENERATED BY DEFAULT AS IDENTITY NOT NULL PRIMARY KEY,
 	name VARCHAR(10) NOT NULL UNIQUE
@@ -0,0 +1,7 @@
+-- getPopular: ORDER BY rate DESC, id DESC LIMIT n reads the first n entries instead of sorting the whole table
+CREATE INDEX films_rate_id_idx ON films (rate DESC, id DESC);
+
+-- reverse direction of the link tables: likes of a user, users who added a user as a friend, films of a genre
+CREATE INDEX film_likes_user_film_idx ON film_likes (user_id, film_id);
+CREATE INDEX user_friends_friend_user_idx ON user_friends (friend_id, user_id);
+CREATE INDEX film_genres_genre_film_idx ON film_genres (genre_id, film_id);
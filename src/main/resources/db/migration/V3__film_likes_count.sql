@@ -0,0 +1,3 @@
+-- number of likes kept next to the film, so summaries never read film_likes; rate can be set freely and is no count
+ALTER TABLE films ADD COLUMN likes_count INTEGER DEFAULT 0 NOT NULL;
+UPDATE films AS f SET likes_count = (SELECT COUNT(*) FROM film_likes AS fl WHERE fl.film_id = f.id);
@@ -0,0 +1,6 @@
+-- getPopular filtered by MPA rating: the films of a rating are read in rate order and the scan stops after n rows
+-- (FilmDbStorage.selectPopular names it, H2 prefers the foreign key index on mpa_rating_id otherwise)
+CREATE INDEX films_mpa_rate_id_idx ON films (mpa_rating_id, rate DESC, id DESC);
+-- getPopular filtered by year: a release_date range instead of a table scan;
+-- the genre filter is served by film_genres_genre_film_idx from V2
+CREATE INDEX films_release_date_idx ON films (release_date);
@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.GenreStorage;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Boots the application twice against the same file-backed database, as a restart would.
+ */
+public class SchemaMigrationTests {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void shouldKeepDataAndReferenceRowsAcrossRestarts() {
+        String url = "jdbc:h2:file:" + directory.resolve("filmorate");
+        try (ConfigurableApplicationContext context = start(url)) {
+            jdbcTemplate(context).update("INSERT INTO films (name, description, release_date, duration, rate, " +
+                    "mpa_rating_id) VALUES ('title1', 'description1', '2000-01-01', 100, 0, 1)");
+        }
+        try (ConfigurableApplicationContext context = start(url)) {
+            assertEquals("title1", context.getBean(FilmService.class).getFilm(1).getName());
+            assertEquals(6, context.getBean(GenreStorage.class).getAllGenres().size());
+            assertEquals(List.of("1", "2", "3", "4", "reference data"), appliedMigrations(jdbcTemplate(context)));
+        }
+    }
+
+    @Test
+    public void shouldBaselineDatabaseCreatedBeforeMigrations() {
+        String url = "jdbc:h2:file:" + directory.resolve("filmorate");
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url, "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__initial_schema.sql"))
+                .execute(dataSource);
+        JdbcTemplate legacy = new JdbcTemplate(dataSource);
+        legacy.update("INSERT INTO mpa_ratings (name) VALUES ('G'), ('PG'), ('PG-13'), ('R'), ('NC-17')");
+        legacy.update("INSERT INTO genres (name) VALUES ('Комедия'), ('Драма'), ('Мультфильм'), " +
+                "('Триллер'), ('Документальный'), ('Боевик')");
+        legacy.update("INSERT INTO users (email, login, name, birthday) " +
+                "VALUES ('user1@mail.ru', 'login1', 'name1', '2000-01-01')");
+
+        try (ConfigurableApplicationContext context = start(url)) {
+            JdbcTemplate jdbcTemplate = jdbcTemplate(context);
+            assertEquals(List.of("1", "2", "3", "4", "reference data"), appliedMigrations(jdbcTemplate));
+            assertEquals("BASELINE", jdbcTemplate.queryForObject(
+                    "SELECT \"type\" FROM \"flyway_schema_history\" WHERE \"version\" = '1'", String.class));
+            assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class));
+            assertEquals(6, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM genres", Integer.class));
+            assertEquals(5, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM mpa_ratings", Integer.class));
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String url) {
+        return new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + url,
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=");
+    }
+
+    private static JdbcTemplate jdbcTemplate(ConfigurableApplicationContext context) {
+        return context.getBean(JdbcTemplate.class);
+    }
+
+    private static List<String> appliedMigrations(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForList("SELECT COALESCE(\"version\", \"description\") " +
+                "FROM \"flyway_schema_history\" WHERE \"installed_rank\" > 0 AND \"success\" " +
+                "ORDER BY \"installed_rank\"", String.class);
+    }
+}
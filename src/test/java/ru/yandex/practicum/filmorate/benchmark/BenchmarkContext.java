@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.AopTestUtils;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+/**
+ * Starts the application without a web server on its own in-memory database for the JMH benchmarks.
+ * JDBC statement metrics and HTTP logging are off, and storages are handed out without their
+ * metrics proxies, so that measurements cover the storage code itself.
+ */
+public final class BenchmarkContext implements AutoCloseable {
+    private final ConfigurableApplicationContext context;
+
+    private BenchmarkContext(ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    public static BenchmarkContext start(String databaseName) {
+        return new BenchmarkContext(new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:" + databaseName,
+                        "--filmorate.jdbc.statement-metrics.enabled=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.zalando.logbook=OFF"));
+    }
+
+    public <T> T storage(Class<T> type) {
+        return AopTestUtils.getUltimateTargetObject(context.getBean(type));
+    }
+
+    public JdbcTemplate jdbcTemplate() {
+        return context.getBean(JdbcTemplate.class);
+    }
+
+    public BenchmarkDataSeeder seeder(long seed) {
+        return new BenchmarkDataSeeder(jdbcTemplate(), seed);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
@@ -0,0 +1,260 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Fills the database with a reproducible synthetic dataset straight through JDBC batches,
+ * bypassing the storages so that seeding time does not depend on the code being measured.
+ */
+public class BenchmarkDataSeeder {
+    private static final int BATCH_SIZE = 10_000;
+    private static final int GENRES_COUNT = 6;
+    private static final int MPA_RATINGS_COUNT = 5;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Random random;
+
+    public BenchmarkDataSeeder(JdbcTemplate jdbcTemplate, long seed) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.random = new Random(seed);
+    }
+
+    public void seedUsers(int count) {
+        batchInsert("INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)", count, (ps, i) -> {
+            ps.setString(1, "user" + i + "@bench.ru");
+            ps.setString(2, "user" + i);
+            ps.setString(3, "User " + i);
+            ps.setDate(4, Date.valueOf(LocalDate.of(1970, 1, 1).plusDays(i % 15_000)));
+        });
+    }
+
+    /**
+     * Inserts films with up to {@code maxGenres} distinct genres each.
+     */
+    public void seedFilms(int count, int maxGenres) {
+        batchInsert("INSERT INTO films (name, description, release_date, duration, rate, mpa_rating_id)" +
+                " VALUES (?, ?, ?, ?, 0, ?)", count, (ps, i) -> {
+            ps.setString(1, "Film " + i);
+            ps.setString(2, "Synthetic film number " + i);
+            ps.setDate(3, Date.valueOf(LocalDate.of(1950, 1, 1).plusDays(random.nextInt(27_000))));
+            ps.setInt(4, 60 + random.nextInt(120));
+            ps.setShort(5, (short) (1 + random.nextInt(MPA_RATINGS_COUNT)));
+        });
+
+        int[] genresPerFilm = new int[count];
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            genresPerFilm[i] = random.nextInt(maxGenres + 1);
+            total += genresPerFilm[i];
+        }
+        int[] filmIds = new int[total];
+        short[] genreIds = new short[total];
+        int row = 0;
+        for (int i = 0; i < count; i++) {
+            int firstGenre = random.nextInt(GENRES_COUNT);
+            for (int j = 0; j < genresPerFilm[i]; j++) {
+                filmIds[row] = i + 1;
+                genreIds[row] = (short) (1 + (firstGenre + j) % GENRES_COUNT);
+                row++;
+            }
+        }
+        batchInsert("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", total, (ps, i) -> {
+            ps.setInt(1, filmIds[i]);
+            ps.setShort(2, genreIds[i]);
+        });
+    }
+
+    /**
+     * Spreads {@code count} likes over the seeded films and users. Every film gets a run of consecutive
+     * user ids starting at a random offset, which keeps (film, user) pairs unique without bookkeeping.
+     * Film rates and like counts are set to the number of likes afterwards.
+     */
+    public void seedLikes(long count, int films, int users) {
+        int[] likesPerFilm = new int[films];
+        long assigned = 0;
+        for (int i = 0; i < films; i++) {
+            likesPerFilm[i] = (int) Math.min(users, count / films);
+            assigned += likesPerFilm[i];
+        }
+        while (assigned < count) {
+            int film = random.nextInt(films);
+            if (likesPerFilm[film] < users) {
+                likesPerFilm[film]++;
+                assigned++;
+            }
+        }
+
+        int[] offsets = new int[films];
+        for (int i = 0; i < films; i++) {
+            offsets[i] = random.nextInt(users);
+        }
+        int film = 0;
+        int like = 0;
+        long inserted = 0;
+        while (inserted < count) {
+            int size = (int) Math.min(BATCH_SIZE, count - inserted);
+            int[] filmIds = new int[size];
+            long[] userIds = new long[size];
+            for (int i = 0; i < size; i++) {
+                while (like == likesPerFilm[film]) {
+                    film++;
+                    like = 0;
+                }
+                filmIds[i] = film + 1;
+                userIds[i] = 1 + (offsets[film] + like) % users;
+                like++;
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)",
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            ps.setInt(1, filmIds[i]);
+                            ps.setLong(2, userIds[i]);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return size;
+                        }
+                    });
+            inserted += size;
+        }
+        updateRates();
+    }
+
+    /**
+     * Gives every user a run of {@code friendsPerUser} one-way friends starting at a random offset,
+     * so two random users share friends wherever their runs overlap.
+     */
+    public void seedFriendships(int users, int friendsPerUser) {
+        int[] offsets = new int[users];
+        for (int i = 0; i < users; i++) {
+            offsets[i] = random.nextInt(users);
+        }
+        int friends = Math.min(friendsPerUser, users - 1);
+        long total = (long) users * friends;
+        for (long from = 0; from < total; from += BATCH_SIZE) {
+            long offset = from;
+            int size = (int) Math.min(BATCH_SIZE, total - from);
+            jdbcTemplate.batchUpdate("INSERT INTO user_friends (user_id, friend_id) VALUES (?, ?)",
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            long row = offset + i;
+                            int user = (int) (row / friends);
+                            int friend = (offsets[user] + (int) (row % friends)) % (users - 1);
+                            // skip over the user itself, which keeps the run free of self-friendships
+                            if (friend >= user) {
+                                friend++;
+                            }
+                            ps.setLong(1, user + 1);
+                            ps.setLong(2, friend + 1);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return size;
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Inserts {@code count} likes from users drawn uniformly out of the first {@code users} ids to films
+     * drawn from {@code films}, so that a few films collect most of the likes. Film rates and like counts
+     * are set to the number of likes afterwards. {@code count} has to stay well below the number of possible pairs.
+     */
+    public void seedZipfLikes(long count, ZipfSampler films, int users) {
+        insertUniquePairs("INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)", count,
+                row -> pair(films.next(random), 1 + random.nextInt(users)));
+        updateRates();
+    }
+
+    /**
+     * Gives each of the first {@code users} users {@code friendsPerUser} one-way friends drawn from
+     * {@code popularity}, so that a few users are friends of almost everyone.
+     */
+    public void seedZipfFriendships(int users, int friendsPerUser, ZipfSampler popularity) {
+        insertUniquePairs("INSERT INTO user_friends (user_id, friend_id) VALUES (?, ?)", (long) users * friendsPerUser,
+                row -> {
+                    int user = 1 + (int) (row / friendsPerUser);
+                    int friend = popularity.next(random);
+                    return friend == user ? pair(user, 1 + friend % users) : pair(user, friend);
+                });
+    }
+
+    private void insertUniquePairs(String sqlQuery, long count, PairDrawer drawer) {
+        LongHashSet seen = new LongHashSet((int) Math.min(count, Integer.MAX_VALUE / 2));
+        long inserted = 0;
+        while (inserted < count) {
+            int size = (int) Math.min(BATCH_SIZE, count - inserted);
+            long[] pairs = new long[size];
+            for (int i = 0; i < size; i++) {
+                long pair;
+                do {
+                    pair = drawer.draw(inserted + i);
+                } while (!seen.add(pair));
+                pairs[i] = pair;
+            }
+            jdbcTemplate.batchUpdate(sqlQuery, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    ps.setLong(1, pairs[i] >>> 32);
+                    ps.setLong(2, pairs[i] & 0xFFFFFFFFL);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return size;
+                }
+            });
+            inserted += size;
+        }
+    }
+
+    private void updateRates() {
+        jdbcTemplate.update("UPDATE films AS f" +
+                " SET rate = (SELECT COUNT(*) FROM film_likes AS fl WHERE fl.film_id = f.id)");
+        jdbcTemplate.update("UPDATE films SET likes_count = rate");
+    }
+
+    private static long pair(long first, long second) {
+        return first << 32 | second;
+    }
+
+    private void batchInsert(String sqlQuery, int count, RowSetter setter) {
+        for (int from = 0; from < count; from += BATCH_SIZE) {
+            int offset = from;
+            int size = Math.min(BATCH_SIZE, count - from);
+            jdbcTemplate.batchUpdate(sqlQuery, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    setter.set(ps, offset + i);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return size;
+                }
+            });
+        }
+    }
+
+    @FunctionalInterface
+    interface RowSetter {
+        void set(PreparedStatement ps, int i) throws SQLException;
+    }
+
+    @FunctionalInterface
+    interface PairDrawer {
+        long draw(long row);
+    }
+}
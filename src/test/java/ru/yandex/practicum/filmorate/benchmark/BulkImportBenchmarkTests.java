@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures bulk import throughput through the services, validation included, against the in-memory
+ * test database. Run with {@code mvn test -Pbenchmark}; the size is set with {@code -Dbenchmark.films}
+ * and {@code -Dbenchmark.users}, the batch size with {@code -Dfilmorate.bulk.batch-size}.
+ */
+@Tag("benchmark")
+@Slf4j
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class BulkImportBenchmarkTests {
+    private static final int FILMS = Integer.getInteger("benchmark.films", 100_000);
+    private static final int USERS = Integer.getInteger("benchmark.users", 100_000);
+
+    private final FilmService filmService;
+    private final UserService userService;
+
+    @Test
+    public void benchmarkImportFilms() {
+        BulkImportResult result = measure("films", FILMS, () -> filmService.importFilms(generate(FILMS, i -> {
+            Film film = new Film("Film " + i, "Imported film number " + i,
+                    LocalDate.of(1950, 1, 1).plusDays(i % 27_000), 60 + i % 120, 0,
+                    new MpaRating((short) (1 + i % 5), null));
+            film.setGenres(Set.of(new Genre((short) (1 + i % 6), null)));
+            return film;
+        })));
+        assertEquals(FILMS, result.getImported());
+    }
+
+    @Test
+    public void benchmarkImportUsers() {
+        BulkImportResult result = measure("users", USERS, () -> userService.importUsers(generate(USERS, i ->
+                new User("user" + i + "@bench.ru", "user" + i, "User " + i,
+                        LocalDate.of(1970, 1, 1).plusDays(i % 15_000)))));
+        assertEquals(USERS, result.getImported());
+    }
+
+    private static BulkImportResult measure(String entity, int count, Supplier<BulkImportResult> importer) {
+        long start = System.nanoTime();
+        BulkImportResult result = importer.get();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        log.info("Imported {} {} in {} s: {} rows/s", count, entity,
+                String.format("%.2f", seconds), String.format("%.0f", count / seconds));
+        return result;
+    }
+
+    private static <T> Iterator<T> generate(int count, IntFunction<T> factory) {
+        return new Iterator<>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public T next() {
+                return factory.apply(next++);
+            }
+        };
+    }
+}
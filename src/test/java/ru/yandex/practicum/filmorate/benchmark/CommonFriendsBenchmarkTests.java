@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.index.FriendGraphIndex;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.Random;
+import java.util.function.LongBinaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the SQL self-join UserDbStorage used for common friends with the friend graph index,
+ * alone and together with fetching the resulting users. Run with {@code mvn test -Pbenchmark};
+ * the scale is set with {@code -Dbenchmark.users} and {@code -Dbenchmark.friends} (friends per user),
+ * 100k users with 1k friends each needs a few GB of heap for the in-memory test database.
+ */
+@Tag("benchmark")
+@Slf4j
+@SpringBootTest
+@AutoConfigureTestDatabase
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public class CommonFriendsBenchmarkTests {
+    private static final int USERS = Integer.getInteger("benchmark.users", 20_000);
+    private static final int FRIENDS = Integer.getInteger("benchmark.friends", 200);
+    private static final int PAIRS = 200;
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int MEASURED_ROUNDS = 5;
+    private static final String SQL_SELECT_COMMON_FRIENDS = "SELECT u.* FROM users u" +
+            " JOIN user_friends uf1 ON u.id = uf1.friend_id JOIN user_friends uf2 ON uf1.friend_id = uf2.friend_id" +
+            " WHERE uf1.user_id = ? AND uf2.user_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserService userService;
+    private final FriendGraphIndex friendGraph;
+
+    private long[][] pairs;
+
+    @BeforeAll
+    public void seed() {
+        BenchmarkDataSeeder seeder = new BenchmarkDataSeeder(jdbcTemplate, 42);
+        seeder.seedUsers(USERS);
+        seeder.seedFriendships(USERS, FRIENDS);
+        friendGraph.rebuild();
+        log.info("Seeded {} users with {} friends each", USERS, FRIENDS);
+
+        Random random = new Random(7);
+        pairs = new long[PAIRS][];
+        for (int i = 0; i < PAIRS; i++) {
+            long first = 1 + random.nextInt(USERS);
+            long second = 1 + (first + random.nextInt(USERS - 1)) % USERS;
+            pairs[i] = new long[]{first, second};
+        }
+    }
+
+    @Test
+    public void benchmarkGetCommonFriends() {
+        double selfJoin = measure(this::selfJoinCount);
+        double indexOnly = measure((first, second) -> friendGraph.getCommonFriends(first, second).length);
+        double indexWithUsers = measure((first, second) -> userService.getCommonFriends(first, second).size());
+        log.info("/users/{id}/friends/common/{otherId}: SQL self-join {} µs/op, index intersection {} µs/op," +
+                        " index with user fetch {} µs/op",
+                String.format("%.1f", selfJoin), String.format("%.1f", indexOnly), String.format("%.1f", indexWithUsers));
+
+        for (long[] pair : pairs) {
+            assertEquals(selfJoinCount(pair[0], pair[1]),
+                    friendGraph.getCommonFriends(pair[0], pair[1]).length);
+        }
+    }
+
+    private long selfJoinCount(long first, long second) {
+        return jdbcTemplate.queryForList(SQL_SELECT_COMMON_FRIENDS, first, second).size();
+    }
+
+    private double measure(LongBinaryOperator action) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            run(action);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            run(action);
+        }
+        return (System.nanoTime() - start) / 1e3 / MEASURED_ROUNDS / PAIRS;
+    }
+
+    private void run(LongBinaryOperator action) {
+        for (long[] pair : pairs) {
+            action.applyAsLong(pair[0], pair[1]);
+        }
+    }
+}
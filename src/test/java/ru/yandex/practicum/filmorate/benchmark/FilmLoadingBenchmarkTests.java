@@ -0,0 +1,122 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.impl.database.FilmDbStorage;
+
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the former single-query GROUP_CONCAT film loading with the current multi-query loader
+ * on a seeded database. Both sides map the rows to complete Film entities; the former side uses the
+ * former row mapper, which parsed the concatenated genre and liker ids. Run with {@code mvn test -Pbenchmark}; the scale is set with
+ * {@code -Dbenchmark.films}, {@code -Dbenchmark.users} and {@code -Dbenchmark.likes}.
+ */
+@Tag("benchmark")
+@Slf4j
+@SpringBootTest
+@AutoConfigureTestDatabase
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public class FilmLoadingBenchmarkTests {
+    private static final int FILMS = Integer.getInteger("benchmark.films", 10_000);
+    private static final int USERS = Integer.getInteger("benchmark.users", 20_000);
+    private static final long LIKES = Long.getLong("benchmark.likes", 1_000_000L);
+    private static final int WARMUP_ITERATIONS = 2;
+    private static final int MEASURED_ITERATIONS = 5;
+
+    private static final String LEGACY_SELECT = "SELECT f.id, f.name, f.description, f.release_date, f.duration," +
+            " f.rate, f.mpa_rating_id, mpa.name AS mpa, GROUP_CONCAT(fg.genre_id) AS genres_id," +
+            " GROUP_CONCAT(g.name) AS genres, GROUP_CONCAT(fl.user_id) AS likers_id" +
+            " FROM films AS f" +
+            " JOIN mpa_ratings AS mpa ON f.mpa_rating_id = mpa.id" +
+            " LEFT JOIN film_genres AS fg ON f.id = fg.film_id" +
+            " LEFT JOIN genres AS g ON fg.genre_id = g.id" +
+            " LEFT JOIN film_likes AS fl ON fl.film_id = f.id" +
+            " GROUP BY f.id";
+    private static final RowMapper<Film> LEGACY_ROW_MAPPER = (rs, rowNum) -> {
+        Film film = new Film(
+                rs.getString("name"),
+                rs.getString("description"),
+                rs.getDate("release_date").toLocalDate(),
+                rs.getInt("duration"),
+                rs.getInt("rate"),
+                new MpaRating(rs.getShort("mpa_rating_id"), rs.getString("mpa"))
+        );
+        film.setId(rs.getInt("id"));
+        if (rs.getString("genres_id") != null) {
+            String[] genreIds = rs.getString("genres_id").split(",");
+            String[] genreNames = rs.getString("genres").split(",");
+            for (int i = 0; i < genreIds.length; i++) {
+                film.getGenres().add(new Genre(Short.parseShort(genreIds[i]), genreNames[i]));
+            }
+        }
+        if (rs.getString("likers_id") != null) {
+            for (String likerId : rs.getString("likers_id").split(",")) {
+                film.getLikers().add(Long.parseLong(likerId));
+            }
+        }
+        return film;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmDbStorage storage;
+
+    @BeforeAll
+    public void seed() {
+        BenchmarkDataSeeder seeder = new BenchmarkDataSeeder(jdbcTemplate, 42);
+        seeder.seedUsers(USERS);
+        seeder.seedFilms(FILMS, 3);
+        seeder.seedLikes(LIKES, FILMS, USERS);
+        log.info("Seeded {} films, {} users, {} likes", FILMS, USERS, LIKES);
+    }
+
+    @Test
+    public void benchmarkGetAllFilms() {
+        double legacy = measure(() -> jdbcTemplate.query(LEGACY_SELECT, LEGACY_ROW_MAPPER).size());
+        double current = measure(() -> storage.getAllFilms().size());
+        report("/films", legacy, current);
+        assertEquals(FILMS, storage.getAllFilms().size());
+    }
+
+    @Test
+    public void benchmarkGetPopular() {
+        String legacyPopular = LEGACY_SELECT + " ORDER BY f.rate DESC LIMIT 10";
+        double legacy = measure(() -> jdbcTemplate.query(legacyPopular, LEGACY_ROW_MAPPER).size());
+        double current = measure(() -> storage.getPopular(10).size());
+        report("/films/popular", legacy, current);
+        assertEquals(10, storage.getPopular(10).size());
+    }
+
+    private static double measure(Supplier<Integer> action) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            action.get();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            action.get();
+        }
+        return (System.nanoTime() - start) / 1e6 / MEASURED_ITERATIONS;
+    }
+
+    private static void report(String endpoint, double legacyMillis, double currentMillis) {
+        log.info("{}: GROUP_CONCAT join {} ms/op, multi-query loader {} ms/op",
+                endpoint, String.format("%.1f", legacyMillis), String.format("%.1f", currentMillis));
+    }
+}
@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares GET /films throughput with every exchange logged in full through a synchronous appender, as with plain
+ * Logbook TRACE, against full logging through the async appender and the sampled logging configured in
+ * application.properties.
+ * Run with {@code mvn test -Pbenchmark}; the scale is set with {@code -Dbenchmark.films},
+ * {@code -Dbenchmark.likes} and {@code -Dbenchmark.requests}.
+ */
+@Tag("benchmark")
+@Slf4j
+public class HttpLogBenchmarkTests {
+    private static final int FILMS = Integer.getInteger("benchmark.films", 1_000);
+    private static final int USERS = Integer.getInteger("benchmark.users", 1_000);
+    private static final long LIKES = Long.getLong("benchmark.likes", 50_000L);
+    private static final int REQUESTS = Integer.getInteger("benchmark.requests", 200);
+    private static final int CLIENTS = 8;
+    private static final String HTTP_LOGGER = "org.zalando.logbook";
+    private static final String ASYNC_APPENDER = "HTTP_LOG";
+    private static final String CONSOLE_APPENDER = "CONSOLE";
+
+    @Test
+    public void benchmarkGetFilms() throws Exception {
+        String[] logEverything = {"--filmorate.http-log.sample-percent=100", "--filmorate.http-log.skip-body-paths=",
+                "--logbook.write.max-body-size=-1"};
+        double baseline = measure("baseline", false, logEverything);
+        double full = measure("full", true, logEverything);
+        double sampled = measure("sampled", true);
+        log.info("GET /films with {} films and {} likes: every exchange logged synchronously {} req/s, "
+                        + "every exchange logged asynchronously {} req/s, sampled logging {} req/s",
+                FILMS, LIKES, String.format("%.1f", baseline), String.format("%.1f", full),
+                String.format("%.1f", sampled));
+    }
+
+    private static double measure(String name, boolean async, String... args) throws Exception {
+        List<String> arguments = new ArrayList<>(List.of(args));
+        arguments.add("--server.port=0");
+        arguments.add("--spring.datasource.url=jdbc:h2:mem:http-log-" + name);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .run(arguments.toArray(String[]::new))) {
+            Appender<ILoggingEvent> asyncAppender = async ? null : writeHttpLogSynchronously();
+            BenchmarkDataSeeder seeder = new BenchmarkDataSeeder(context.getBean(JdbcTemplate.class), 42);
+            seeder.seedUsers(USERS);
+            seeder.seedFilms(FILMS, 3);
+            seeder.seedLikes(LIKES, FILMS, USERS);
+
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            HttpClient client = HttpClient.newHttpClient();
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/films")).build();
+            run(client, request, REQUESTS / 4);
+            long start = System.nanoTime();
+            run(client, request, REQUESTS);
+            double throughput = REQUESTS / ((System.nanoTime() - start) / 1e9);
+            if (asyncAppender != null) {
+                // attached again so that the next application start stops it along with the others
+                Logger httpLog = (Logger) LoggerFactory.getLogger(HTTP_LOGGER);
+                httpLog.detachAppender(CONSOLE_APPENDER);
+                httpLog.addAppender(asyncAppender);
+            }
+            return throughput;
+        }
+    }
+
+    /**
+     * Points the Logbook logger straight at the console appender and returns the async appender it detached.
+     * The async appender is not stopped: its worker would stop the console appender along with itself.
+     */
+    private static Appender<ILoggingEvent> writeHttpLogSynchronously() {
+        Logger httpLog = (Logger) LoggerFactory.getLogger(HTTP_LOGGER);
+        Appender<ILoggingEvent> asyncAppender = httpLog.getAppender(ASYNC_APPENDER);
+        httpLog.detachAppender(asyncAppender);
+        httpLog.addAppender(((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).getAppender(CONSOLE_APPENDER));
+        return asyncAppender;
+    }
+
+    private static void run(HttpClient client, HttpRequest request, int requests) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            List<Future<Integer>> statuses = new ArrayList<>(requests);
+            for (int i = 0; i < requests; i++) {
+                statuses.add(executor.submit(() ->
+                        client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode()));
+            }
+            for (Future<Integer> status : statuses) {
+                assertEquals(200, status.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the retained heap of liker sets stored as {@code HashSet<Long>} and as {@link LongHashSet}.
+ * Run with {@code mvn test -Pbenchmark}; the scale is set with {@code -Dbenchmark.films}
+ * and {@code -Dbenchmark.likes}.
+ */
+@Tag("benchmark")
+@Slf4j
+public class LikerSetMemoryBenchmarkTests {
+    private static final int FILMS = Integer.getInteger("benchmark.films", 10_000);
+    private static final long LIKES = Long.getLong("benchmark.likes", 1_000_000L);
+    private static final int USERS = 1_000_000_000;
+
+    @Test
+    public void benchmarkLikerSetMemory() {
+        long boxed = retainedBytes(HashSet::new);
+        long primitive = retainedBytes(LongHashSet::new);
+        log.info("{} likes over {} films: HashSet<Long> {} MB ({} B/like), LongHashSet {} MB ({} B/like)",
+                LIKES, FILMS,
+                String.format("%.1f", boxed / 1e6), String.format("%.1f", (double) boxed / LIKES),
+                String.format("%.1f", primitive / 1e6), String.format("%.1f", (double) primitive / LIKES));
+        assertTrue(primitive < boxed);
+    }
+
+    private static long retainedBytes(Supplier<Set<Long>> setFactory) {
+        long before = usedHeap();
+        List<Set<Long>> sets = new ArrayList<>(FILMS);
+        for (int i = 0; i < FILMS; i++) {
+            sets.add(setFactory.get());
+        }
+        // user ids above the Long cache range, as boxed ones would be in a real table
+        Random random = new Random(42);
+        long added = 0;
+        while (added < LIKES) {
+            if (sets.get(random.nextInt(FILMS)).add(1_000L + random.nextInt(USERS))) {
+                added++;
+            }
+        }
+        long retained = usedHeap() - before;
+        assertEquals(LIKES, sets.stream().mapToLong(Set::size).sum());
+        return retained;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
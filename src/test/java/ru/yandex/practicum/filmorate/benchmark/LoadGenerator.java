@@ -0,0 +1,353 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Closed-loop HTTP load against a running instance. Every client thread repeatedly picks an operation
+ * from a weighted mix, sends it and waits for the response. Film and user ids are drawn with Zipf
+ * popularity over the seeded rows. Likes and friendships are added on behalf of "load users", ids above
+ * {@code seededUsers} split between the clients, and each client only removes what it added itself,
+ * so writes do not fail on duplicates. Films and users the load creates are the ones it updates and deletes.
+ */
+public class LoadGenerator {
+    /**
+     * Default weights, mostly reads. Pass a subset to {@link #parseMix} to override single entries;
+     * a weight of 0 turns an operation off.
+     */
+    public static final Map<String, Integer> DEFAULT_MIX = defaultMix();
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final String baseUrl;
+    private final Map<String, Integer> mix;
+    private final int films;
+    private final int seededUsers;
+    private final int users;
+    private final ZipfSampler filmPopularity;
+    private final ZipfSampler userPopularity;
+    private final long seed;
+
+    /**
+     * @param films       seeded films, ids 1..films
+     * @param seededUsers seeded users that may already have likes and friends
+     * @param users       all seeded users, ids above {@code seededUsers} are the load users
+     */
+    public LoadGenerator(String baseUrl, Map<String, Integer> mix, int films, int seededUsers, int users,
+                         double zipfExponent, long seed) {
+        if (users <= seededUsers) {
+            throw new IllegalArgumentException("No users left for the load");
+        }
+        for (String operation : mix.keySet()) {
+            if (!DEFAULT_MIX.containsKey(operation)) {
+                throw new IllegalArgumentException("Unknown operation " + operation);
+            }
+        }
+        this.baseUrl = baseUrl;
+        this.mix = mix;
+        this.films = films;
+        this.seededUsers = seededUsers;
+        this.users = users;
+        this.filmPopularity = new ZipfSampler(films, zipfExponent, seed);
+        this.userPopularity = new ZipfSampler(seededUsers, zipfExponent, seed + 1);
+        this.seed = seed;
+    }
+
+    /**
+     * Parses {@code "GET /films/{id}=30,PUT /films/{id}/like/{userId}=5"} over the default mix.
+     */
+    public static Map<String, Integer> parseMix(String overrides) {
+        Map<String, Integer> mix = new LinkedHashMap<>(DEFAULT_MIX);
+        if (overrides == null || overrides.isBlank()) {
+            return mix;
+        }
+        for (String entry : overrides.split(",")) {
+            int separator = entry.lastIndexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Illegal mix entry " + entry);
+            }
+            mix.put(entry.substring(0, separator).trim(), Integer.parseInt(entry.substring(separator + 1).trim()));
+        }
+        return mix;
+    }
+
+    public LoadReport run(int clients, Duration warmup, Duration measured) throws Exception {
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long measureTo = measureFrom + measured.toNanos();
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<LoadReport>> reports = new ArrayList<>(clients);
+            for (int i = 0; i < clients; i++) {
+                Client loadClient = new Client(i, clients);
+                reports.add(executor.submit(() -> loadClient.run(measureFrom, measureTo)));
+            }
+            LoadReport report = new LoadReport(measured);
+            for (Future<LoadReport> clientReport : reports) {
+                report.merge(clientReport.get());
+            }
+            return report;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Map<String, Integer> defaultMix() {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        mix.put("GET /films", 1);
+        mix.put("GET /films/{id}", 200);
+        mix.put("GET /films?ids=", 30);
+        mix.put("GET /films/popular", 120);
+        mix.put("POST /films", 5);
+        mix.put("PUT /films", 5);
+        mix.put("DELETE /films/{id}", 2);
+        mix.put("PUT /films/{id}/like/{userId}", 40);
+        mix.put("DELETE /films/{id}/like/{userId}", 30);
+        mix.put("GET /users", 1);
+        mix.put("GET /users/{id}", 100);
+        mix.put("GET /users/{id}/friends", 80);
+        mix.put("GET /users/{id}/recommendations", 20);
+        mix.put("GET /users/{id}/friends/common/{otherId}", 80);
+        mix.put("POST /users", 5);
+        mix.put("PUT /users", 5);
+        mix.put("PUT /users/{id}/friends/{friendId}", 20);
+        mix.put("DELETE /users/{id}/friends/{friendId}", 15);
+        mix.put("GET /genres", 10);
+        mix.put("GET /genres/{id}", 10);
+        mix.put("GET /mpa", 10);
+        mix.put("GET /mpa/{id}", 10);
+        return Map.copyOf(mix);
+    }
+
+    /**
+     * One client thread with its own random source and the writes it may undo.
+     */
+    private final class Client {
+        private final int index;
+        private final Random random;
+        private final String[] operations;
+        private final int[] cumulativeWeights;
+        private final long[] ownUsers;
+        private final LongHashSet likes = new LongHashSet();
+        private final Deque<long[]> likeQueue = new ArrayDeque<>();
+        private final LongHashSet friendships = new LongHashSet();
+        private final Deque<long[]> friendshipQueue = new ArrayDeque<>();
+        private final List<Integer> createdFilms = new ArrayList<>();
+        private final List<Long> createdUsers = new ArrayList<>();
+        private int created;
+
+        private Client(int index, int clients) {
+            this.index = index;
+            this.random = new Random(seed * 31 + index);
+            List<String> enabled = mix.entrySet().stream()
+                    .filter(entry -> entry.getValue() > 0)
+                    .map(Map.Entry::getKey)
+                    .sorted()
+                    .collect(Collectors.toList());
+            operations = enabled.toArray(String[]::new);
+            cumulativeWeights = new int[operations.length];
+            int total = 0;
+            for (int i = 0; i < operations.length; i++) {
+                total += mix.get(operations[i]);
+                cumulativeWeights[i] = total;
+            }
+            ownUsers = IntStream.rangeClosed(seededUsers + 1, users)
+                    .filter(id -> id % clients == index)
+                    .asLongStream()
+                    .toArray();
+        }
+
+        private LoadReport run(long measureFrom, long measureTo) throws IOException, InterruptedException {
+            LoadReport report = new LoadReport(Duration.ofNanos(measureTo - measureFrom));
+            long now;
+            while ((now = System.nanoTime()) < measureTo) {
+                String operation = nextOperation();
+                Call call = prepare(operation);
+                if (call == null) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                HttpResponse<String> response = client.send(call.request, HttpResponse.BodyHandlers.ofString());
+                long latency = System.nanoTime() - start;
+                boolean success = response.statusCode() < 400;
+                if (success) {
+                    call.onSuccess.apply(response.body());
+                }
+                if (now >= measureFrom) {
+                    report.record(operation, latency, success);
+                }
+            }
+            return report;
+        }
+
+        private String nextOperation() {
+            int ticket = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            int position = Arrays.binarySearch(cumulativeWeights, ticket + 1);
+            return operations[position < 0 ? -position - 1 : position];
+        }
+
+        /**
+         * Builds the request of an operation, or returns null when it has nothing to act on yet,
+         * e.g. an unlike before any like.
+         */
+        private Call prepare(String operation) {
+            switch (operation) {
+                case "GET /films":
+                    return get("/films");
+                case "GET /films/{id}":
+                    return get("/films/" + filmPopularity.next(random));
+                case "GET /films?ids=":
+                    return get("/films?ids=" + IntStream.range(0, 10)
+                            .mapToObj(i -> String.valueOf(filmPopularity.next(random)))
+                            .collect(Collectors.joining(",")));
+                case "GET /films/popular":
+                    return get("/films/popular?count=10");
+                case "POST /films":
+                    return send("POST", "/films", filmJson(0), body -> createdFilms.add(readId(body)));
+                case "PUT /films":
+                    return createdFilms.isEmpty() ? null
+                            : send("PUT", "/films", filmJson(pick(createdFilms)), body -> true);
+                case "DELETE /films/{id}":
+                    return createdFilms.isEmpty() ? null : send("DELETE",
+                            "/films/" + createdFilms.remove(createdFilms.size() - 1), "", body -> true);
+                case "PUT /films/{id}/like/{userId}":
+                    return addPair(likes, likeQueue, filmPopularity.next(random), "/films/%d/like/%d");
+                case "DELETE /films/{id}/like/{userId}":
+                    return removePair(likes, likeQueue, "/films/%d/like/%d");
+                case "GET /users":
+                    return get("/users");
+                case "GET /users/{id}":
+                    return get("/users/" + userPopularity.next(random));
+                case "GET /users/{id}/friends":
+                    return get("/users/" + userPopularity.next(random) + "/friends");
+                case "GET /users/{id}/recommendations":
+                    return get("/users/" + userPopularity.next(random) + "/recommendations?count=10");
+                case "GET /users/{id}/friends/common/{otherId}":
+                    int user = userPopularity.next(random);
+                    int other = userPopularity.next(random);
+                    return user == other ? null : get("/users/" + user + "/friends/common/" + other);
+                case "POST /users":
+                    return send("POST", "/users", userJson(0), body -> createdUsers.add((long) readId(body)));
+                case "PUT /users":
+                    return createdUsers.isEmpty() ? null
+                            : send("PUT", "/users", userJson(pick(createdUsers)), body -> true);
+                case "PUT /users/{id}/friends/{friendId}":
+                    return addPair(friendships, friendshipQueue, userPopularity.next(random),
+                            "/users/%2$d/friends/%1$d");
+                case "DELETE /users/{id}/friends/{friendId}":
+                    return removePair(friendships, friendshipQueue, "/users/%2$d/friends/%1$d");
+                case "GET /genres":
+                    return get("/genres");
+                case "GET /genres/{id}":
+                    return get("/genres/" + (1 + random.nextInt(6)));
+                case "GET /mpa":
+                    return get("/mpa");
+                case "GET /mpa/{id}":
+                    return get("/mpa/" + (1 + random.nextInt(5)));
+                default:
+                    throw new IllegalArgumentException("Unknown operation " + operation);
+            }
+        }
+
+        /**
+         * Links {@code target} with one of this client's load users, formatting the path with the target
+         * first and the load user second.
+         */
+        private Call addPair(LongHashSet pairs, Deque<long[]> queue, long target, String pathFormat) {
+            if (ownUsers.length == 0) {
+                return null;
+            }
+            long user = ownUsers[random.nextInt(ownUsers.length)];
+            long key = target << 32 | user;
+            if (pairs.contains(key)) {
+                return null;
+            }
+            return send("PUT", String.format(pathFormat, target, user), "", body -> {
+                pairs.add(key);
+                return queue.add(new long[]{target, user});
+            });
+        }
+
+        private Call removePair(LongHashSet pairs, Deque<long[]> queue, String pathFormat) {
+            long[] pair = queue.pollFirst();
+            if (pair == null) {
+                return null;
+            }
+            // forgotten even if the request fails, the pair is then retried as a fresh like or friendship
+            pairs.remove(pair[0] << 32 | pair[1]);
+            return send("DELETE", String.format(pathFormat, pair[0], pair[1]), "", body -> true);
+        }
+
+        private <T> T pick(List<T> ids) {
+            return ids.get(random.nextInt(ids.size()));
+        }
+
+        private String filmJson(int id) {
+            int number = created++;
+            return "{" + (id > 0 ? "\"id\":" + id + "," : "") +
+                    "\"name\":\"Load film " + index + "-" + number + "\"," +
+                    "\"description\":\"Created by the load generator\"," +
+                    "\"releaseDate\":\"2000-01-01\",\"duration\":" + (60 + number % 120) + ",\"rate\":0," +
+                    "\"mpa\":{\"id\":" + (1 + number % 5) + "},\"genres\":[{\"id\":" + (1 + number % 6) + "}]}";
+        }
+
+        private String userJson(long id) {
+            int number = created++;
+            String login = "load" + seed + "c" + index + "n" + number;
+            return "{" + (id > 0 ? "\"id\":" + id + "," : "") +
+                    "\"email\":\"" + login + "@bench.ru\",\"login\":\"" + login + "\"," +
+                    "\"name\":\"Load user\",\"birthday\":\"1990-01-01\"}";
+        }
+
+        private Call get(String path) {
+            return new Call(HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build(), body -> true);
+        }
+
+        private Call send(String method, String path, String json, Function<String, Boolean> onSuccess) {
+            return new Call(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofString(json))
+                    .build(), onSuccess);
+        }
+    }
+
+    private static int readId(String body) {
+        try {
+            return OBJECT_MAPPER.readTree(body).get("id").asInt();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class Call {
+        private final HttpRequest request;
+        private final Function<String, Boolean> onSuccess;
+
+        private Call(HttpRequest request, Function<String, Boolean> onSuccess) {
+            this.request = request;
+            this.onSuccess = onSuccess;
+        }
+    }
+}
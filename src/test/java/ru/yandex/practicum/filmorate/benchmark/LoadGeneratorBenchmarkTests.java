@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.index.FriendGraphIndex;
+import ru.yandex.practicum.filmorate.index.RecommendationIndex;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * End-to-end throughput of the whole HTTP API under a mixed read/write load with Zipf-distributed
+ * film and user popularity. Run with {@code mvn test -Pbenchmark -Dtest=LoadGeneratorBenchmarkTests};
+ * the load is set with {@code -Dload.clients}, {@code -Dload.warmup-seconds}, {@code -Dload.duration-seconds},
+ * {@code -Dload.zipf-exponent} and {@code -Dload.mix} (see LoadGenerator.parseMix), the dataset with
+ * {@code -Dbenchmark.films}, {@code -Dbenchmark.users}, {@code -Dbenchmark.likes} and {@code -Dbenchmark.friends}
+ * (friends per user).
+ */
+@Tag("benchmark")
+@Slf4j
+public class LoadGeneratorBenchmarkTests {
+    private static final int FILMS = Integer.getInteger("benchmark.films", 10_000);
+    private static final int USERS = Integer.getInteger("benchmark.users", 20_000);
+    private static final long LIKES = Long.getLong("benchmark.likes", 200_000L);
+    private static final int FRIENDS = Integer.getInteger("benchmark.friends", 20);
+    private static final int LOAD_USERS = 2_000;
+    private static final int CLIENTS = Integer.getInteger("load.clients", 16);
+    private static final int WARMUP_SECONDS = Integer.getInteger("load.warmup-seconds", 5);
+    private static final int DURATION_SECONDS = Integer.getInteger("load.duration-seconds", 30);
+    private static final double ZIPF_EXPONENT = Double.parseDouble(System.getProperty("load.zipf-exponent", "1.0"));
+    private static final long SEED = 42;
+
+    @Test
+    public void benchmarkMixedLoad() throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .run("--server.port=0", "--spring.datasource.url=jdbc:h2:mem:load-generator")) {
+            BenchmarkDataSeeder seeder = new BenchmarkDataSeeder(context.getBean(JdbcTemplate.class), SEED);
+            seeder.seedUsers(USERS + LOAD_USERS);
+            seeder.seedFilms(FILMS, 3);
+            // the same seeds as in LoadGenerator, so the films and users read most are the most liked ones
+            seeder.seedZipfLikes(LIKES, new ZipfSampler(FILMS, ZIPF_EXPONENT, SEED), USERS);
+            seeder.seedZipfFriendships(USERS, FRIENDS, new ZipfSampler(USERS, ZIPF_EXPONENT, SEED + 1));
+            context.getBean(FilmPopularityIndex.class).rebuild();
+            context.getBean(FriendGraphIndex.class).rebuild();
+            context.getBean(RecommendationIndex.class).rebuild();
+
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            LoadGenerator generator = new LoadGenerator("http://localhost:" + port,
+                    LoadGenerator.parseMix(System.getProperty("load.mix")), FILMS, USERS, USERS + LOAD_USERS,
+                    ZIPF_EXPONENT, SEED);
+            LoadReport report = generator.run(CLIENTS, Duration.ofSeconds(WARMUP_SECONDS),
+                    Duration.ofSeconds(DURATION_SECONDS));
+            log.info("{} clients, {} films, {} users, {} likes, {} friends per user, Zipf exponent {}:\n{}",
+                    CLIENTS, FILMS, USERS, LIKES, FRIENDS, ZIPF_EXPONENT, report);
+            assertTrue(report.requests() > report.errors(), "No request succeeded");
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-operation request counts and latencies of a load run, formatted as a table of
+ * throughput and p50/p99/p999 latency.
+ */
+public class LoadReport {
+    private final Duration measured;
+    private final Map<String, Samples> samples = new TreeMap<>();
+
+    public LoadReport(Duration measured) {
+        this.measured = measured;
+    }
+
+    public void record(String operation, long latencyNanos, boolean success) {
+        samples.computeIfAbsent(operation, key -> new Samples()).add(latencyNanos, success);
+    }
+
+    public void merge(LoadReport other) {
+        other.samples.forEach((operation, otherSamples) ->
+                samples.computeIfAbsent(operation, key -> new Samples()).addAll(otherSamples));
+    }
+
+    public long requests() {
+        return samples.values().stream().mapToLong(s -> s.size).sum();
+    }
+
+    public long errors() {
+        return samples.values().stream().mapToLong(s -> s.errors).sum();
+    }
+
+    @Override
+    public String toString() {
+        double seconds = measured.toNanos() / 1e9;
+        StringBuilder table = new StringBuilder(String.format("%-42s %9s %7s %9s %9s %9s %9s%n",
+                "operation", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms"));
+        Samples total = new Samples();
+        samples.forEach((operation, operationSamples) -> {
+            row(table, operation, operationSamples, seconds);
+            total.addAll(operationSamples);
+        });
+        row(table, "total", total, seconds);
+        return table.toString();
+    }
+
+    private static void row(StringBuilder table, String operation, Samples samples, double seconds) {
+        long[] sorted = Arrays.copyOf(samples.latencies, samples.size);
+        Arrays.sort(sorted);
+        table.append(String.format("%-42s %9d %7d %9.1f %9.2f %9.2f %9.2f%n", operation, samples.size,
+                samples.errors, samples.size / seconds,
+                percentile(sorted, 0.5), percentile(sorted, 0.99), percentile(sorted, 0.999)));
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+
+    private static final class Samples {
+        private long[] latencies = new long[1024];
+        private int size;
+        private long errors;
+
+        private void add(long latencyNanos, boolean success) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = latencyNanos;
+            if (!success) {
+                errors++;
+            }
+        }
+
+        private void addAll(Samples other) {
+            if (size + other.size > latencies.length) {
+                latencies = Arrays.copyOf(latencies, Math.max(size + other.size, latencies.length * 2));
+            }
+            System.arraycopy(other.latencies, 0, latencies, size, other.size);
+            size += other.size;
+            errors += other.errors;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Draws ids 1..n with Zipf-distributed popularity: the id of rank k is drawn with probability
+ * proportional to 1 / k^exponent. Ranks are mapped to ids through a seeded shuffle, so the popular
+ * ids are spread over the table instead of being the lowest ones.
+ */
+public class ZipfSampler {
+    private final double[] cumulative;
+    private final int[] idByRank;
+
+    public ZipfSampler(int n, double exponent, long seed) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Illegal Zipf range");
+        }
+        cumulative = new double[n];
+        double sum = 0;
+        for (int rank = 0; rank < n; rank++) {
+            sum += 1 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < n; rank++) {
+            cumulative[rank] /= sum;
+        }
+        idByRank = new int[n];
+        for (int i = 0; i < n; i++) {
+            idByRank[i] = i + 1;
+        }
+        Random random = new Random(seed);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int id = idByRank[i];
+            idByRank[i] = idByRank[j];
+            idByRank[j] = id;
+        }
+    }
+
+    public int next(Random random) {
+        int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+        rank = rank < 0 ? -rank - 1 : rank;
+        return idByRank[Math.min(rank, idByRank.length - 1)];
+    }
+}
@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.junit.jupiter.api.Test;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Strategy;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HttpLogConfigurationTests {
+    private final HttpLogConfiguration configuration = new HttpLogConfiguration();
+
+    @Test
+    public void shouldSampleByPercent() {
+        HttpRequest request = mock(HttpRequest.class);
+        assertTrue(configuration.requestCondition(100, List.of(), List.of()).test(request));
+        assertFalse(configuration.requestCondition(0, List.of(), List.of()).test(request));
+
+        Predicate<HttpRequest> condition = configuration.requestCondition(10, List.of(), List.of());
+        int logged = 0;
+        for (int i = 0; i < 10_000; i++) {
+            logged += condition.test(request) ? 1 : 0;
+        }
+        assertTrue(logged > 700 && logged < 1300);
+        assertThrows(IllegalArgumentException.class, () -> configuration.requestCondition(101, List.of(), List.of()));
+    }
+
+    @Test
+    public void shouldApplyLogbookIncludesAndExcludes() {
+        Predicate<HttpRequest> condition = configuration.requestCondition(100, List.of(), List.of("/actuator/**"));
+        assertFalse(condition.test(request("GET", "/actuator/prometheus")));
+        assertFalse(condition.test(request("GET", "/actuator/health")));
+        assertTrue(condition.test(request("GET", "/films")));
+
+        Predicate<HttpRequest> included = configuration.requestCondition(100, List.of("/films/**"), List.of());
+        assertTrue(included.test(request("GET", "/films/1")));
+        assertFalse(included.test(request("GET", "/users/1")));
+    }
+
+    @Test
+    public void shouldSkipBodiesOfListedGetRequestsOnly() throws IOException {
+        Strategy strategy = configuration.httpLogStrategy(List.of("/films", "/users/*/friends"));
+
+        HttpRequest list = request("GET", "/users/1/friends");
+        HttpResponse listResponse = mock(HttpResponse.class);
+        strategy.process(list);
+        strategy.process(list, listResponse);
+        verify(list).withoutBody();
+        verify(listResponse).withoutBody();
+
+        HttpRequest bulk = request("POST", "/films");
+        HttpResponse bulkResponse = mock(HttpResponse.class);
+        strategy.process(bulk);
+        strategy.process(bulk, bulkResponse);
+        verify(bulk).withBody();
+        verify(bulkResponse).withBody();
+    }
+
+    private static HttpRequest request(String method, String path) {
+        HttpRequest request = mock(HttpRequest.class);
+        when(request.getMethod()).thenReturn(method);
+        when(request.getPath()).thenReturn(path);
+        return request;
+    }
+}
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Sink;
+import org.zalando.logbook.Strategy;
+
+import java.io.IOException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@SpringBootTest(properties = "filmorate.http-log.sample-percent=100")
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class HttpLogExclusionTests {
+    private final MockMvc mockMvc;
+    private final Strategy strategy;
+
+    @MockBean
+    private Sink sink;
+
+    @Test
+    public void shouldNotLogActuatorRequests() throws Exception {
+        when(sink.isActive()).thenReturn(true);
+
+        mockMvc.perform(get("/actuator/health"));
+        verify(sink, never()).write(any(Correlation.class), any(HttpRequest.class), any(HttpResponse.class));
+
+        clearInvocations(sink);
+        mockMvc.perform(get("/genres"));
+        verify(sink).write(any(Correlation.class), any(HttpRequest.class), any(HttpResponse.class));
+    }
+
+    @Test
+    public void shouldSkipBodiesOfHeavyReads() throws IOException {
+        for (String path : new String[]{"/films", "/users/1/friends/suggestions", "/users/1/recommendations"}) {
+            HttpRequest request = mock(HttpRequest.class);
+            when(request.getMethod()).thenReturn("GET");
+            when(request.getPath()).thenReturn(path);
+            HttpResponse response = mock(HttpResponse.class);
+            strategy.process(request);
+            strategy.process(request, response);
+            verify(request).withoutBody();
+            verify(response).withoutBody();
+        }
+    }
+}
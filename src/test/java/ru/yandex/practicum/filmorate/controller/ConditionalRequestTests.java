@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class ConditionalRequestTests {
+    private final MockMvc mockMvc;
+    private final MeterRegistry meterRegistry;
+
+    @Test
+    public void shouldAnswerUnchangedFilmWith304UntilItIsLiked() throws Exception {
+        mockMvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON).content(
+                        "{\"name\":\"film\",\"description\":\"description\",\"releaseDate\":\"2000-01-01\","
+                                + "\"duration\":100,\"mpa\":{\"id\":1}}"))
+                .andExpect(status().isCreated());
+        mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON).content(
+                        "{\"email\":\"user@mail.ru\",\"login\":\"user\",\"birthday\":\"2000-01-01\"}"))
+                .andExpect(status().isCreated());
+
+        String filmETag = eTag("/films/1");
+        String popularETag = eTag("/films/popular");
+        mockMvc.perform(get("/films/1").header(HttpHeaders.IF_NONE_MATCH, filmETag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/films/popular").header(HttpHeaders.IF_NONE_MATCH, popularETag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(put("/films/1/like/1")).andExpect(status().isOk());
+        mockMvc.perform(get("/films/1").header(HttpHeaders.IF_NONE_MATCH, filmETag))
+                .andExpect(status().isOk());
+        assertNotEquals(filmETag, eTag("/films/1"));
+        assertNotEquals(popularETag, eTag("/films/popular"));
+    }
+
+    @Test
+    public void shouldAnswerUnchangedGenresAndRatingsWith304() throws Exception {
+        for (String uri : new String[]{"/genres", "/genres/1", "/mpa", "/mpa/1"}) {
+            mockMvc.perform(get(uri).header(HttpHeaders.IF_NONE_MATCH, eTag(uri)))
+                    .andExpect(status().isNotModified());
+        }
+    }
+
+    @Test
+    public void shouldRevalidateWithoutReadingStorage() throws Exception {
+        mockMvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON).content(
+                        "{\"name\":\"film\",\"description\":\"description\",\"releaseDate\":\"2000-01-01\","
+                                + "\"duration\":100,\"mpa\":{\"id\":1}}"))
+                .andExpect(status().isCreated());
+        String filmETag = eTag("/films/1");
+        long reads = storageCalls("getFilm");
+        assertNotEquals(0, reads);
+
+        mockMvc.perform(get("/films/1").header(HttpHeaders.IF_NONE_MATCH, filmETag))
+                .andExpect(status().isNotModified());
+        assertEquals(reads, storageCalls("getFilm"));
+    }
+
+    @Test
+    public void shouldAnswerDeletedAndMissingResourcesWith404() throws Exception {
+        mockMvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON).content(
+                        "{\"name\":\"film\",\"description\":\"description\",\"releaseDate\":\"2000-01-01\","
+                                + "\"duration\":100,\"mpa\":{\"id\":1}}"))
+                .andExpect(status().isCreated());
+        String filmETag = eTag("/films/1");
+        mockMvc.perform(delete("/films/1")).andExpect(status().isNoContent());
+        mockMvc.perform(get("/films/1").header(HttpHeaders.IF_NONE_MATCH, filmETag))
+                .andExpect(status().isNotFound());
+
+        for (String uri : new String[]{"/films/42", "/genres/42", "/mpa/42"}) {
+            mockMvc.perform(get(uri)).andExpect(status().isNotFound());
+        }
+    }
+
+    private long storageCalls(String method) {
+        return meterRegistry.find("filmorate.storage.call").tag("method", method).timers().stream()
+                .mapToLong(Timer::count)
+                .sum();
+    }
+
+    private String eTag(String uri) throws Exception {
+        return mockMvc.perform(get(uri))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+}
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "filmorate.diagnostics.query-plans.enabled=true")
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class DiagnosticsControllerTests {
+    private final MockMvc mockMvc;
+
+    @Test
+    public void shouldReportQueryPlansWhenEnabled() throws Exception {
+        mockMvc.perform(get("/diagnostics/query-plans"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].statement").isString())
+                .andExpect(jsonPath("$[0].plan").isString())
+                .andExpect(jsonPath("$[0].tableScan").isBoolean());
+    }
+}
@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.ResourceVersion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CatalogVersionsTests {
+    private final CatalogVersions versions = new CatalogVersions();
+
+    @Test
+    public void shouldVersionChangedFilmAndCatalogOnly() {
+        ResourceVersion reference = versions.getReferenceVersion();
+        ResourceVersion film2 = versions.getFilmVersion(2);
+        versions.filmChanged(1);
+
+        assertNotEquals(reference.getETag(), versions.getFilmVersion(1).getETag());
+        assertEquals(versions.getFilmVersion(1).getETag(), versions.getCatalogVersion().getETag());
+        assertEquals(film2.getETag(), versions.getFilmVersion(2).getETag());
+        assertEquals(reference.getETag(), versions.getReferenceVersion().getETag());
+    }
+
+    @Test
+    public void shouldRoundLastModifiedUpToAFullSecond() {
+        long before = System.currentTimeMillis();
+        versions.filmChanged(1);
+
+        long lastModified = versions.getFilmVersion(1).getLastModified();
+        assertEquals(0, lastModified % 1000);
+        assertTrue(lastModified >= before);
+    }
+
+    @Test
+    public void shouldNeverRepeatVersionsOfAFilm() {
+        versions.filmChanged(1);
+        String first = versions.getFilmVersion(1).getETag();
+        versions.allFilmsChanged();
+        String afterAll = versions.getFilmVersion(1).getETag();
+        versions.filmChanged(1);
+
+        assertNotEquals(first, afterAll);
+        assertNotEquals(afterAll, versions.getFilmVersion(1).getETag());
+        assertEquals(afterAll, versions.getFilmVersion(2).getETag());
+    }
+}
@@ -0,0 +1,161 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.impl.memory.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.impl.memory.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FilmPopularityIndexTests {
+    private InMemoryFilmStorage storage;
+    private FilmPopularityIndex index;
+
+    @BeforeEach
+    public void setup() {
+        storage = new InMemoryFilmStorage(new InMemoryUserStorage());
+        storage.addFilm(film("title1", 4, 2000, 1, 1, 2));
+        storage.addFilm(film("title2", 8, 2000, 2, 2));
+        storage.addFilm(film("title3", 10, 2001, 1, 2));
+        storage.addFilm(film("title4", 8, 2001, 1));
+        index = new FilmPopularityIndex(storage);
+        index.rebuild();
+    }
+
+    @Test
+    public void shouldRankByRateThenByHigherId() {
+        assertEquals(List.of(3, 4, 2, 1), index.getTop(10));
+        assertEquals(List.of(3, 4), index.getTop(2));
+    }
+
+    @Test
+    public void shouldFollowIncrementalUpdates() {
+        index.addToRate(1, 7);
+        assertEquals(List.of(1, 3, 4, 2), index.getTop(4));
+
+        index.addToRate(3, -3);
+        assertEquals(List.of(1, 4, 2, 3), index.getTop(4));
+
+        index.remove(4);
+        Film film = film("title5", 9, 2000, 1);
+        film.setId(5);
+        index.put(film);
+        assertEquals(List.of(1, 5, 2, 3), index.getTop(4));
+    }
+
+    @Test
+    public void shouldRankWithinGenreRatingAndYear() {
+        assertEquals(List.of(3, 4, 2, 1), index.getTop(10, null, null, null));
+        assertEquals(List.of(3, 2, 1), index.getTop(10, (short) 2, null, null));
+        assertEquals(List.of(3, 4, 1), index.getTop(10, null, (short) 1, null));
+        assertEquals(List.of(3, 4), index.getTop(10, null, null, 2001));
+        assertEquals(List.of(3), index.getTop(1, null, null, 2001));
+        assertEquals(List.of(1), index.getTop(10, (short) 1, (short) 1, 2000));
+        assertEquals(List.of(), index.getTop(10, (short) 1, (short) 2, null));
+        assertEquals(List.of(), index.getTop(10, (short) 6, null, null));
+        assertEquals(List.of(), index.getTop(10, null, null, 1999));
+    }
+
+    @Test
+    public void shouldMoveFilmsBetweenFacets() {
+        index.addToRate(1, 7);
+        assertEquals(List.of(1, 3, 2), index.getTop(10, (short) 2, null, null));
+
+        Film film = film("title3", 3, 2000, 2, 3);
+        film.setId(3);
+        index.put(film);
+        assertEquals(List.of(4), index.getTop(10, null, null, 2001));
+        assertEquals(List.of(2, 3), index.getTop(10, null, (short) 2, null));
+        assertEquals(List.of(3), index.getTop(10, (short) 3, null, 2000));
+        assertEquals(List.of(1, 2), index.getTop(10, (short) 2, null, null));
+
+        index.remove(1);
+        assertEquals(List.of(2), index.getTop(10, (short) 2, null, null));
+        assertEquals(List.of(4), index.getTop(10, null, (short) 1, null));
+    }
+
+    @Test
+    public void shouldDropRankingsOfEmptiedFacets() {
+        // years 2000 and 2001, MPA ratings 1 and 2, genres 1 and 2
+        assertEquals(6, index.facetCount());
+        index.remove(2);
+        assertEquals(5, index.facetCount());
+
+        Film film = film("title4", 8, 2002, 1);
+        film.setId(4);
+        index.put(film);
+        index.remove(3);
+        // year 2001 is gone, 2002 is new
+        assertEquals(5, index.facetCount());
+        index.remove(1);
+        index.remove(4);
+        assertEquals(0, index.facetCount());
+        assertEquals(List.of(), index.getTop(10, (short) 1, null, null));
+    }
+
+    @Test
+    public void shouldKeepServingAndFollowingChangesWhileRebuilding() throws InterruptedException {
+        CountDownLatch rebuildReading = new CountDownLatch(1);
+        CountDownLatch rebuildRelease = new CountDownLatch(1);
+        InMemoryFilmStorage blockingStorage = new InMemoryFilmStorage(new InMemoryUserStorage()) {
+            @Override
+            public List<FilmSummary> getAllFilmSummaries() {
+                List<FilmSummary> summaries = super.getAllFilmSummaries();
+                rebuildReading.countDown();
+                try {
+                    rebuildRelease.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return summaries;
+            }
+        };
+        blockingStorage.addFilm(film("title1", 4, 2000, 1));
+        blockingStorage.addFilm(film("title2", 8, 2000, 1));
+        FilmPopularityIndex rebuilding = new FilmPopularityIndex(blockingStorage);
+        Thread rebuild = new Thread(rebuilding::rebuild);
+        rebuild.start();
+        assertTrue(rebuildReading.await(10, TimeUnit.SECONDS));
+
+        // storage has been read, the changes below must neither be lost nor counted twice
+        Film liked = blockingStorage.getFilm(1);
+        liked.setRate(liked.getRate() + 5);
+        blockingStorage.updateFilm(liked);
+        rebuilding.addToRate(1, 5);
+        blockingStorage.deleteFilm(2);
+        rebuilding.remove(2);
+
+        rebuildRelease.countDown();
+        rebuild.join(10_000);
+        assertFalse(rebuild.isAlive());
+        assertEquals(9, rebuilding.getRate(1));
+        assertEquals(List.of(1), rebuilding.getTop(10));
+    }
+
+    @Test
+    public void shouldIgnoreUnknownFilms() {
+        index.addToRate(42, 1);
+        index.remove(42);
+        assertEquals(4, index.getTop(10).size());
+    }
+
+    private static Film film(String name, int rate, int year, int mpaId, int... genreIds) {
+        Film film = new Film(name, "description", LocalDate.of(year, 1, 1), 100, rate,
+                new MpaRating((short) mpaId, "MPA" + mpaId));
+        for (int genreId : genreIds) {
+            film.getGenres().add(new Genre((short) genreId, "genre" + genreId));
+        }
+        return film;
+    }
+}
@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.impl.memory.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.impl.memory.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FilmSearchIndexTests {
+    private FilmPopularityIndex popularityIndex;
+    private FilmSearchIndex index;
+
+    @BeforeEach
+    public void setup() {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage(new InMemoryUserStorage());
+        storage.addFilm(film("Ёлки", "Новогодняя комедия", 4));
+        storage.addFilm(film("Ирония судьбы", "Новогодняя комедия о бане", 8));
+        storage.addFilm(film("Brother", "Crime drama, 1997", 10));
+        storage.addFilm(film("Брат 2", "Продолжение фильма «Брат»", 2));
+        popularityIndex = new FilmPopularityIndex(storage);
+        popularityIndex.rebuild();
+        index = new FilmSearchIndex(storage, popularityIndex);
+        index.rebuild();
+    }
+
+    @Test
+    public void shouldSplitAndFoldWordsOfAnyScript() {
+        assertEquals(Set.of("елки", "брат", "2", "brother", "s"), FilmSearchIndex.words("ЁЛКИ, брат-2!", "Brother's"));
+    }
+
+    @Test
+    public void shouldRankByMatchedWordsThenRateThenId() {
+        assertEquals(List.of(1), index.search("елки", 10));
+        assertEquals(List.of(2, 1), index.search("НОВОГОДНЯЯ", 10));
+        assertEquals(List.of(2, 1), index.search("комедия о бане", 10));
+        assertEquals(List.of(4, 3), index.search("брат 2 drama", 10));
+        assertEquals(List.of(4), index.search("брат 2 drama", 1));
+        assertEquals(List.of(), index.search("боевик", 10));
+
+        popularityIndex.addToRate(1, 5);
+        assertEquals(List.of(1, 2), index.search("новогодняя", 10));
+    }
+
+    @Test
+    public void shouldKeepOnlyTheBestFilmsOfCommonWords() {
+        for (int id = 5; id <= 104; id++) {
+            index.put(id, "The film " + id, id % 3 == 0 ? "The best" : "Plain");
+        }
+        assertEquals(List.of(102, 99, 96), index.search("the best", 3));
+        assertEquals(List.of(104, 103, 102, 101), index.search("the", 4));
+        assertEquals(100, index.search("the", 1000).size());
+    }
+
+    @Test
+    public void shouldFollowUpdates() {
+        index.put(1, "Ёлки 2", "Продолжение");
+        assertEquals(List.of(2), index.search("комедия", 10));
+        assertEquals(List.of(1, 4), index.search("продолжение", 10));
+
+        index.remove(4);
+        index.put(5, "Брат", null);
+        assertEquals(List.of(5), index.search("брат", 10));
+        assertEquals(List.of(1), index.search("продолжение", 10));
+    }
+
+    @Test
+    public void shouldRejectQueriesWithoutWordsOrWithTooManyWords() {
+        assertThrows(IllegalArgumentException.class, () -> index.search(" ,.! ", 10));
+        assertThrows(IllegalArgumentException.class, () -> index.search("a b c d e f g h i j k l m n o p q", 10));
+    }
+
+    private static Film film(String name, String description, int rate) {
+        return new Film(name, description, LocalDate.of(2000, 1, 1), 100, rate, new MpaRating((short) 1, "G"));
+    }
+}
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.yandex.practicum.filmorate.benchmark.ZipfSampler;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * JMH benchmarks of the friend graph index on a synthetic graph: friend counts per user are heavy-tailed
+ * (a few users follow thousands) and the followed users are Zipf-distributed (a few are followed by many).
+ * Run with {@code mvn test -Pjmh -Djmh.args="FriendGraphIndexBenchmark"}; the scale is set with
+ * {@code -p users=...} and {@code -p friends=...} (mean friends per user), the suggestion fanout
+ * with {@code -p fanout=...}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FriendGraphIndexBenchmark {
+    @Param("1000000")
+    public int users;
+    @Param("20")
+    public int friends;
+    @Param("200")
+    public int fanout;
+
+    private FriendGraphIndex index;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        ZipfSampler popularity = new ZipfSampler(users, 1.0, 43);
+        Map<Long, long[]> friendIds = new HashMap<>();
+        for (long userId = 1; userId <= users; userId++) {
+            // 1 / sqrt(uniform) has mean 2 and a tail falling with the square of the count
+            int count = (int) Math.min(users - 1, friends / 2 / Math.sqrt(1 - random.nextDouble()));
+            long[] ids = new long[count];
+            for (int i = 0; i < count; i++) {
+                long friendId = popularity.next(random);
+                ids[i] = friendId == userId ? 1 + userId % users : friendId;
+            }
+            Arrays.sort(ids);
+            friendIds.put(userId, Arrays.stream(ids).distinct().toArray());
+        }
+        UserStorage storage = mock(UserStorage.class);
+        when(storage.getFriendIds()).thenReturn(friendIds);
+        index = new FriendGraphIndex(storage, fanout);
+        index.rebuild();
+    }
+
+    @Benchmark
+    public long[] getSuggestions() {
+        return index.getSuggestions(1 + ThreadLocalRandom.current().nextInt(users), 10);
+    }
+
+    @Benchmark
+    public long[] getCommonFriends() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return index.getCommonFriends(1 + random.nextInt(users), 1 + random.nextInt(users));
+    }
+
+    @Benchmark
+    public void addAndRemoveFriend() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long userId = 1 + random.nextInt(users);
+        long friendId = 1 + random.nextInt(users);
+        index.addFriend(userId, friendId);
+        index.removeFriend(userId, friendId);
+    }
+}
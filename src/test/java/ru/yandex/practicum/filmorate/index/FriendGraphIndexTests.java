@@ -0,0 +1,167 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.EntityNotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.impl.memory.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FriendGraphIndexTests {
+    private FriendGraphIndex index;
+
+    @BeforeEach
+    public void setup() {
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        for (int i = 1; i <= 5; i++) {
+            storage.addUser(new User("user" + i + "@mail.ru", "login" + i, "name" + i, LocalDate.of(2000, 1, i)));
+        }
+        // the in-memory storage keeps friendships mutual
+        storage.addFriend(1, 3);
+        storage.addFriend(1, 4);
+        storage.addFriend(2, 3);
+        storage.addFriend(2, 4);
+        storage.addFriend(2, 5);
+        index = new FriendGraphIndex(storage, 200);
+        index.rebuild();
+    }
+
+    @Test
+    public void shouldIntersectLoadedFriends() {
+        assertArrayEquals(new long[]{3, 4}, index.getCommonFriends(1, 2));
+        assertArrayEquals(new long[]{1, 2}, index.getCommonFriends(3, 4));
+        assertArrayEquals(new long[0], index.getCommonFriends(1, 5));
+    }
+
+    @Test
+    public void shouldFollowIncrementalUpdates() {
+        index.addFriend(1, 5);
+        index.addFriend(1, 5);
+        assertArrayEquals(new long[]{3, 4, 5}, index.getCommonFriends(1, 2));
+
+        index.removeFriend(2, 3);
+        index.removeFriend(2, 3);
+        assertArrayEquals(new long[]{4, 5}, index.getCommonFriends(1, 2));
+
+        index.removeUser(4);
+        assertArrayEquals(new long[]{5}, index.getCommonFriends(1, 2));
+        assertThrows(EntityNotFoundException.class, () -> index.getCommonFriends(1, 4));
+
+        index.addUser(6);
+        assertArrayEquals(new long[0], index.getCommonFriends(1, 6));
+    }
+
+    @Test
+    public void shouldThrowEntityNotFoundExceptionForUnknownUsers() {
+        assertThrows(EntityNotFoundException.class, () -> index.getCommonFriends(1, 42));
+        assertThrows(EntityNotFoundException.class, () -> index.getCommonFriends(42, 1));
+        assertThrows(EntityNotFoundException.class, () -> index.getSuggestions(42, 10));
+    }
+
+    @Test
+    public void shouldSuggestFriendsOfFriendsByMutualFriends() {
+        assertArrayEquals(new long[]{2}, index.getSuggestions(1, 10));
+        assertArrayEquals(new long[]{3, 4}, index.getSuggestions(5, 10));
+        assertArrayEquals(new long[]{3}, index.getSuggestions(5, 1));
+
+        index.addFriend(5, 1);
+        assertArrayEquals(new long[]{3, 4}, index.getSuggestions(5, 10));
+        index.addFriend(1, 5);
+        // 2 is a friend of 3, 4 and 5 now
+        index.addFriend(5, 2);
+        assertArrayEquals(new long[]{2}, index.getSuggestions(1, 10));
+        index.removeUser(2);
+        assertArrayEquals(new long[0], index.getSuggestions(1, 10));
+    }
+
+    @Test
+    public void shouldFollowAtMostFanoutFriendsPerHop() throws Exception {
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        for (int i = 1; i <= 5; i++) {
+            storage.addUser(new User("user" + i + "@mail.ru", "login" + i, "name" + i, LocalDate.of(2000, 1, i)));
+        }
+        storage.addFriend(5, 2);
+        storage.addFriend(2, 3);
+        storage.addFriend(2, 4);
+        FriendGraphIndex narrowIndex = new FriendGraphIndex(storage, 1);
+        narrowIndex.rebuild();
+
+        // 5 follows only 2, and from 2 only the first of 3, 4 and 5 is followed
+        assertArrayEquals(new long[]{3}, narrowIndex.getSuggestions(5, 10));
+    }
+
+    @Test
+    public void shouldMatchAMapOfSetsAcrossCompactions() {
+        Map<Long, TreeSet<Long>> expected = new HashMap<>();
+        index = new FriendGraphIndex(new InMemoryUserStorage(), 200);
+        index.rebuild();
+        Random random = new Random(7);
+        for (int round = 0; round < 30_000; round++) {
+            long userId = 1 + random.nextInt(3000);
+            long friendId = 1 + random.nextInt(3000);
+            int operation = random.nextInt(100);
+            if (operation < 30) {
+                index.addUser(userId);
+                expected.putIfAbsent(userId, new TreeSet<>());
+            } else if (operation < 70) {
+                index.addFriend(userId, friendId);
+                if (expected.containsKey(userId)) {
+                    expected.get(userId).add(friendId);
+                }
+            } else if (operation < 99) {
+                index.removeFriend(userId, friendId);
+                if (expected.containsKey(userId)) {
+                    expected.get(userId).remove(friendId);
+                }
+            } else {
+                index.removeUser(userId);
+                if (expected.remove(userId) != null) {
+                    expected.values().forEach(friends -> friends.remove(userId));
+                }
+            }
+        }
+        for (long userId = 1; userId <= 3000; userId++) {
+            long id = userId;
+            if (expected.containsKey(id)) {
+                assertArrayEquals(toArray(expected.get(id)), index.getCommonFriends(id, id));
+            } else {
+                assertThrows(EntityNotFoundException.class, () -> index.getCommonFriends(id, id));
+            }
+        }
+    }
+
+    @Test
+    public void shouldIntersectLikeSortedSetsForAnySizeRatio() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            TreeSet<Long> first = randomSet(random, 1 + random.nextInt(50));
+            TreeSet<Long> second = randomSet(random, 1 + random.nextInt(round % 2 == 0 ? 50 : 5000));
+            TreeSet<Long> expected = new TreeSet<>(first);
+            expected.retainAll(second);
+
+            long[] expectedIds = expected.stream().mapToLong(Long::longValue).toArray();
+            assertArrayEquals(expectedIds, FriendGraphIndex.intersect(toArray(first), toArray(second)));
+            assertArrayEquals(expectedIds, FriendGraphIndex.intersect(toArray(second), toArray(first)));
+        }
+    }
+
+    private static TreeSet<Long> randomSet(Random random, int size) {
+        TreeSet<Long> set = new TreeSet<>();
+        while (set.size() < size) {
+            set.add(1L + random.nextInt(10_000));
+        }
+        return set;
+    }
+
+    private static long[] toArray(TreeSet<Long> set) {
+        return set.stream().mapToLong(Long::longValue).toArray();
+    }
+}
@@ -0,0 +1,141 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.impl.memory.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.impl.memory.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RecommendationIndexTests {
+    private final CountDownLatch rebuildReading = new CountDownLatch(1);
+    private final CountDownLatch rebuildRelease = new CountDownLatch(1);
+    private volatile boolean blockRebuild;
+    private volatile String rebuildThread;
+    private InMemoryFilmStorage storage;
+    private RecommendationIndex index;
+
+    @BeforeEach
+    public void setup() {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        storage = new InMemoryFilmStorage(userStorage) {
+            @Override
+            public Map<Long, int[]> getLikedFilmIds() {
+                Map<Long, int[]> likedFilmIds = super.getLikedFilmIds();
+                if (blockRebuild) {
+                    rebuildThread = Thread.currentThread().getName();
+                    rebuildReading.countDown();
+                    try {
+                        rebuildRelease.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return likedFilmIds;
+            }
+        };
+        for (int i = 1; i <= 5; i++) {
+            userStorage.addUser(new User("user" + i + "@mail.ru", "login" + i, "name" + i,
+                    LocalDate.of(2000, 1, 1)));
+            storage.addFilm(new Film("title" + i, "description", LocalDate.of(2000, 1, 1), 100, 0,
+                    new MpaRating((short) 1, "G")));
+        }
+        like(1, 1, 2, 3);
+        like(2, 1, 2, 4);
+        like(3, 1, 5);
+        like(4, 2);
+        index = new RecommendationIndex(storage, 2, 600_000);
+        index.rebuild();
+    }
+
+    @Test
+    public void shouldRecommendFilmsCoLikedWithTheUsersFilms() {
+        // neighbours of film 1: 2 (2 co-likes), 3; of film 2: 1 (2 co-likes), 3; film 4 and 5 are cut off
+        assertEquals(List.of(1, 3), index.recommend(4, 10));
+        assertEquals(List.of(2, 3), index.recommend(3, 10));
+        assertEquals(List.of(3), index.recommend(2, 10));
+        assertEquals(List.of(), index.recommend(1, 10));
+        assertEquals(List.of(1), index.recommend(4, 1));
+        assertEquals(List.of(), index.recommend(5, 10));
+    }
+
+    @Test
+    public void shouldFollowLikesBetweenRebuilds() {
+        index.addLike(5, 4);
+        index.addLike(5, 5);
+        index.addLike(2, 5);
+        assertEquals(List.of(1, 3), index.recommend(4, 10));
+        assertEquals(List.of(1, 3), index.recommend(5, 10));
+
+        index.removeLike(2, 5);
+        index.removeLike(5, 5);
+        index.removeLike(5, 4);
+        assertEquals(List.of(1, 3), index.recommend(4, 10));
+        assertEquals(List.of(), index.recommend(5, 10));
+
+        index.removeUser(1);
+        assertEquals(List.of(2), index.recommend(3, 10));
+        index.removeFilm(2);
+        assertEquals(List.of(), index.recommend(3, 10));
+    }
+
+    @Test
+    public void shouldKeepServingAndFollowingLikesWhileRebuilding() throws InterruptedException {
+        blockRebuild = true;
+        Thread rebuild = new Thread(index::rebuild);
+        rebuild.start();
+        assertTrue(rebuildReading.await(10, TimeUnit.SECONDS));
+
+        // storage has been read, the previous snapshot still answers and a new like must survive the swap
+        assertEquals(List.of(1, 3), index.recommend(4, 10));
+        storage.addLike(2, 5);
+        index.addLike(2, 5);
+        storage.addLike(5, 5);
+        index.addLike(5, 5);
+        assertEquals(List.of(1, 3), index.recommend(4, 10));
+        assertEquals(List.of(1, 3), index.recommend(5, 10));
+
+        rebuildRelease.countDown();
+        rebuild.join(10_000);
+        assertFalse(rebuild.isAlive());
+        assertEquals(List.of(1, 3), index.recommend(4, 10));
+        assertEquals(List.of(1, 3), index.recommend(5, 10));
+    }
+
+    @Test
+    public void shouldRebuildOnItsOwnThread() throws InterruptedException {
+        RecommendationIndex scheduled = new RecommendationIndex(storage, 2, 10);
+        scheduled.start();
+        try {
+            blockRebuild = true;
+            assertTrue(rebuildReading.await(10, TimeUnit.SECONDS));
+            assertEquals("recommendation-rebuild", rebuildThread);
+            storage.addLike(2, 5);
+        } finally {
+            blockRebuild = false;
+            rebuildRelease.countDown();
+        }
+        for (int i = 0; i < 1000 && !scheduled.recommend(5, 10).equals(List.of(1, 3)); i++) {
+            Thread.sleep(10);
+        }
+        scheduled.stop();
+        assertEquals(List.of(1, 3), scheduled.recommend(5, 10));
+    }
+
+    private void like(long userId, int... filmIds) {
+        for (int filmId : filmIds) {
+            storage.addLike(filmId, userId);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.BulkImportError;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = "filmorate.bulk.batch-size=2")
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class BulkImportTests {
+    private final FilmService filmService;
+    private final UserService userService;
+
+    @Test
+    public void shouldImportValidFilmsAndReportTheRest() {
+        List<Film> films = Arrays.asList(
+                film("title1", 100),
+                film("title2", -5),
+                null,
+                film("title3", 100),
+                film("title1", 100),
+                film("title4", 100),
+                film("title5", 100));
+        BulkImportResult result = filmService.importFilms(films.iterator());
+
+        assertEquals(4, result.getImported());
+        assertEquals(3, result.getFailed());
+        assertEquals(List.of(1, 2, 4), result.getErrors().stream()
+                .map(BulkImportError::getIndex)
+                .collect(Collectors.toList()));
+        assertEquals(List.of("title1", "title3", "title4", "title5"), filmService.getAllFilms().stream()
+                .map(Film::getName)
+                .collect(Collectors.toList()));
+        assertEquals(4, filmService.getPopular(10, null, null, null).size());
+    }
+
+    @Test
+    public void shouldRollBackItemsWhoseGenresAreRejected() {
+        Film unknownGenre = film("title1", 100);
+        unknownGenre.getGenres().add(new Genre((short) 99, "unknown"));
+        Film noMpa = film("title3", 100);
+        noMpa.setMpa(null);
+        BulkImportResult result = filmService.importFilms(List.of(unknownGenre, film("title2", 100), noMpa).iterator());
+
+        assertEquals(1, result.getImported());
+        assertEquals(List.of(0, 2), result.getErrors().stream()
+                .map(BulkImportError::getIndex)
+                .collect(Collectors.toList()));
+        assertEquals("mpa: must not be null", result.getErrors().get(1).getError());
+        assertEquals(List.of("title2"), filmService.getAllFilms().stream()
+                .map(Film::getName)
+                .collect(Collectors.toList()));
+
+        // nothing of the rejected item was left behind, so it can be imported again once fixed
+        assertEquals(1, filmService.importFilms(List.of(film("title1", 100)).iterator()).getImported());
+    }
+
+    @Test
+    public void shouldImportUsersWithLoginAsEmptyName() {
+        List<User> users = List.of(
+                new User("user1@mail.ru", "login1", "", LocalDate.of(2000, 1, 1)),
+                new User("not an email", "login2", "name2", LocalDate.of(2000, 1, 1)),
+                new User("user3@mail.ru", "login3", "name3", LocalDate.of(2000, 1, 1)));
+        BulkImportResult result = userService.importUsers(users.iterator());
+
+        assertEquals(2, result.getImported());
+        assertEquals(1, result.getErrors().get(0).getIndex());
+        assertEquals("email: must be a well-formed email address", result.getErrors().get(0).getError());
+        assertEquals("login1", userService.getUser(1).getName());
+        assertEquals(0, userService.getCommonFriends(1, 2).size());
+    }
+
+    private static Film film(String name, int duration) {
+        return new Film(name, "description", LocalDate.of(2000, 1, 1), duration, 0, new MpaRating((short) 1, "G"));
+    }
+}
@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.exception.EntityValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class PopularFilmsTests {
+    private final FilmService filmService;
+
+    @Test
+    public void shouldReadPopularFilmsFromTheIndex() {
+        filmService.addFilm(film("title1", 4, 1));
+        filmService.addFilm(film("title2", 8, 2));
+        filmService.addFilm(film("title3", 10, 1));
+
+        assertEquals(List.of("title3", "title2", "title1"), filmService.getPopular(10, null, null, null).stream()
+                .map(Film::getName)
+                .collect(Collectors.toList()));
+        assertEquals(List.of("title3", "title1"), filmService.getPopularSummaries(10, null, (short) 1, null).stream()
+                .map(FilmSummary::getName)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void shouldRejectReleaseYearsOutOfRange() {
+        assertThrows(EntityValidationException.class, () -> filmService.getPopular(10, null, null, 1_000_000_000));
+        assertThrows(EntityValidationException.class, () -> filmService.getPopularSummaries(10, null, null, 0));
+        assertEquals(List.of(), filmService.getPopularSummaries(10, null, null, 9999));
+    }
+
+    private static Film film(String name, int rate, int mpaId) {
+        return new Film(name, "description", LocalDate.of(2000, 1, 1), 100, rate, new MpaRating((short) mpaId, null));
+    }
+}
@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.storage.impl;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.exception.EntityNotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class StorageMetricsAspectTests {
+    private final UserStorage userStorage;
+    private final GenreStorage genreStorage;
+    private final MeterRegistry meterRegistry;
+
+    @Test
+    public void shouldTimeCallsAndCountReturnedRows() {
+        userStorage.addUser(new User("user1@mail.ru", "login1", "name1", LocalDate.of(2000, 1, 1)));
+        userStorage.addUser(new User("user2@mail.ru", "login2", "name2", LocalDate.of(2000, 1, 1)));
+        userStorage.getAllUsers();
+
+        assertEquals(2, timer("UserDbStorage", "addUser", "success").count());
+        assertEquals(1, timer("UserDbStorage", "getAllUsers", "success").count());
+        DistributionSummary rows = meterRegistry.find(StorageMetricsAspect.ROWS_METRIC)
+                .tags("storage", "UserDbStorage", "method", "getAllUsers")
+                .summary();
+        assertNotNull(rows);
+        assertEquals(2, rows.totalAmount());
+    }
+
+    @Test
+    public void shouldTellNotFoundFromConstraintViolations() {
+        userStorage.addUser(new User("user1@mail.ru", "login1", "name1", LocalDate.of(2000, 1, 1)));
+        assertThrows(EntityNotFoundException.class, () -> userStorage.getUser(42));
+        assertThrows(DataIntegrityViolationException.class, () ->
+                userStorage.addUser(new User("user1@mail.ru", "login1", "name1", LocalDate.of(2000, 1, 1))));
+
+        assertEquals(1, timer("UserDbStorage", "getUser", "not_found").count());
+        assertEquals(1, timer("UserDbStorage", "addUser", "constraint_violation").count());
+    }
+
+    @Test
+    public void shouldCountTranslatedDuplicatesAsConstraintViolations() {
+        User user = userStorage.addUser(new User("user1@mail.ru", "login1", "name1", LocalDate.of(2000, 1, 1)));
+        User friend = userStorage.addUser(new User("user2@mail.ru", "login2", "name2", LocalDate.of(2000, 1, 1)));
+        userStorage.addFriend(user.getId(), friend.getId());
+        assertThrows(IllegalArgumentException.class, () -> userStorage.addFriend(user.getId(), friend.getId()));
+        assertThrows(EntityNotFoundException.class, () -> userStorage.addFriend(user.getId(), 42));
+
+        assertEquals(1, timer("UserDbStorage", "addFriend", "success").count());
+        assertEquals(1, timer("UserDbStorage", "addFriend", "constraint_violation").count());
+        assertEquals(1, timer("UserDbStorage", "addFriend", "not_found").count());
+    }
+
+    @Test
+    public void shouldTimeCacheMissesOnly() {
+        genreStorage.getGenre((short) 1);
+        assertThrows(EntityNotFoundException.class, () -> genreStorage.getGenre((short) 42));
+
+        assertNull(meterRegistry.find(StorageMetricsAspect.CALL_METRIC).tags("storage", "CachedGenreStorage").timer());
+        assertEquals(1, timer("GenreDbStorage", "getGenre", "not_found").count());
+    }
+
+    private Timer timer(String storage, String method, String outcome) {
+        Timer timer = meterRegistry.find(StorageMetricsAspect.CALL_METRIC)
+                .tags("storage", storage, "method", method, "outcome", outcome)
+                .timer();
+        assertNotNull(timer);
+        return timer;
+    }
+}
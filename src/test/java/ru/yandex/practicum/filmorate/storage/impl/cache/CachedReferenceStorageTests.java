@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.storage.impl.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.exception.EntityNotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.impl.database.FilmDbStorage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class CachedReferenceStorageTests {
+    private final JdbcTemplate jdbcTemplate;
+    private final CachedGenreStorage genreStorage;
+    private final CachedMpaStorage mpaStorage;
+    private final FilmDbStorage filmStorage;
+    private final MeterRegistry meterRegistry;
+
+    @Test
+    public void shouldServePreloadedRowsAsHits() {
+        long misses = genreStorage.getMissCount();
+        assertEquals("Комедия", genreStorage.getGenre((short) 1).getName());
+        assertEquals(6, genreStorage.getAllGenres().size());
+        assertEquals("PG-13", mpaStorage.getRating((short) 3).getName());
+        assertEquals(misses, genreStorage.getMissCount());
+        assertTrue(genreStorage.getHitCount() >= 2);
+        assertTrue(mpaStorage.getHitCount() >= 1);
+    }
+
+    @Test
+    public void shouldCountMissesAndThrowForUnknownIds() {
+        assertThrows(EntityNotFoundException.class, () -> genreStorage.getGenre((short) 0));
+        assertThrows(EntityNotFoundException.class, () -> mpaStorage.getRating((short) 99));
+        assertThrows(EntityNotFoundException.class, () -> mpaStorage.getRating((short) 99));
+        assertEquals(1, genreStorage.getMissCount());
+        assertEquals(1, mpaStorage.getMissCount());
+        assertEquals(1, meterRegistry.get(ReferenceDataCache.LOOKUPS_METRIC)
+                .tags("cache", "mpa_ratings", "result", "miss").functionCounter().count());
+    }
+
+    @Test
+    public void shouldRememberMissingIdsUntilRefreshed() {
+        assertThrows(EntityNotFoundException.class, () -> genreStorage.getGenre((short) 7));
+        jdbcTemplate.update("INSERT INTO genres (name) VALUES ('Фантастика')");
+        assertThrows(EntityNotFoundException.class, () -> genreStorage.getGenre((short) 7));
+        assertEquals(1, genreStorage.getMissCount());
+
+        genreStorage.refresh();
+        assertEquals("Фантастика", genreStorage.getGenre((short) 7).getName());
+    }
+
+    @Test
+    public void shouldReadThroughRowsAddedBehindTheCache() {
+        jdbcTemplate.update("INSERT INTO genres (name) VALUES ('Фантастика')");
+        assertEquals("Фантастика", genreStorage.getGenre((short) 7).getName());
+        assertEquals(7, genreStorage.getAllGenres().size());
+    }
+
+    @Test
+    public void shouldShareCanonicalInstancesWithFilmStorage() {
+        jdbcTemplate.update("INSERT INTO films (name, description, release_date, duration, rate, mpa_rating_id)" +
+                " VALUES ('title1', 'description1', '2000-01-01', 100, 0, 2)");
+        jdbcTemplate.update("INSERT INTO film_genres (film_id, genre_id) VALUES (1, 3)");
+
+        Film film = filmStorage.getFilm(1);
+        assertSame(mpaStorage.getRating((short) 2), film.getMpa());
+        assertSame(genreStorage.getGenre((short) 3), film.getGenres().iterator().next());
+    }
+}
@@ -0,0 +1,121 @@
+package ru.yandex.practicum.filmorate.storage.impl.database;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import ru.yandex.practicum.filmorate.benchmark.BenchmarkContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * JMH benchmarks of the FilmDbStorage hot paths on a seeded in-memory database.
+ * Run with {@code mvn test -Pjmh -Djmh.args="FilmDbStorageBenchmark"}; the scale is set with
+ * {@code -p films=...}, {@code -p users=...} and {@code -p likes=...}. Add {@code -prof gc} to the arguments
+ * for the bytes allocated per operation ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FilmDbStorageBenchmark {
+    // users above this count like nothing, so addLike never hits an existing like
+    private static final int LIKE_FREE_USERS = 10_000;
+
+    @Param("10000")
+    public int films;
+    @Param("20000")
+    public int users;
+    @Param("200000")
+    public long likes;
+
+    private BenchmarkContext context;
+    private FilmDbStorage storage;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkContext.start("film-benchmark");
+        context.seeder(42).seedUsers(users + LIKE_FREE_USERS);
+        context.seeder(43).seedFilms(films, 3);
+        context.seeder(44).seedLikes(likes, films, users);
+        storage = context.storage(FilmDbStorage.class);
+        jdbcTemplate = context.jdbcTemplate();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Film> getPopular() {
+        return storage.getPopular(10);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Film> getAllFilms() {
+        return storage.getAllFilms();
+    }
+
+    @Benchmark
+    public Film getFilm() {
+        return storage.getFilm(1 + ThreadLocalRandom.current().nextInt(films));
+    }
+
+    /**
+     * One full IN-list chunk of random films, the path of GET /films?ids=.
+     */
+    @Benchmark
+    public List<Film> getFilms() {
+        return storage.getFilms(ThreadLocalRandom.current().ints(500, 1, films + 1).boxed()
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * The same chunk as {@link #getFilms()} as summaries, which leave film_likes unread.
+     */
+    @Benchmark
+    public List<FilmSummary> getFilmSummaries() {
+        return storage.getFilmSummaries(ThreadLocalRandom.current().ints(500, 1, films + 1).boxed()
+                .collect(Collectors.toList()));
+    }
+
+    @Benchmark
+    public void addAndDeleteLike() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int filmId = 1 + random.nextInt(films);
+        long userId = users + 1 + random.nextInt(LIKE_FREE_USERS);
+        storage.addLike(filmId, userId);
+        storage.deleteLike(filmId, userId);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Film> mapFilmRows() {
+        return jdbcTemplate.query(FilmDbStorage.SQL_SELECT_ALL_FILMS, storage.filmRowMapper());
+    }
+
+    /**
+     * Reads the same rows as {@link #mapFilmRows()} without mapping them, the baseline of the row mapper.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void readFilmRows(Blackhole blackhole) {
+        jdbcTemplate.query(FilmDbStorage.SQL_SELECT_ALL_FILMS,
+                (RowCallbackHandler) rs -> blackhole.consume(rs.getRow()));
+    }
+}
@@ -4,6 +4,7 @@ import org.hamcrest.Description;
 import org.hamcrest.TypeSafeMatcher;
 import org.junit.jupiter.api.BeforeEach;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
 
 import lombok.RequiredArgsConstructor;
 import org.junit.jupiter.api.Test;
@@ -29,6 +30,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import java.sql.Date;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.stream.Collectors;
 
 @SpringBootTest
 @AutoConfigureTestDatabase
@@ -109,6 +111,64 @@ public class FilmDbStorageTests {
         MatcherAssert.assertThat(film.getGenres(), new GenreMatcher(expectedGenres));
     }
 
+    @Test
+    public void testGetFilmsAfter() {
+        List<Film> firstPage = storage.getFilmsAfter(0, 2);
+        assertEquals(2, firstPage.size());
+        assertEquals(storage.getFilm(1), firstPage.get(0));
+        assertEquals(storage.getFilm(2), firstPage.get(1));
+
+        List<Film> lastPage = storage.getFilmsAfter(2, 2);
+        assertEquals(1, lastPage.size());
+        assertEquals(storage.getFilm(3), lastPage.get(0));
+
+        assertTrue(storage.getFilmsAfter(3, 2).isEmpty());
+    }
+
+    @Test
+    public void testStreamFilms() {
+        List<Film> streamed = new ArrayList<>();
+        storage.streamFilms(streamed::add);
+        assertEquals(storage.getAllFilms(), streamed);
+    }
+
+    @Test
+    public void testGetFilmsKeepsRequestedOrderAndSkipsUnknownIds() {
+        List<Film> films = storage.getFilms(List.of(3, 999, 1));
+        assertEquals(2, films.size());
+        assertEquals(storage.getFilm(3), films.get(0));
+        assertEquals(storage.getFilm(1), films.get(1));
+    }
+
+    @Test
+    public void testGetFilmsAcrossChunksKeepsDuplicates() {
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 1200; id > 0; id--) {
+            ids.add(id);
+        }
+        ids.add(2);
+        List<Film> films = storage.getFilms(ids);
+        assertEquals(4, films.size());
+        assertEquals(storage.getFilm(3), films.get(0));
+        assertEquals(storage.getFilm(2), films.get(1));
+        assertEquals(storage.getFilm(1), films.get(2));
+        assertEquals(storage.getFilm(2), films.get(3));
+    }
+
+    @Test
+    public void testGetLikedFilmIds() {
+        jdbcTemplate.update("INSERT INTO users (email, login, name, birthday) " +
+                "VALUES ('user1@mail.ru', 'login1', 'name1', '2000-01-01'), " +
+                "('user2@mail.ru', 'login2', 'name2', '2000-01-01'), " +
+                "('user3@mail.ru', 'login3', 'name3', '2000-01-01')");
+        jdbcTemplate.update("INSERT INTO film_likes (film_id, user_id) VALUES (3, 1), (1, 1), (2, 2)");
+
+        Map<Long, int[]> likedFilmIds = storage.getLikedFilmIds();
+        assertEquals(Set.of(1L, 2L), likedFilmIds.keySet());
+        assertArrayEquals(new int[]{1, 3}, likedFilmIds.get(1L));
+        assertArrayEquals(new int[]{2}, likedFilmIds.get(2L));
+    }
+
     @ParameterizedTest
     @ValueSource(ints = {-1, 0, 4, 999})
     public void shouldThrowEntityNotFoundExceptionWhenPassingWrongId(int id) {
@@ -133,6 +193,28 @@ public class FilmDbStorageTests {
         MatcherAssert.assertThat(film.getGenres(), new GenreMatcher(expectedGenres));
     }
 
+    @Test
+    public void testAddFilms() {
+        Film first = new Film("newFilm1", "newDescription1", LocalDate.of(2000, 4, 4), 120, 2, new MpaRating((short) 1, "G"));
+        first.setGenres(Set.of(new Genre((short) 5, "Документальный"), new Genre((short) 1, "Комедия")));
+        Film second = new Film("newFilm2", "newDescription2", LocalDate.of(2000, 5, 5), 90, 0, new MpaRating((short) 2, "PG"));
+        storage.addFilms(List.of(first, second));
+
+        assertEquals(4, first.getId());
+        assertEquals(5, second.getId());
+        assertEquals(first, storage.getFilm(4));
+        assertEquals(second, storage.getFilm(5));
+        assertEquals(2, storage.getFilm(4).getGenres().size());
+    }
+
+    @Test
+    public void shouldAddNoneOfFilmsWhenOneIsRejected() {
+        Film fresh = new Film("newFilm", "newDescription", LocalDate.of(2000, 4, 4), 120, 2, new MpaRating((short) 1, "G"));
+        Film duplicate = new Film("title1", "newDescription", LocalDate.of(2000, 4, 4), 120, 2, new MpaRating((short) 1, "G"));
+        assertThrows(RuntimeException.class, () -> storage.addFilms(List.of(fresh, duplicate)));
+        assertEquals(3, storage.getAllFilms().size());
+    }
+
     @Test
     public void testUpdateFilm() {
         Film film = new Film("newFilm", "newDescription", LocalDate.of(2000, 4, 4), 120, 2, new MpaRating((short) 1, "G"));
@@ -168,6 +250,25 @@ public class FilmDbStorageTests {
         assertEquals(storage.getFilm(1), popularFilms.get(2));
     }
 
+    @Test
+    public void testGetPopularFiltered() {
+        assertEquals(List.of(3, 2, 1), ids(storage.getPopular(10, null, null, 2000)));
+        assertEquals(List.of(3, 1), ids(storage.getPopular(10, (short) 2, null, null)));
+        assertEquals(List.of(3), ids(storage.getPopular(1, (short) 2, null, 2000)));
+        assertEquals(List.of(2), ids(storage.getPopular(10, null, (short) 2, null)));
+        assertEquals(List.of(1), ids(storage.getPopular(10, (short) 2, (short) 1, 2000)));
+        assertEquals(List.of(), ids(storage.getPopular(10, null, null, 2001)));
+        assertEquals(List.of(), ids(storage.getPopular(10, (short) 5, null, null)));
+    }
+
+    @Test
+    public void testGetPopularSummariesFiltered() {
+        List<FilmSummary> summaries = storage.getPopularSummaries(10, (short) 2, null, 2000);
+        assertEquals(List.of(3, 1), summaries.stream().map(FilmSummary::getId).collect(Collectors.toList()));
+        assertEquals(storage.getFilmSummaries(List.of(3, 1)), summaries);
+        assertEquals(List.of(), storage.getPopularSummaries(10, null, null, 2001));
+    }
+
     @ParameterizedTest
     @CsvSource({"1, 1, 4", "2, 1, 8", "3, 1, 10"})
     public void testAddLikeDeleteLike(int filmId, long userId, int rate) {
@@ -197,6 +298,50 @@ public class FilmDbStorageTests {
         assertThrows(EntityNotFoundException.class, () -> storage.deleteLike(wrongId, 1));
     }
 
+    @Test
+    public void shouldLoadLikersBeyondIntRangeForFilmsInAnyOrder() {
+        long bigId = Integer.MAX_VALUE + 10L;
+        jdbcTemplate.update("INSERT INTO users (id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)",
+                bigId, "big@mail.com", "big_login", "big_name", Date.valueOf("2001-02-05"));
+        storage.addLike(3, bigId);
+        storage.addLike(1, bigId);
+
+        List<Film> films = storage.getFilms(List.of(3, 2, 1));
+        assertEquals(List.of(3, 2, 1), List.of(films.get(0).getId(), films.get(1).getId(), films.get(2).getId()));
+        assertArrayEquals(new long[]{bigId}, films.get(0).getLikers().toLongArray());
+        assertTrue(films.get(1).getLikers().isEmpty());
+        assertArrayEquals(new long[]{bigId}, films.get(2).getLikers().toLongArray());
+        assertEquals(storage.getAllFilms().get(2).getLikers(), films.get(0).getLikers());
+    }
+
+    @Test
+    public void testFilmSummariesCarryLikesCountInsteadOfLikers() {
+        UserDbStorage userStorage = new UserDbStorage(jdbcTemplate);
+        userStorage.addUser(new User("test1@mail.com", "login1", "name1", LocalDate.of(2001, 2, 5)));
+        userStorage.addUser(new User("test2@mail.com", "login2", "name2", LocalDate.of(2001, 2, 5)));
+        storage.addLike(1, 1);
+        storage.addLike(1, 2);
+        storage.addLike(3, 2);
+
+        List<FilmSummary> summaries = storage.getAllFilmSummaries();
+        assertEquals(3, summaries.size());
+        for (FilmSummary summary : summaries) {
+            Film film = storage.getFilm(summary.getId());
+            assertEquals(FilmSummary.of(film), summary);
+        }
+        assertEquals(2, summaries.get(0).getLikesCount());
+        assertEquals(List.of(2, 3), storage.getFilmSummariesAfter(1, 2).stream()
+                .map(FilmSummary::getId).collect(Collectors.toList()));
+        assertEquals(List.of(3, 1), storage.getFilmSummaries(List.of(3, 42, 1)).stream()
+                .map(FilmSummary::getId).collect(Collectors.toList()));
+
+        storage.deleteLike(1, 1);
+        assertEquals(1, storage.getFilmSummaries(List.of(1)).get(0).getLikesCount());
+        userStorage.deleteUser(2);
+        assertEquals(List.of(0, 0, 0), storage.getAllFilmSummaries().stream()
+                .map(FilmSummary::getLikesCount).collect(Collectors.toList()));
+    }
+
     @Test
     public void shouldThrowExceptionWhenAddingLikeToFilmOrDeletingLikeTwice() {
         UserDbStorage userStorage = new UserDbStorage(jdbcTemplate);
@@ -208,6 +353,10 @@ public class FilmDbStorageTests {
         assertThrows(EntityNotFoundException.class, () -> storage.deleteLike(1, 1));
     }
 
+    private static List<Integer> ids(List<Film> films) {
+        return films.stream().map(Film::getId).collect(Collectors.toList());
+    }
+
     static class GenreMatcher extends TypeSafeMatcher<Set<Genre>> {
         private final Set<Genre> expectedGenres;
 
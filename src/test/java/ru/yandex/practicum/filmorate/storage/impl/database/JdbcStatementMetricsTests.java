@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.storage.impl.database;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class JdbcStatementMetricsTests {
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmDbStorage storage;
+    private final JdbcStatementMetrics metrics;
+    private final MeterRegistry meterRegistry;
+
+    @Test
+    public void shouldTimeStatementsBySql() {
+        jdbcTemplate.update("INSERT INTO films (name, description, release_date, duration, rate, mpa_rating_id) " +
+                "VALUES ('title1', 'description1', '2000-01-01', 100, 0, 1)");
+        storage.getFilm(1);
+        storage.getFilm(1);
+
+        assertEquals(2, timer(FilmDbStorage.SQL_SELECT_FILM, "success").count());
+    }
+
+    @Test
+    public void shouldShareOneSeriesForInListsOfAnyLength() {
+        storage.getFilms(List.of(1, 2));
+        storage.getFilms(List.of(1, 2, 3, 4, 5));
+
+        assertEquals(2, timer(FilmDbStorage.selectFilmsByIds(1), "success").count());
+    }
+
+    @Test
+    public void shouldTimeFailedStatementsAsErrors() {
+        String sql = "INSERT INTO genres (id, name) VALUES (?, ?)";
+        assertThrows(DataAccessException.class, () -> jdbcTemplate.update(sql, 1, "Комедия"));
+
+        assertEquals(1, timer(sql, "error").count());
+    }
+
+    @Test
+    public void shouldNormalizeLabelsAndSkipSchemaStatements() {
+        assertEquals("SELECT * FROM films WHERE id IN (?) AND rate > ?",
+                metrics.label("SELECT *\n  FROM films WHERE id IN (?, ?,?) AND rate > ?"));
+        assertEquals("INSERT INTO film_likes VALUES (?)", metrics.label("INSERT INTO film_likes VALUES (?, ?)"));
+        assertEquals("", metrics.label("CREATE INDEX films_name_idx ON films (name)"));
+        assertEquals("SELECT * FROM films WHERE id IN (?) AND name = ? AND rate > ?",
+                metrics.label("SELECT * FROM films WHERE id IN (1, 2) AND name = 'it''s' AND rate > 4.5"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldShareOneSeriesBeyondTheLabelLimit() {
+        JdbcStatementMetrics limited = new JdbcStatementMetrics(mock(ObjectProvider.class), true, 2);
+        assertEquals("SELECT id FROM films", limited.label("SELECT id FROM films"));
+        assertEquals("SELECT id FROM users", limited.label("SELECT id FROM users"));
+        assertEquals(JdbcStatementMetrics.OTHER_LABEL, limited.label("SELECT id FROM genres"));
+        assertEquals("SELECT id FROM films", limited.label("SELECT  id FROM films"));
+        assertEquals("", limited.label("DROP TABLE films"));
+    }
+
+    @Test
+    public void shouldApplyConfiguredQueryTimeout() {
+        assertEquals(10, jdbcTemplate.getQueryTimeout());
+    }
+
+    private Timer timer(String sql, String outcome) {
+        Timer timer = meterRegistry.find(JdbcStatementMetrics.METRIC_NAME)
+                .tag("sql", metrics.label(sql))
+                .tag("outcome", outcome)
+                .timer();
+        assertNotNull(timer);
+        return timer;
+    }
+}
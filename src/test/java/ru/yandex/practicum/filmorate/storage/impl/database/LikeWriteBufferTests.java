@@ -0,0 +1,168 @@
+package ru.yandex.practicum.filmorate.storage.impl.database;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.exception.EntityNotFoundException;
+import ru.yandex.practicum.filmorate.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "filmorate.likes.write-behind.enabled=true",
+        "filmorate.likes.write-behind.flush-interval-ms=3600000",
+        "filmorate.likes.write-behind.max-pending=5"
+})
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class LikeWriteBufferTests {
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmDbStorage storage;
+    private final LikeWriteBuffer buffer;
+    private final FilmService filmService;
+    private final FilmPopularityIndex popularityIndex;
+
+    @BeforeEach
+    public void setup() {
+        jdbcTemplate.update("INSERT INTO films (name, description, release_date, duration, rate, mpa_rating_id)" +
+                " VALUES ('title1', 'description1', '2000-01-01', 100, 4, 1)," +
+                " ('title2', 'description2', '2000-02-02', 110, 8, 2)");
+        jdbcTemplate.update("INSERT INTO users (email, login, name, birthday)" +
+                " VALUES ('test@mail.ru', 'login1', 'name1', '2000-01-01')," +
+                " ('test@gmail.com', 'login2', 'name2', '2000-01-02')");
+    }
+
+    @Test
+    public void shouldApplyBufferedLikesOnFlush() {
+        storage.addLike(1, 1);
+        storage.addLike(1, 2);
+        storage.addLike(2, 1);
+        assertEquals(4, storage.getFilm(1).getRate());
+
+        buffer.flush();
+        Film film = storage.getFilm(1);
+        assertEquals(6, film.getRate());
+        assertEquals(Set.of(1L, 2L), film.getLikers());
+        assertEquals(9, storage.getFilm(2).getRate());
+        assertEquals(2, storage.getFilmSummaries(List.of(1)).get(0).getLikesCount());
+    }
+
+    @Test
+    public void shouldDetectDuplicatesAcrossBufferAndDatabase() {
+        storage.addLike(1, 1);
+        assertThrows(IllegalArgumentException.class, () -> storage.addLike(1, 1));
+        buffer.flush();
+        assertThrows(IllegalArgumentException.class, () -> storage.addLike(1, 1));
+    }
+
+    @Test
+    public void shouldCancelOutLikeAndUnlikeBeforeFlush() {
+        storage.addLike(1, 1);
+        buffer.flush();
+
+        storage.deleteLike(1, 1);
+        assertThrows(EntityNotFoundException.class, () -> storage.deleteLike(1, 1));
+        storage.addLike(1, 1);
+        buffer.flush();
+
+        Film film = storage.getFilm(1);
+        assertEquals(5, film.getRate());
+        assertEquals(Set.of(1L), film.getLikers());
+    }
+
+    @Test
+    public void shouldKeepNotFoundSemantics() {
+        assertThrows(EntityNotFoundException.class, () -> storage.addLike(999, 1));
+        assertThrows(EntityNotFoundException.class, () -> storage.addLike(1, 999));
+        assertThrows(EntityNotFoundException.class, () -> storage.deleteLike(1, 1));
+    }
+
+    @Test
+    public void shouldFlushWhenMaxPendingReached() throws InterruptedException {
+        jdbcTemplate.update("INSERT INTO users (email, login, name, birthday)" +
+                " VALUES ('a@mail.ru', 'login3', 'name3', '2000-01-03'), ('b@mail.ru', 'login4', 'name4', '2000-01-04')");
+        storage.addLike(1, 1);
+        storage.addLike(1, 2);
+        storage.addLike(1, 3);
+        storage.addLike(1, 4);
+        assertEquals(4, storage.getFilm(1).getRate());
+        storage.addLike(2, 1);
+
+        // flushed on the scheduler thread, not on the request thread that reached the limit
+        long deadline = System.currentTimeMillis() + 5000;
+        while (storage.getFilm(1).getRate() == 4 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(8, storage.getFilm(1).getRate());
+    }
+
+    @Test
+    public void shouldNotCountCancelledStatesTowardsMaxPending() throws InterruptedException {
+        storage.addLike(1, 1);
+        buffer.flush();
+        for (int i = 0; i < 4; i++) {
+            storage.deleteLike(1, 1);
+            storage.addLike(1, 1);
+        }
+        storage.addLike(2, 1);
+        storage.addLike(2, 2);
+
+        // two states are pending, far from the limit of five, so nothing is flushed early
+        Thread.sleep(200);
+        assertEquals(8, storage.getFilm(2).getRate());
+        buffer.flush();
+        assertEquals(10, storage.getFilm(2).getRate());
+        assertEquals(5, storage.getFilm(1).getRate());
+    }
+
+    @Test
+    public void shouldKeepBatchThatFailedToCommit() {
+        storage.addLike(1, 1);
+        jdbcTemplate.execute("ALTER TABLE film_likes RENAME TO film_likes_moved");
+        buffer.flush();
+        jdbcTemplate.execute("ALTER TABLE film_likes_moved RENAME TO film_likes");
+        assertThrows(IllegalArgumentException.class, () -> storage.addLike(1, 1));
+
+        buffer.flush();
+        Film film = storage.getFilm(1);
+        assertEquals(5, film.getRate());
+        assertEquals(Set.of(1L), film.getLikers());
+    }
+
+    @Test
+    public void shouldUndoSkippedLikesInIndexes() {
+        popularityIndex.rebuild();
+        filmService.addLike(1, 2);
+        assertEquals(5, popularityIndex.getRate(1));
+        jdbcTemplate.update("DELETE FROM users WHERE id = 2");
+
+        buffer.flush();
+        assertEquals(4, storage.getFilm(1).getRate());
+        assertEquals(4, popularityIndex.getRate(1));
+    }
+
+    @Test
+    public void shouldSkipLikesStoredSinceTheyWereBuffered() {
+        storage.addLike(1, 1);
+        storage.addLike(1, 2);
+        storage.addLike(2, 1);
+        jdbcTemplate.update("INSERT INTO film_likes (film_id, user_id) VALUES (1, 2)");
+
+        buffer.flush();
+        Film film = storage.getFilm(1);
+        assertEquals(5, film.getRate());
+        assertEquals(Set.of(1L, 2L), film.getLikers());
+        assertEquals(9, storage.getFilm(2).getRate());
+    }
+}
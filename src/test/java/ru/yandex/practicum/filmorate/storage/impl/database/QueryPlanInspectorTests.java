@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.storage.impl.database;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.QueryPlanReport;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class QueryPlanInspectorTests {
+    private final JdbcTemplate jdbcTemplate;
+    private final QueryPlanInspector inspector;
+
+    @BeforeEach
+    public void setup() {
+        jdbcTemplate.update("INSERT INTO films (name, description, release_date, duration, rate, mpa_rating_id) " +
+                "SELECT 'title' || x, 'description', '2000-01-01', 100, MOD(x, 7), 1 FROM SYSTEM_RANGE(1, 100)");
+        jdbcTemplate.update("INSERT INTO users (email, login, name, birthday) " +
+                "VALUES ('user1@mail.ru', 'login1', 'name1', '2000-01-01'), " +
+                "('user2@mail.ru', 'login2', 'name2', '2000-01-01')");
+    }
+
+    @Test
+    public void shouldExplainEveryStatementWithoutChangingData() {
+        List<QueryPlanReport> reports = inspector.inspect();
+
+        assertEquals(44, reports.size());
+        reports.forEach(report -> assertFalse(report.getPlan().isBlank(), report.getStatement()));
+        assertEquals(100, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM films", Integer.class));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_friends", Integer.class));
+    }
+
+    @Test
+    public void shouldReadPopularFilmsFromTheRateIndex() {
+        Map<String, QueryPlanReport> reports = inspector.inspect().stream()
+                .collect(Collectors.toMap(QueryPlanReport::getStatement, Function.identity()));
+
+        QueryPlanReport popular = reports.get("FilmDbStorage.getPopular");
+        assertFalse(popular.isTableScan());
+        assertTrue(popular.getPlan().contains("FILMS_RATE_ID_IDX"));
+        assertTrue(popular.getPlan().contains("index sorted"));
+        QueryPlanReport byMpa = reports.get("FilmDbStorage.getPopular (MPA rating)");
+        assertTrue(byMpa.getPlan().contains("FILMS_MPA_RATE_ID_IDX"));
+        assertTrue(byMpa.getPlan().contains("index sorted"));
+        assertFalse(reports.get("FilmDbStorage.getPopular (year)").isTableScan());
+        assertFalse(reports.get("FilmDbStorage.getFilm").isTableScan());
+        assertFalse(reports.get("UserDbStorage.deleteFriend").isTableScan());
+        assertFalse(reports.get("FilmDbStorage.getPopular (genre)").isTableScan());
+        assertFalse(reports.get("LikeWriteBuffer.addLike (like state)").isTableScan());
+        assertFalse(reports.get("LikeWriteBuffer.flush (stored likes)").isTableScan());
+        assertFalse(reports.get("LikeWriteBuffer.flush (rates)").isTableScan());
+    }
+}
@@ -0,0 +1,157 @@
+package ru.yandex.practicum.filmorate.storage.impl.database;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.config.ReadYourWritesFilter;
+import ru.yandex.practicum.filmorate.exception.EntityNotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import javax.servlet.http.Cookie;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary",
+        "filmorate.replicas.enabled=true",
+        "filmorate.replicas.urls=jdbc:h2:mem:routing-replica",
+        "filmorate.replicas.pool-size=2",
+        "filmorate.replicas.max-lag-ms=3600000",
+        "filmorate.replicas.sync-interval-ms=3600000"
+})
+@AutoConfigureMockMvc
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class ReadWriteRoutingTests {
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmDbStorage filmStorage;
+    private final GenreDbStorage genreStorage;
+    private final UserDbStorage userStorage;
+    private final ReplicaSet replicaSet;
+    private final ReplicaSync replicaSync;
+    private final MockMvc mockMvc;
+    private final MeterRegistry meterRegistry;
+
+    @AfterEach
+    public void cleanup() {
+        ReadWriteRoutingDataSource.clearRequiredPosition();
+    }
+
+    @Test
+    public void shouldReadFromReplicaOnlyWhenItHasAppliedTheRequiredPosition() {
+        jdbcTemplate.update("INSERT INTO films (name, description, release_date, duration, rate, mpa_rating_id)" +
+                " VALUES ('title1', 'description1', '2000-01-01', 100, 4, 1)");
+        assertEquals(0, filmStorage.getAllFilms().size());
+        assertThrows(EntityNotFoundException.class, () -> filmStorage.getFilm(1));
+        assertEquals(0, filmStorage.getFilms(List.of(1)).size());
+        List<Film> streamed = new ArrayList<>();
+        filmStorage.streamFilms(streamed::add);
+        assertEquals(0, streamed.size());
+        assertEquals(6, genreStorage.getAllGenres().size());
+
+        ReadWriteRoutingDataSource.setRequiredPosition(replicaSet.getWritePosition());
+        assertEquals(1, filmStorage.getAllFilms().size());
+
+        ReadWriteRoutingDataSource.clearRequiredPosition();
+        replicaSync.sync();
+        assertEquals(1, filmStorage.getAllFilms().size());
+        assertEquals(1, filmStorage.getFilm(1).getId());
+        filmStorage.streamFilms(streamed::add);
+        assertEquals(1, streamed.size());
+        assertEquals(1, filmStorage.getPopular(10, null, (short) 1, 2000).size());
+    }
+
+    @Test
+    public void shouldReadUsersFromReplicas() {
+        jdbcTemplate.update("INSERT INTO users (email, login, name, birthday)" +
+                " VALUES ('test@mail.ru', 'login1', 'name1', '2000-01-01')");
+        assertEquals(0, userStorage.getAllUsers().size());
+        assertThrows(EntityNotFoundException.class, () -> userStorage.getUser(1));
+        assertEquals(0, userStorage.getUsers(List.of(1L)).size());
+
+        replicaSync.sync();
+        assertEquals(1, userStorage.getAllUsers().size());
+        assertEquals(1, userStorage.getUser(1).getId());
+    }
+
+    @Test
+    public void shouldFindEveryUserTheFriendGraphKnows() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON).content(
+                            "{\"email\":\"user" + i + "@mail.ru\",\"login\":\"user" + i + "\","
+                                    + "\"birthday\":\"2000-01-01\"}"))
+                    .andExpect(status().isCreated());
+        }
+        mockMvc.perform(put("/users/1/friends/3"));
+        mockMvc.perform(put("/users/2/friends/3"));
+
+        // no cookie, the users come from the in-process friend graph the replica has not caught up with
+        mockMvc.perform(get("/users/1/friends/common/2"))
+                .andExpect(jsonPath("$.length()").value(1));
+        mockMvc.perform(get("/users/1/friends/suggestions"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void shouldLetClientsReadTheirOwnWrites() throws Exception {
+        for (int i = 1; i <= 2; i++) {
+            mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON).content(
+                            "{\"email\":\"user" + i + "@mail.ru\",\"login\":\"user" + i + "\","
+                                    + "\"birthday\":\"2000-01-01\"}"))
+                    .andExpect(status().isCreated());
+        }
+        Cookie writePosition = mockMvc.perform(put("/users/1/friends/2"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getCookie(ReadYourWritesFilter.COOKIE_NAME);
+        assertNotNull(writePosition);
+
+        mockMvc.perform(get("/users/1/friends"))
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(get("/users/1/friends").cookie(writePosition))
+                .andExpect(jsonPath("$.length()").value(1));
+
+        replicaSync.sync();
+        mockMvc.perform(get("/users/1/friends"))
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    public void shouldNotAnswerWithAnETagOlderThanTheData() throws Exception {
+        mockMvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON).content(
+                        "{\"name\":\"film\",\"description\":\"description\",\"releaseDate\":\"2000-01-01\","
+                                + "\"duration\":100,\"mpa\":{\"id\":1}}"))
+                .andExpect(status().isCreated());
+
+        // no cookie, but the ETag stands for a version the replica has not applied
+        mockMvc.perform(get("/films"))
+                .andExpect(jsonPath("$.length()").value(1));
+        mockMvc.perform(get("/films/1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/films/popular"))
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    public void shouldPublishMetricsOfEveryPool() {
+        for (ReplicaSet.Replica replica : replicaSet.getReplicas()) {
+            assertNotNull(meterRegistry.find("hikaricp.connections").tag("pool", replica.getName()).gauge());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.storage.impl.database;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.benchmark.BenchmarkContext;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of the UserDbStorage hot paths on a seeded in-memory database.
+ * Run with {@code mvn test -Pjmh -Djmh.args="UserDbStorageBenchmark"}; the scale is set with
+ * {@code -p users=...} and {@code -p friends=...} (friends per user).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserDbStorageBenchmark {
+    @Param("20000")
+    public int users;
+    @Param("100")
+    public int friends;
+
+    private BenchmarkContext context;
+    private UserDbStorage storage;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkContext.start("user-benchmark");
+        context.seeder(42).seedUsers(users);
+        context.seeder(43).seedFriendships(users, friends);
+        storage = context.storage(UserDbStorage.class);
+        jdbcTemplate = context.jdbcTemplate();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<User> getFriends() {
+        return storage.getFriends(1 + ThreadLocalRandom.current().nextInt(users));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<User> mapUserRows() {
+        return jdbcTemplate.query(UserDbStorage.SQL_SELECT_ALL_USERS, storage.userRowMapper());
+    }
+}
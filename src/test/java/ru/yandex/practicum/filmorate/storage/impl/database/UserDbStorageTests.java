@@ -20,8 +20,10 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.sql.Date;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @SpringBootTest
@@ -73,6 +75,27 @@ public class UserDbStorageTests {
                 .hasFieldOrPropertyWithValue("birthday", birthday.toLocalDate());
     }
 
+    @Test
+    public void testGetUsersAfter() {
+        List<User> firstPage = storage.getUsersAfter(0, 2);
+        assertEquals(2, firstPage.size());
+        assertEquals(1L, firstPage.get(0).getId());
+        assertEquals(2L, firstPage.get(1).getId());
+
+        List<User> lastPage = storage.getUsersAfter(2, 2);
+        assertEquals(1, lastPage.size());
+        assertEquals(3L, lastPage.get(0).getId());
+
+        assertTrue(storage.getUsersAfter(3, 2).isEmpty());
+    }
+
+    @Test
+    public void testStreamUsers() {
+        List<User> streamed = new ArrayList<>();
+        storage.streamUsers(streamed::add);
+        assertEquals(storage.getAllUsers(), streamed);
+    }
+
     @ParameterizedTest
     @ValueSource(longs = {-1, 0, 4, 999})
     public void shouldThrowEntityNotFoundExceptionWhenPassingWrongId(long id) {
@@ -102,6 +125,18 @@ public class UserDbStorageTests {
                 .hasFieldOrPropertyWithValue("birthday", LocalDate.parse("2000-01-04"));
     }
 
+    @Test
+    public void testAddUsers() {
+        User first = new User("test@new.ru", "new_login", "new_name", LocalDate.of(2000, 1, 4));
+        User second = new User("test@other.ru", "other_login", "other_name", LocalDate.of(2000, 1, 5));
+        storage.addUsers(List.of(first, second));
+
+        assertEquals(4, first.getId());
+        assertEquals(5, second.getId());
+        assertEquals(first, storage.getUser(4));
+        assertEquals(second, storage.getUser(5));
+    }
+
     @Test
     public void testUpdateUser() {
         User newUser = new User("test@mail.com", "updated_login", "updated_name", LocalDate.of(2001, 2, 5));
@@ -165,16 +200,46 @@ public class UserDbStorageTests {
         assertThrows(EntityNotFoundException.class, () -> storage.deleteFriend(3, 1));
     }
 
-    @ParameterizedTest
-    @CsvSource({"1, 2, 1", "1, 3, 1", "3, 2, 0"})
-    public void testGetCommonFriends(long userid, long friendId, int size) {
-        assertEquals(size, storage.getCommonFriends(userid, friendId).size());
+    @Test
+    public void testGetUsersKeepsRequestedOrderAndSkipsUnknownIds() {
+        List<User> users = storage.getUsers(List.of(3L, 42L, 1L));
+
+        assertEquals(2, users.size());
+        assertEquals(3, users.get(0).getId());
+        assertEquals(1, users.get(1).getId());
+        assertTrue(storage.getUsers(List.of()).isEmpty());
     }
 
-    @ParameterizedTest
-    @CsvSource({"1, 4", "4, 2", "4, 5", "69, 777"})
-    public void shouldThrowEntityNotFoundExceptionWhenGettingCommonFriendsOfUnknownUsers(long userid, long friendId) {
-        assertThrows(EntityNotFoundException.class, () -> storage.getCommonFriends(userid, friendId));
+    @Test
+    public void testGetUsersReadsLongIdListsInChunks() {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1000; id < 1600; id++) {
+            ids.add(id);
+        }
+        ids.add(3L);
+        for (long id = 2000; id < 2600; id++) {
+            ids.add(id);
+        }
+        ids.add(1L);
+        ids.add(3L);
+        List<User> users = storage.getUsers(ids);
+
+        assertEquals(3, users.size());
+        assertEquals(3, users.get(0).getId());
+        assertEquals(1, users.get(1).getId());
+        assertEquals(3, users.get(2).getId());
     }
 
+    @Test
+    public void testGetFriendIds() {
+        jdbcTemplate.update("INSERT INTO users (email, login, name, birthday) " +
+                "VALUES ('test@ya.ru', 'login4', 'name4', '2000-01-04')");
+        Map<Long, long[]> friendIds = storage.getFriendIds();
+
+        assertEquals(4, friendIds.size());
+        assertArrayEquals(new long[]{2, 3}, friendIds.get(1L));
+        assertArrayEquals(new long[]{1, 3}, friendIds.get(2L));
+        assertArrayEquals(new long[]{2}, friendIds.get(3L));
+        assertArrayEquals(new long[0], friendIds.get(4L));
+    }
 }
@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.storage.impl.memory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.slf4j.LoggerFactory;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of the in-memory storages, seeded with a reproducible synthetic dataset shaped like the one
+ * BenchmarkDataSeeder writes to the database. Run with {@code mvn test -Pjmh -Djmh.args="InMemoryStorageBenchmark"};
+ * the scale is set with {@code -p films=...}, {@code -p users=...}, {@code -p likesPerFilm=...}
+ * and {@code -p friends=...} (friends per user).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InMemoryStorageBenchmark {
+    @Param("10000")
+    public int films;
+    @Param("20000")
+    public int users;
+    @Param("20")
+    public int likesPerFilm;
+    @Param("50")
+    public int friends;
+
+    private InMemoryUserStorage userStorage;
+    private InMemoryFilmStorage filmStorage;
+
+    @Setup
+    public void setup() {
+        // the storages log every call at INFO, which would otherwise dominate the measurements
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        Random random = new Random(42);
+        userStorage = new InMemoryUserStorage();
+        filmStorage = new InMemoryFilmStorage(userStorage);
+        for (int i = 0; i < users; i++) {
+            userStorage.addUser(new User("user" + i + "@bench.ru", "user" + i, "User " + i,
+                    LocalDate.of(1970, 1, 1).plusDays(i % 15_000)));
+        }
+        for (long userId = 1; userId <= users; userId++) {
+            // a run of following ids, friendships are mutual so some of them already exist
+            long first = 1 + random.nextInt(users);
+            for (int i = 0; i < friends / 2; i++) {
+                long friendId = 1 + (first + i) % users;
+                if (friendId != userId && !userStorage.getUser(userId).getFriends().contains(friendId)) {
+                    userStorage.addFriend(userId, friendId);
+                }
+            }
+        }
+        for (int i = 0; i < films; i++) {
+            Film film = filmStorage.addFilm(new Film("Film " + i, "Synthetic film " + i,
+                    LocalDate.of(1950, 1, 1).plusDays(i % 27_000), 60 + i % 120, 0,
+                    new MpaRating((short) (1 + i % 5), null)));
+            long first = random.nextInt(users);
+            int filmLikes = random.nextInt(2 * likesPerFilm + 1);
+            for (int j = 0; j < filmLikes && j < users; j++) {
+                filmStorage.addLike(film.getId(), 1 + (first + j) % users);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Film> getPopular() {
+        return filmStorage.getPopular(10);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Film> getAllFilms() {
+        return filmStorage.getAllFilms();
+    }
+
+    @Benchmark
+    public Film getFilm() {
+        return filmStorage.getFilm(1 + ThreadLocalRandom.current().nextInt(films));
+    }
+
+    @Benchmark
+    public List<User> getFriends() {
+        return userStorage.getFriends(1 + ThreadLocalRandom.current().nextInt(users));
+    }
+}
@@ -0,0 +1,178 @@
+package ru.yandex.practicum.filmorate.storage.impl.memory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.EntityNotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryStorageConcurrencyTests {
+    private static final int THREADS = 16;
+    private static final int OPERATIONS_PER_THREAD = 5_000;
+    private static final int USERS = 1_000;
+    private static final int FILMS = 50;
+
+    private InMemoryUserStorage userStorage;
+    private InMemoryFilmStorage filmStorage;
+
+    @BeforeEach
+    public void setup() {
+        userStorage = new InMemoryUserStorage();
+        filmStorage = new InMemoryFilmStorage(userStorage);
+    }
+
+    @Test
+    public void shouldGenerateUniqueIdsUnderConcurrentInserts() throws Exception {
+        Set<Long> userIds = ConcurrentHashMap.newKeySet();
+        Set<Integer> filmIds = ConcurrentHashMap.newKeySet();
+        runConcurrently(random -> {
+            userIds.add(userStorage.addUser(user()).getId());
+            filmIds.add(filmStorage.addFilm(film()).getId());
+        }, 1_000);
+
+        assertEquals(THREADS * 1_000, userIds.size());
+        assertEquals(THREADS * 1_000, filmIds.size());
+        assertEquals(THREADS * 1_000, userStorage.getAllUsers().size());
+        assertEquals(THREADS * 1_000, filmStorage.getAllFilms().size());
+    }
+
+    @Test
+    public void shouldKeepRateEqualToLikersUnderConcurrentLikes() throws Exception {
+        seed();
+        runConcurrently(random -> {
+            int filmId = 1 + random.nextInt(FILMS);
+            long userId = 1 + random.nextInt(USERS);
+            try {
+                int operation = random.nextInt(16);
+                if (operation < 8) {
+                    filmStorage.addLike(filmId, userId);
+                } else if (operation < 15) {
+                    filmStorage.deleteLike(filmId, userId);
+                } else {
+                    filmStorage.getPopular(10).forEach(film -> assertEquals(film.getRate(), film.getLikers().size()));
+                }
+            } catch (IllegalArgumentException | EntityNotFoundException e) {
+                // duplicate like or missing like, both expected under random traffic
+            }
+        }, OPERATIONS_PER_THREAD);
+
+        for (Film film : filmStorage.getAllFilms()) {
+            assertEquals(film.getLikers().size(), film.getRate());
+        }
+        assertEquals(filmStorage.getAllFilms().stream().mapToInt(Film::getRate).boxed()
+                        .sorted(Comparator.reverseOrder()).limit(10).collect(Collectors.toList()),
+                filmStorage.getPopular(10).stream().map(Film::getRate).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void shouldKeepFriendshipsSymmetricUnderConcurrentChanges() throws Exception {
+        seed();
+        runConcurrently(random -> {
+            long userId = 1 + random.nextInt(USERS);
+            long friendId = 1 + random.nextInt(USERS);
+            if (userId == friendId) {
+                return;
+            }
+            int operation = random.nextInt(8);
+            if (operation < 4) {
+                userStorage.addFriend(userId, friendId);
+            } else if (operation < 7) {
+                userStorage.deleteFriend(userId, friendId);
+            } else {
+                userStorage.getFriends(userId);
+                userStorage.getFriends(friendId);
+            }
+        }, OPERATIONS_PER_THREAD);
+
+        Map<Long, Set<Long>> friendships = new HashMap<>();
+        for (User user : userStorage.getAllUsers()) {
+            friendships.put(user.getId(), user.getFriends());
+        }
+        friendships.forEach((userId, friends) -> {
+            assertFalse(friends.contains(userId));
+            for (long friendId : friends) {
+                assertTrue(friendships.get(friendId).contains(userId),
+                        "Friendship " + userId + " -> " + friendId + " is not mutual");
+            }
+        });
+    }
+
+    @Test
+    public void shouldNotLeaveDanglingFriendsWhenUsersAreDeletedConcurrently() throws Exception {
+        seed();
+        runConcurrently(random -> {
+            long userId = 1 + random.nextInt(USERS);
+            long friendId = 1 + random.nextInt(USERS);
+            try {
+                if (random.nextInt(100) == 0) {
+                    userStorage.deleteUser(userId);
+                } else if (userId != friendId) {
+                    userStorage.addFriend(userId, friendId);
+                }
+            } catch (EntityNotFoundException e) {
+                // one of the users is already deleted
+            }
+        }, 2_000);
+
+        Set<Long> existing = new HashSet<>();
+        userStorage.getAllUsers().forEach(user -> existing.add(user.getId()));
+        for (User user : userStorage.getAllUsers()) {
+            assertTrue(existing.containsAll(user.getFriends()));
+        }
+    }
+
+    private void seed() {
+        for (int i = 0; i < USERS; i++) {
+            userStorage.addUser(user());
+        }
+        for (int i = 0; i < FILMS; i++) {
+            filmStorage.addFilm(film());
+        }
+    }
+
+    private static void runConcurrently(RandomOperation operation, int operationsPerThread) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            long seed = t;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                start.await();
+                for (int i = 0; i < operationsPerThread; i++) {
+                    operation.run(random);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static User user() {
+        return new User("test@mail.ru", "login", "name", LocalDate.of(2000, 1, 1));
+    }
+
+    private static Film film() {
+        return new Film("title", "description", LocalDate.of(2000, 1, 1), 100, 0, new MpaRating((short) 1, "G"));
+    }
+
+    @FunctionalInterface
+    interface RandomOperation {
+        void run(Random random);
+    }
+}
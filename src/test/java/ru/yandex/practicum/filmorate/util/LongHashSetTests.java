@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongHashSetTests {
+
+    @Test
+    public void shouldBehaveLikeHashSetUnderRandomOperations() {
+        Random random = new Random(7);
+        Set<Long> expected = new HashSet<>();
+        LongHashSet actual = new LongHashSet();
+        for (int i = 0; i < 200_000; i++) {
+            long value = random.nextInt(5_000) - 100;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), actual.remove(value));
+            } else {
+                assertEquals(expected.add(value), actual.add(value));
+            }
+            assertEquals(expected.size(), actual.size());
+        }
+        assertEquals(expected, actual);
+        assertEquals(actual, expected);
+        assertEquals(expected.hashCode(), actual.hashCode());
+        for (long value = -100; value < 4_900; value++) {
+            assertEquals(expected.contains(value), actual.contains(value));
+        }
+    }
+
+    @Test
+    public void shouldIterateOverAllValuesIncludingZero() {
+        LongHashSet set = new LongHashSet();
+        set.add(0L);
+        set.add(Long.MIN_VALUE);
+        set.add(Long.MAX_VALUE);
+        set.add(42L);
+
+        Set<Long> iterated = new HashSet<>();
+        set.forEach(iterated::add);
+        assertEquals(Set.of(0L, Long.MIN_VALUE, Long.MAX_VALUE, 42L), iterated);
+        assertEquals(4, set.toLongArray().length);
+
+        set.remove(0L);
+        assertFalse(set.contains(0L));
+        assertEquals(3, set.size());
+    }
+
+    @Test
+    public void shouldRemoveThroughIterator() {
+        Random random = new Random(11);
+        for (int round = 0; round < 200; round++) {
+            Set<Long> expected = new HashSet<>();
+            LongHashSet actual = new LongHashSet();
+            for (int i = random.nextInt(300); i > 0; i--) {
+                long value = random.nextInt(1_000) - 10;
+                expected.add(value);
+                actual.add(value);
+            }
+            long divisor = 2 + random.nextInt(3);
+            List<Long> seen = new ArrayList<>();
+            assertEquals(expected.removeIf(value -> value % divisor == 0),
+                    actual.removeIf(value -> seen.add(value) && value % divisor == 0));
+            assertEquals(expected.size() + seen.stream().filter(value -> value % divisor == 0).count(), seen.size());
+            assertEquals(seen.size(), new HashSet<>(seen).size());
+            assertEquals(expected, actual);
+            for (long value = -10; value < 990; value++) {
+                assertEquals(expected.contains(value), actual.contains(value));
+            }
+        }
+    }
+
+    @Test
+    public void shouldSupportRetainAllAndRejectRemoveWithoutNext() {
+        LongHashSet set = new LongHashSet();
+        set.addAll(List.of(0L, 1L, 2L, 3L));
+        assertThrows(IllegalStateException.class, () -> set.iterator().remove());
+        assertTrue(set.retainAll(Set.of(0L, 2L)));
+        assertEquals(Set.of(0L, 2L), set);
+    }
+
+    @Test
+    public void shouldSerializeAsJsonArray() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        LongHashSet set = new LongHashSet();
+        set.add(3L);
+        assertEquals("[3]", objectMapper.writeValueAsString(set));
+    }
+}